@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.bench;
+
+import com.sun.javadoc.*;
+import java.io.*;
+import java.util.*;
+import wikidoclet.WikiDoclet;
+
+/**
+ * Runs javadoc on a source tree, either to keep the {@link RootDoc} for
+ * benchmarks that work on the program structure, or to run the
+ * {@link WikiDoclet} end to end.  The options of this doclet are those of
+ * the WikiDoclet.
+ */
+public class BenchmarkDoclet extends WikiDoclet {
+
+    private static RootDoc captured;
+
+    /**
+     * Keep the root instead of generating documentation.
+     */
+    public static boolean start(RootDoc root) {
+        captured = root;
+        return true;
+    }
+
+    /**
+     * Parse the given sources and return the root.
+     *
+     * @param sourceDir the source directory.
+     * @param destDir   the directory that output would be written to.
+     * @param packages  the number of packages.
+     */
+    public static synchronized RootDoc parse(File sourceDir, File destDir,
+            int packages) {
+        captured = null;
+        if (run(BenchmarkDoclet.class, sourceDir, destDir, packages) != 0 ||
+                captured == null) {
+            throw new IllegalStateException("javadoc failed");
+        }
+        RootDoc root = captured;
+        captured = null;
+        return root;
+    }
+
+    /**
+     * Document the given sources with the {@link WikiDoclet}.
+     *
+     * @param sourceDir the source directory.
+     * @param destDir   the directory to write the documentation to.
+     * @param packages  the number of packages.
+     */
+    public static void document(File sourceDir, File destDir, int packages) {
+        if (run(WikiDoclet.class, sourceDir, destDir, packages) != 0) {
+            throw new IllegalStateException("javadoc failed");
+        }
+    }
+
+    private static int run(Class doclet, File sourceDir, File destDir,
+            int packages) {
+        List args = new ArrayList();
+        args.add("-quiet");
+        args.add("-encoding");
+        args.add("UTF-8");
+        args.add("-sourcepath");
+        args.add(sourceDir.getPath());
+        args.add("-d");
+        args.add(destDir.getPath());
+        args.add("-use");
+        args.add("-splitindex");
+        for (int i = 0; i < packages; i++) {
+            args.add("bench.p" + i);
+        }
+        PrintWriter err = new PrintWriter(System.err, true);
+        PrintWriter silent = new PrintWriter(new Writer() {
+            public void write(char[] cbuf, int off, int len) {
+            }
+            public void flush() {
+            }
+            public void close() {
+            }
+        });
+        return com.sun.tools.javadoc.Main.execute("javadoc", err, silent,
+            silent, doclet.getName(), doclet.getClassLoader(),
+            (String[]) args.toArray(new String[] {}));
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.bench;
+
+import com.sun.javadoc.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import wikidoclet.doclets.formats.html.CommentCache;
+import wikidoclet.doclets.formats.html.HtmlDocletWriter;
+
+/**
+ * Measures {@link HtmlDocletWriter#commentTagsToString} on all the comments
+ * of the synthetic tree.  {@link #comments} and {@link #firstSentences}
+ * start every invocation with an empty comment cache, so each comment is
+ * rendered once per invocation, as on the pages of a run.  The cached
+ * variants keep the cache across invocations and measure the lookups.  The
+ * comments of the parameter tags are not cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CommentBenchmark {
+
+    private Doc[] docs;
+
+    private HtmlDocletWriter writer;
+
+    @Setup
+    public void setUp(DocletState state) throws IOException {
+        List list = new ArrayList();
+        ClassDoc[] classes = state.root.classes();
+        for (int i = 0; i < classes.length; i++) {
+            list.add(classes[i]);
+            list.addAll(Arrays.asList(classes[i].methods()));
+            list.addAll(Arrays.asList(classes[i].fields()));
+        }
+        docs = (Doc[]) list.toArray(new Doc[] {});
+        writer = new HtmlDocletWriter(state.configuration, "bench.html");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Gives the configuration an empty comment cache before every
+     * invocation of a benchmark that uses it.
+     */
+    @State(Scope.Thread)
+    public static class EmptyCache {
+
+        @Setup(Level.Invocation)
+        public void setUp(DocletState state) {
+            state.configuration.commentCache =
+                new CommentCache(CommentCache.DEFAULT_SIZE);
+        }
+    }
+
+    @Benchmark
+    public void comments(EmptyCache cache, Blackhole bh) {
+        renderComments(bh);
+    }
+
+    @Benchmark
+    public void firstSentences(EmptyCache cache, Blackhole bh) {
+        renderFirstSentences(bh);
+    }
+
+    @Benchmark
+    public void commentsCached(Blackhole bh) {
+        renderComments(bh);
+    }
+
+    @Benchmark
+    public void firstSentencesCached(Blackhole bh) {
+        renderFirstSentences(bh);
+    }
+
+    private void renderComments(Blackhole bh) {
+        for (int i = 0; i < docs.length; i++) {
+            bh.consume(writer.commentTagsToString(null, docs[i],
+                docs[i].inlineTags(), false));
+        }
+    }
+
+    private void renderFirstSentences(Blackhole bh) {
+        for (int i = 0; i < docs.length; i++) {
+            bh.consume(writer.commentTagsToString(null, docs[i],
+                docs[i].firstSentenceTags(), true));
+        }
+    }
+
+    @Benchmark
+    public void paramTags(Blackhole bh) {
+        for (int i = 0; i < docs.length; i++) {
+            Tag[] tags = docs[i].tags("param");
+            for (int j = 0; j < tags.length; j++) {
+                bh.consume(writer.commentTagsToString(tags[j], docs[i],
+                    tags[j].inlineTags(), false));
+            }
+        }
+    }
+}
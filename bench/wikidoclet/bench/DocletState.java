@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.bench;
+
+import com.sun.javadoc.*;
+import java.io.*;
+import org.openjdk.jmh.annotations.*;
+import wikidoclet.doclets.formats.html.ConfigurationImpl;
+
+/**
+ * A parsed synthetic source tree and the doclet configuration for it,
+ * shared by the benchmarks that work on the program structure.  The size
+ * of the tree is set with the <code>classes</code> and <code>depth</code>
+ * parameters, for example <code>-p classes=2000</code>.
+ */
+@State(Scope.Benchmark)
+public class DocletState {
+
+    /**
+     * The number of classes in the tree.
+     */
+    @Param({"500"})
+    public int classes;
+
+    /**
+     * The length of the inheritance chains.
+     */
+    @Param({"10"})
+    public int depth;
+
+    public File dir;
+
+    public File sourceDir;
+
+    public File destDir;
+
+    public RootDoc root;
+
+    public ConfigurationImpl configuration;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = File.createTempFile("wikidoclet-bench", "");
+        dir.delete();
+        sourceDir = new File(dir, "src");
+        destDir = new File(dir, "out");
+        destDir.mkdirs();
+        SyntheticSources.generate(sourceDir, classes, depth);
+        root = BenchmarkDoclet.parse(sourceDir, destDir,
+            SyntheticSources.getPackageCount(classes));
+        configuration = ConfigurationImpl.getInstance();
+        configuration.root = root;
+        configuration.setOptions();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticSources.delete(dir);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.bench;
+
+import com.sun.javadoc.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import wikidoclet.doclets.internal.toolkit.util.*;
+
+/**
+ * Measures the structures built from the program structure before any page
+ * is written: the visible members of the classes at the bottom of the
+ * inheritance chains, and the index of all members.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+    /**
+     * The classes at the bottom of a chain.
+     */
+    private ClassDoc[] leaves;
+
+    @Setup
+    public void setUp(DocletState state) {
+        ClassDoc[] classes = state.root.classes();
+        leaves = new ClassDoc[classes.length];
+        int count = 0;
+        for (int i = 0; i < classes.length; i++) {
+            if (! hasSubclass(classes, classes[i])) {
+                leaves[count++] = classes[i];
+            }
+        }
+        ClassDoc[] result = new ClassDoc[count];
+        System.arraycopy(leaves, 0, result, 0, count);
+        leaves = result;
+    }
+
+    private static boolean hasSubclass(ClassDoc[] classes, ClassDoc cd) {
+        for (int i = 0; i < classes.length; i++) {
+            if (classes[i].superclass() == cd) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public void visibleMemberMaps(Blackhole bh) {
+        for (int i = 0; i < leaves.length; i++) {
+            bh.consume(new VisibleMemberMap(leaves[i],
+                VisibleMemberMap.METHODS, false));
+            bh.consume(new VisibleMemberMap(leaves[i],
+                VisibleMemberMap.FIELDS, false));
+        }
+    }
+
+    @Benchmark
+    public IndexBuilder indexBuilder(DocletState state) {
+        return new IndexBuilder(state.configuration, false);
+    }
+
+    @Benchmark
+    public IndexBuilder classIndexBuilder(DocletState state) {
+        return new IndexBuilder(state.configuration, false, true);
+    }
+}
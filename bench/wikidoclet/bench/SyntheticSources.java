@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.bench;
+
+import java.io.*;
+
+/**
+ * Writes a synthetic source tree for the benchmarks.  The classes are
+ * spread over packages of {@link #CLASSES_PER_PACKAGE} classes and form
+ * inheritance chains of the given depth, so the visible members of a class
+ * at the bottom of a chain come from every class above it.  Every class,
+ * method and field carries a wiki formatted comment with lists, tables,
+ * links and block tags.
+ */
+public class SyntheticSources {
+
+    /**
+     * The number of classes in each package.
+     */
+    public static final int CLASSES_PER_PACKAGE = 50;
+
+    /**
+     * The number of methods declared by each class.
+     */
+    public static final int METHODS_PER_CLASS = 6;
+
+    private SyntheticSources() {
+    }
+
+    /**
+     * Return the name of the package of the given class.
+     */
+    public static String getPackageName(int index) {
+        return "bench.p" + (index / CLASSES_PER_PACKAGE);
+    }
+
+    /**
+     * Return the number of packages holding the given number of classes.
+     */
+    public static int getPackageCount(int classes) {
+        return (classes + CLASSES_PER_PACKAGE - 1) / CLASSES_PER_PACKAGE;
+    }
+
+    /**
+     * Write the sources.
+     *
+     * @param dir     the source directory.
+     * @param classes the number of classes to write.
+     * @param depth   the length of the inheritance chains.
+     */
+    public static void generate(File dir, int classes, int depth)
+            throws IOException {
+        for (int i = 0; i < getPackageCount(classes); i++) {
+            writeInterface(dir, i);
+        }
+        for (int i = 0; i < classes; i++) {
+            writeClass(dir, i, depth);
+        }
+    }
+
+    private static void writeInterface(File dir, int pkg) throws IOException {
+        String pkgName = "bench.p" + pkg;
+        PrintWriter out = open(dir, pkgName, "Service");
+        out.println("package " + pkgName + ";");
+        out.println();
+        out.println("/**");
+        out.println(" * A service implemented by every class of the package.");
+        out.println(" *");
+        out.println(" *   * runs the *benchmark* workload");
+        out.println(" *   * reports =results= back");
+        out.println(" */");
+        out.println("public interface Service {");
+        out.println("    /**");
+        out.println("     * Run the service.");
+        out.println("     * @param count the number of _rounds_.");
+        out.println("     * @return the result.");
+        out.println("     */");
+        out.println("    int run(int count);");
+        out.println("}");
+        out.close();
+    }
+
+    private static void writeClass(File dir, int index, int depth)
+            throws IOException {
+        String pkgName = getPackageName(index);
+        String name = "C" + index;
+        PrintWriter out = open(dir, pkgName, name);
+        out.println("package " + pkgName + ";");
+        out.println();
+        out.println("/**");
+        out.println(" * Synthetic class " + index + ".  Part of a chain of " +
+            depth + " classes, see {@link Service}.");
+        out.println(" *");
+        out.println(" *   1 first item with *bold* text");
+        out.println(" *   1 second item with _italic_ text");
+        out.println(" *      * nested item with =fixed= text");
+        out.println(" *");
+        out.println(" * | *Name* | *Value* |");
+        out.println(" * | depth | " + depth + " |");
+        out.println(" * | index | " + index + " |");
+        out.println(" *");
+        out.println(" * <verbatim>");
+        out.println(" *     new " + name + "().run(1);");
+        out.println(" * </verbatim>");
+        out.println(" *");
+        out.println(" * @author bench");
+        out.println(" * @version 1." + index);
+        out.println(" * @see Service#run(int)");
+        out.println(" */");
+        String superclass = null;
+        if (index % depth != 0 &&
+                getPackageName(index - 1).equals(pkgName)) {
+            superclass = "C" + (index - 1);
+        }
+        out.println("public class " + name +
+            (superclass == null ? "" : " extends " + superclass) +
+            " implements Service {");
+        out.println();
+        out.println("    /**");
+        out.println("     * The value of _" + name + "_.");
+        out.println("     */");
+        out.println("    public static final int VALUE_" + index + " = " +
+            index + ";");
+        out.println();
+        out.println("    /**");
+        out.println("     * The state of the class.");
+        out.println("     */");
+        out.println("    protected String state" + index + ";");
+        out.println();
+        out.println("    /**");
+        out.println("     * Create a new instance.");
+        out.println("     */");
+        out.println("    public " + name + "() {");
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * {@inheritDoc}");
+        out.println("     */");
+        out.println("    public int run(int count) {");
+        out.println("        return count + " + index + ";");
+        out.println("    }");
+        for (int m = 0; m < METHODS_PER_CLASS; m++) {
+            out.println();
+            out.println("    /**");
+            out.println("     * Method " + m + " of {@link " + name + "}.  Calls");
+            out.println("     * {@link #run(int)} *twice* and returns the sum.");
+            out.println("     *");
+            out.println("     *   * the first call uses =a=");
+            out.println("     *   * the second call uses =b=");
+            out.println("     *");
+            out.println("     * @param a the first value.");
+            out.println("     * @param b the second value.");
+            out.println("     * @return the sum of both calls.");
+            out.println("     * @throws IllegalArgumentException if a is negative.");
+            out.println("     */");
+            out.println("    public int method" + (index % depth) + "_" + m +
+                "(int a, String b) {");
+            out.println("        return run(a) + b.length();");
+            out.println("    }");
+        }
+        out.println("}");
+        out.close();
+    }
+
+    private static PrintWriter open(File dir, String pkgName, String name)
+            throws IOException {
+        File pkgDir = new File(dir, pkgName.replace('.', File.separatorChar));
+        pkgDir.mkdirs();
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(new File(pkgDir, name + ".java")), "UTF-8")));
+    }
+
+    /**
+     * Delete the given file or directory tree.
+     */
+    public static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                delete(files[i]);
+            }
+        }
+        file.delete();
+    }
+}
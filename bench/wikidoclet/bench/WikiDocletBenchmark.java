@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.bench;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import wikidoclet.WikiDoclet;
+
+/**
+ * Measures a complete run of javadoc with the {@link WikiDoclet} on a
+ * synthetic source tree, from parsing the sources to writing the last page.
+ * The size of the tree is set with the <code>classes</code> and
+ * <code>depth</code> parameters.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WikiDocletBenchmark {
+
+    @Param({"500"})
+    public int classes;
+
+    @Param({"10"})
+    public int depth;
+
+    private File dir;
+
+    private File sourceDir;
+
+    private File destDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = File.createTempFile("wikidoclet-bench", "");
+        dir.delete();
+        sourceDir = new File(dir, "src");
+        SyntheticSources.generate(sourceDir, classes, depth);
+    }
+
+    @Setup(Level.Iteration)
+    public void clean() {
+        destDir = new File(dir, "out");
+        SyntheticSources.delete(destDir);
+        destDir.mkdirs();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticSources.delete(dir);
+    }
+
+    @Benchmark
+    public void document() {
+        BenchmarkDoclet.document(sourceDir, destDir,
+            SyntheticSources.getPackageCount(classes));
+    }
+}
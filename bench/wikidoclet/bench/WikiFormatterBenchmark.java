@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import wikidoclet.WikiFormatter;
+
+/**
+ * Measures {@link WikiFormatter#format(String)} on comments made of one kind
+ * of markup each, and on a mix of all of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WikiFormatterBenchmark {
+
+    /**
+     * The kind of comment to format.
+     */
+    @Param({"lists", "tables", "verbatim", "paragraphs", "mixed"})
+    public String corpus;
+
+    /**
+     * The number of blocks of markup in the comment.
+     */
+    @Param({"20"})
+    public int blocks;
+
+    private String comment;
+
+    @Setup
+    public void setUp() {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < blocks; i++) {
+            if (corpus.equals("lists")) {
+                appendList(sb, i);
+            } else if (corpus.equals("tables")) {
+                appendTable(sb, i);
+            } else if (corpus.equals("verbatim")) {
+                appendVerbatim(sb, i);
+            } else if (corpus.equals("paragraphs")) {
+                appendParagraph(sb, i);
+            } else {
+                switch (i % 4) {
+                    case 0: appendList(sb, i); break;
+                    case 1: appendTable(sb, i); break;
+                    case 2: appendVerbatim(sb, i); break;
+                    default: appendParagraph(sb, i);
+                }
+            }
+        }
+        comment = sb.toString();
+    }
+
+    @Benchmark
+    public String format() {
+        return WikiFormatter.format(comment);
+    }
+
+    private static void appendList(StringBuffer sb, int i) {
+        sb.append("List ").append(i).append(":\n\n");
+        sb.append("   * first item with *bold* text\n");
+        sb.append("      * nested item with _italic_ text\n");
+        sb.append("        continued on a second line\n");
+        sb.append("      * nested item with =fixed= text\n");
+        sb.append("   * second item\n");
+        sb.append("   1 numbered item\n");
+        sb.append("   1 numbered item with __bold italic__\n\n");
+    }
+
+    private static void appendTable(StringBuffer sb, int i) {
+        sb.append("Table ").append(i).append(":\n\n");
+        sb.append("| *Option* | *Meaning* | *Default* |\n");
+        for (int row = 0; row < 5; row++) {
+            sb.append("| -option").append(row)
+                .append(" | sets the _value_ of ").append(row)
+                .append(" | =").append(row * i).append("= |\n");
+        }
+        sb.append('\n');
+    }
+
+    private static void appendVerbatim(StringBuffer sb, int i) {
+        sb.append("Example ").append(i).append(":\n");
+        sb.append("<verbatim>\n");
+        sb.append("    Map<String, List<Integer>> map = new HashMap();\n");
+        sb.append("    if (a < b && b > c) {\n");
+        sb.append("        map.put(\"key\", list);\n");
+        sb.append("    }\n");
+        sb.append("</verbatim>\n\n");
+    }
+
+    private static void appendParagraph(StringBuffer sb, int i) {
+        for (int line = 0; line < 6; line++) {
+            sb.append("This is line ").append(line).append(" of paragraph ")
+                .append(i).append(", a long run of plain text without any ")
+                .append("markup at all, as most comments are written.\n");
+        }
+        sb.append('\n');
+    }
+}
@@ -17,13 +17,11 @@
 
 package wikidoclet;
 
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-
 /**
- * All of the work is done here. Performs the text substitutions to turn WIKI
- * strings into HTML. Most of the substitutions are straight regex replacements.
- * The list and table support are more complicated.
+ * All of the work is done here. Turns WIKI strings into HTML. The inline
+ * markup is parsed by {@link WikiParser}; the lines it produces are then run
+ * through the list, bold and table rules below and written straight into the
+ * caller's buffer.
  *
  * @author  Jason Horman (jason@jhorman.org)
  */
@@ -34,59 +32,77 @@ public class WikiFormatter {
      *  Class variables
      ***************************************************/
 
-    private static final Pattern boldPtn = Pattern.compile("\\*(.+?)\\*");
-    private static final Pattern italicPtn = Pattern.compile("\\_(.+?)\\_");
-    private static final Pattern boldItalicPtn = Pattern.compile("\\_\\_(.+?)\\_\\_");
-    private static final Pattern boldFixedFontPtn = Pattern.compile("==(.+?)==");
-    private static final Pattern fixedFontPtn = Pattern.compile("=(?![><\"])(.+?)=");
-    private static final Pattern horizLinePtn = Pattern.compile("----+");
+    private static final String TABLE_START =
+        "<table class=\"wikitable\" border=\"1\" cellspacing=\"1\" cellpadding=\"1\">\n";
+    private static final String TABLE_END = "\t</tbody>\n</table>\n";
+
+    /***************************************************
+     *  Instance variables
+     ***************************************************/
+
+    private final StringBuffer out;
 
-    private static final Pattern l4HeadPtn = Pattern.compile("---\\+\\+\\+\\+ ?([^\\n]+)\\r?\\n");
-    private static final Pattern l3HeadPtn = Pattern.compile("---\\+\\+\\+ ?([^\\n]+)\\r?\\n");
-    private static final Pattern l2HeadPtn = Pattern.compile("---\\+\\+ ?([^\\n]+)\\r?\\n");
-    private static final Pattern l1HeadPtn = Pattern.compile("---\\+ ?([^\\n]+)\\r?\\n");
-    private static final Pattern hrefPtn = Pattern.compile("\\[\\[(.+?)\\]\\[(.+?)\\]\\]\\r?\\n?");
-    private static final Pattern verbatimPtn = Pattern.compile("<verbatim>");
-    private static final Pattern verbatimEndPtn = Pattern.compile("</verbatim>");
+    // bullet state
+    private int lastBulletDepth = 0;
+    private String lastUolTag = null;
+    private int tabSize = 3;    // default tab size of 3
+    private boolean preOn = false;  // keeps track of whether <pre> is on or not
 
-    private static final Pattern bulletPtn = Pattern.compile("^(\\s+)([\\*\\d+])\\.?\\s([^\\n]+)");
-    private static final Pattern indentedPtn = Pattern.compile("^(\\s+)([^\\n]+)");
+    // table state
+    private boolean inTable = false;
 
-    private static final Pattern tablePtn = Pattern.compile("^(\\s*)\\|");
-    private static final Pattern tableCellPtn = Pattern.compile("(\\s*)(.+?)(\\s*)");
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder bulletLine = new StringBuilder();
+    private final StringBuilder boldLine = new StringBuilder();
 
     /***************************************************
      *  Instance methods
      ***************************************************/
 
+    private WikiFormatter(StringBuffer out) {
+        this.out = out;
+    }
+
     /**
      * Override this function to execute wiki formatting.
      */
     public static String format(String commentStr) {
-        // perform the simple substitutions.
-        commentStr = boldItalicPtn.matcher(commentStr).replaceAll("<i><b>$1</b></i>");
-        commentStr = italicPtn.matcher(commentStr).replaceAll("<i>$1</i>");
-        commentStr = l4HeadPtn.matcher(commentStr).replaceAll("<h4>$1</h4>");
-        commentStr = l3HeadPtn.matcher(commentStr).replaceAll("<h3>$1</h3>");
-        commentStr = l2HeadPtn.matcher(commentStr).replaceAll("<h2>$1</h2>");
-        commentStr = l1HeadPtn.matcher(commentStr).replaceAll("<h1>$1</h1>");
-        commentStr = boldFixedFontPtn.matcher(commentStr).replaceAll("<code><b>$1</b></code>");
-        commentStr = fixedFontPtn.matcher(commentStr).replaceAll("<code>$1</code>");
-        commentStr = horizLinePtn.matcher(commentStr).replaceAll("<hr size=\"1\"/>");
-        commentStr = hrefPtn.matcher(commentStr).replaceAll("<a href=\"$1\">$2</a>");
-        commentStr = verbatimPtn.matcher(commentStr).replaceAll("<pre>");
-        commentStr = verbatimEndPtn.matcher(commentStr).replaceAll("</pre>");
-
-        // create bulleted lists
-        commentStr = replaceBulletsAndNewlines(commentStr); // this replaces the \n's with <br/>\n's also
-
-        // now replace bolds, after bullets are applied.
-        commentStr = boldPtn.matcher(commentStr).replaceAll("<b>$1</b>");
-
-        // create tables
-        commentStr = replaceTables(commentStr);
-
-        return commentStr;
+        StringBuffer buf = new StringBuffer(commentStr.length() + 100);
+        format(commentStr, buf);
+        return buf.toString();
+    }
+
+    /**
+     * Formats the comment and appends the resulting HTML to the buffer.
+     */
+    public static void format(CharSequence comment, StringBuffer buf) {
+        new WikiFormatter(buf).format(new WikiParser(comment),
+            comment.length() == 0);
+    }
+
+    private void format(WikiParser parser, boolean empty) {
+        // like String.split("\n"), trailing empty lines are dropped, but an
+        // empty comment is still one empty line
+        int emptyLines = 0;
+        while (parser.nextLine(line)) {
+            if (line.length() == 0 && !empty) {
+                emptyLines++;
+                continue;
+            }
+            for (; emptyLines > 0; emptyLines--) {
+                replaceBulletsAndNewlines("");
+            }
+            replaceBulletsAndNewlines(line);
+        }
+
+        // i may need to write out the last set of ol/ul
+        while(lastBulletDepth-- >= 0) {
+            closeList();
+        }
+
+        if (inTable) {
+            out.append(TABLE_END);
+        }
     }
 
     /**
@@ -102,116 +118,199 @@ public class WikiFormatter {
      *
      * NOTE: This has become a hack...
      */
-    private static String replaceBulletsAndNewlines(String commentStr) {
-        int lastBulletDepth = 0;
-        String lastUolTag = null;
-        int tabSize = 3;    // default tab size of 3
-
-        StringBuffer newCommentStrBuf = new StringBuffer(commentStr.length()+100);
-        String[] split = commentStr.split("\n");
-
-        // keeps track of whether <pre> is on or not
-        boolean preOn = false;
-
-        for (int i = 0; i < split.length; i++) {
-            String line = split[i];
+    private void replaceBulletsAndNewlines(CharSequence line) {
+        // check if pre mode is on. we won't write a "<br/> at the end if it is.
+        if (contains(line, "<pre>")) {
+            preOn = true;
+        } else if (contains(line, "</pre>")) {
+            preOn = false;
+        }
 
-            // check if pre mode is on. we won't write a "<br/> at the end if it is.
-            if (line.indexOf("<pre>") != -1) {
-                preOn = true;
-            } else if (line.indexOf("</pre>") != -1) {
-                preOn = false;
+        int length = line.length();
+        int indent = indent(line);
+
+        // check for the bullet pattern
+        //   * bullet 1
+        //      * bullet 2
+        //   * bullet 3
+        int bulletText = bulletText(line, indent);
+        if (bulletText != -1) {
+            lastUolTag = line.charAt(indent) == '*' ? "ul" : "ol";
+
+            // the first bullet determines the tab size
+            int depth = 0;
+            if (lastBulletDepth == 0) {
+                tabSize = indent;
+                depth = 1;
+            } else {
+                depth = getIndentDepth(line, indent, tabSize);
             }
 
-            // check for the bullet pattern
-            //   * bullet 1
-            //      * bullet 2
-            //   * bullet 3
-            Matcher matcher = bulletPtn.matcher(line);
-            if (line.length() > 0 && matcher.matches()) {
-                lastUolTag = matcher.group(2).equals("*") ? "ul" : "ol";
-
-                // the first bullet determines the tab size
-                int depth = 0;
-                if (lastBulletDepth == 0) {
-                    tabSize = matcher.group(1).length();
-                    depth = 1;
-                } else {
-                    depth = getIndentDepth(matcher.group(1), tabSize);
-                }
-
-                if (depth > lastBulletDepth) {
-                    newCommentStrBuf.append("<" + lastUolTag + ">\n");
-                } else if (depth < lastBulletDepth) {
-                    newCommentStrBuf.append("</" + lastUolTag + ">\n");
-                }
-
-                newCommentStrBuf.append("\t<li>" + matcher.group(3) + "\n");
-                lastBulletDepth = depth;
-
-            } else {
+            if (depth > lastBulletDepth) {
+                bulletLine.setLength(0);
+                bulletLine.append('<').append(lastUolTag).append('>');
+                writeLine(bulletLine, 0, bulletLine.length());
+            } else if (depth < lastBulletDepth) {
+                closeList();
+            }
 
-                // bullet can span multiple lines so check and see if we are
-                // still inside of a bullet tag.
-                boolean stillInBullet = false;
-                if (lastBulletDepth > 0) {
-                    // if the trimed line is 0 we are probably still in the bullet since
-                    // it probably is just a newline between bullets.
-                    if (line.trim().length() > 0) {
-                        Matcher indentedMatcher = indentedPtn.matcher(line);
-                        if (indentedMatcher.matches()) {
-                            int depth = getIndentDepth(indentedMatcher.group(1), tabSize);
-                            if (depth >= lastBulletDepth) {
-                                line = indentedMatcher.group(2);
-                                stillInBullet = true;
-                            }
+            bulletLine.setLength(0);
+            bulletLine.append("\t<li>").append(line, bulletText, length);
+            writeLine(bulletLine, 0, bulletLine.length());
+            lastBulletDepth = depth;
+
+        } else {
+
+            // bullet can span multiple lines so check and see if we are
+            // still inside of a bullet tag.
+            int start = 0;
+            boolean stillInBullet = false;
+            if (lastBulletDepth > 0) {
+                // if the trimed line is 0 we are probably still in the bullet since
+                // it probably is just a newline between bullets.
+                if (!isBlank(line, 0, length)) {
+                    if (indent > 0) {
+                        int depth = getIndentDepth(line, indent, tabSize);
+                        if (depth >= lastBulletDepth) {
+                            start = indent;
+                            stillInBullet = true;
                         }
-                    } else {
-                        stillInBullet = true;
                     }
+                } else {
+                    stillInBullet = true;
                 }
+            }
 
-                if (!stillInBullet) {
-                    // close each opened ul/ol
-                    while(lastBulletDepth-- >= 0) {
-                        newCommentStrBuf.append("</" + lastUolTag + ">\n");
-                    }
+            if (!stillInBullet) {
+                // close each opened ul/ol
+                while(lastBulletDepth-- >= 0) {
+                    closeList();
                 }
+            }
 
-                if (!preOn) {
-                    if (line.trim().length() > 0) {
-                        newCommentStrBuf.append(line);
-                    } else {
-                        newCommentStrBuf.append("<p>");
-                    }
+            if (!preOn) {
+                if (!isBlank(line, start, length)) {
+                    writeLine(line, start, length);
                 } else {
-                    // allow users to type tags in pre blocks
-                    line = line.replaceAll("&", "&amp;");
-                    line = line.replaceAll("<(?!pre)", "&lt;");
-                    line = line.replaceAll("(?<!pre)>", "&gt;");
-                    newCommentStrBuf.append(line);
+                    writeLine("<p>", 0, 3);
                 }
-
-                newCommentStrBuf.append("\n");
+            } else {
+                // allow users to type tags in pre blocks
+                bulletLine.setLength(0);
+                escapePre(line, start, length, bulletLine);
+                writeLine(bulletLine, 0, bulletLine.length());
             }
         }
+    }
 
-        // i may need to write out the last set of ol/ul
-        while(lastBulletDepth-- >= 0) {
-            newCommentStrBuf.append("</" + lastUolTag + ">\n");
-        }
+    private void closeList() {
+        bulletLine.setLength(0);
+        bulletLine.append("</").append(lastUolTag).append('>');
+        writeLine(bulletLine, 0, bulletLine.length());
+    }
 
-        return newCommentStrBuf.toString();
+    /**
+     * Returns where the text of a bullet line starts, -1 if the line is not
+     * a bullet. A bullet is some whitespace, a * or a digit (optionally
+     * followed by a .), whitespace and the text.
+     */
+    private static int bulletText(CharSequence line, int indent) {
+        int length = line.length();
+        if (indent == 0 || indent == length) {
+            return -1;
+        }
+        char c = line.charAt(indent);
+        if (c != '*' && c != '+' && (c < '0' || c > '9')) {
+            return -1;
+        }
+        int i = indent + 1;
+        if (i < length && line.charAt(i) == '.') {
+            i++;
+        }
+        if (i + 1 >= length || !isSpace(line.charAt(i))) {
+            return -1;
+        }
+        return i + 1;
     }
 
     /**
      * Gets the indent depth from the leading spaces in the bulleted list
      * pattern and number list pattern. Bullets should be nested in increments
-     * of 3 spaces or with tabs. If using spaces the length of the spaces
-     * string is divided by 3 for the depth.
+     * of 3 spaces or with tabs. If using spaces the number of spaces is
+     * divided by 3 for the depth.
      */
-    private static int getIndentDepth(String str, int tabSize) {
-        return str.replaceAll(" {" + tabSize + "}", " ").length();
+    private static int getIndentDepth(CharSequence line, int indent, int tabSize) {
+        int depth = indent;
+        int spaces = 0;
+        for (int i = 0; i <= indent; i++) {
+            if (i < indent && line.charAt(i) == ' ') {
+                spaces++;
+            } else {
+                depth -= (spaces / tabSize) * (tabSize - 1);
+                spaces = 0;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Escapes &amp;, &lt; and &gt; except in the pre tags themselves.
+     */
+    private static void escapePre(CharSequence line, int start, int end,
+            StringBuilder buf) {
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '&') {
+                buf.append("&amp;");
+            } else if (c == '<' && !(i + 3 < end
+                    && line.charAt(i + 1) == 'p'
+                    && line.charAt(i + 2) == 'r'
+                    && line.charAt(i + 3) == 'e')) {
+                buf.append("&lt;");
+            } else if (c == '>' && !(i - 3 >= start
+                    && line.charAt(i - 3) == 'p'
+                    && line.charAt(i - 2) == 'r'
+                    && line.charAt(i - 1) == 'e')) {
+                buf.append("&gt;");
+            } else {
+                buf.append(c);
+            }
+        }
+    }
+
+    /**
+     * Writes one line of output: *bold* is applied after the bullets, and
+     * then the line goes to the table rule.
+     */
+    private void writeLine(CharSequence src, int start, int end) {
+        boldLine.setLength(0);
+        replaceBolds(src, start, end, boldLine);
+        replaceTables(boldLine);
+    }
+
+    /**
+     * Replaces *bold* within each line of the text.
+     */
+    private static void replaceBolds(CharSequence src, int start, int end,
+            StringBuilder buf) {
+        int from = start;
+        int open = -1;
+        for (int i = start; i < end; i++) {
+            char c = src.charAt(i);
+            if (c == '*') {
+                if (open == -1) {
+                    open = i;
+                } else if (i >= open + 2) {
+                    buf.append(src, from, open).append("<b>")
+                        .append(src, open + 1, i).append("</b>");
+                    from = i + 1;
+                    open = -1;
+                }
+            } else if (isLineTerminator(c)) {
+                open = -1;
+            }
+        }
+        buf.append(src, from, end);
     }
 
     /**
@@ -229,83 +328,160 @@ public class WikiFormatter {
      * The table has a html css "class" of wikitable to allow the user to override
      * the table styling.
      */
-    private static String replaceTables(String commentStr) {
-        StringBuffer newCommentStrBuf = new StringBuffer(commentStr.length()+100);
-        String[] split = commentStr.split("\n");
-        boolean inTable = false;
-        for (int i = 0; i < split.length; i++) {
-            String line = split[i];
-            Matcher matcher = tablePtn.matcher(line);
-            if (matcher.find()) {
-                if (!inTable) {
-                    boolean headerRow = line.indexOf("<b>") != -1; // bold in the 1st row means header
-                    newCommentStrBuf.append("<table class=\"wikitable\" border=\"1\" cellspacing=\"1\" cellpadding=\"1\">\n");
-                    if (headerRow) newCommentStrBuf.append("\t<thead bgcolor=\"#dddddd\">\n");
-                    newCommentStrBuf.append("\t\t<tr>\n");
-
-                    String[] tdata = getTableData(line);
-                    for (int j = 0; j < tdata.length; j++) {
-                        newCommentStrBuf.append(tdata[j]);
-                    }
+    private void replaceTables(StringBuilder line) {
+        if (isTableRow(line)) {
+            if (!inTable) {
+                boolean headerRow = line.indexOf("<b>") != -1; // bold in the 1st row means header
+                out.append(TABLE_START);
+                if (headerRow) out.append("\t<thead bgcolor=\"#dddddd\">\n");
+                out.append("\t\t<tr>\n");
 
-                    newCommentStrBuf.append("\t\t</tr>");
-                    if (headerRow) newCommentStrBuf.append("\t</thead>\n");
-                    newCommentStrBuf.append("\t<tbody>\n");
-                    inTable = true;
+                getTableData(line);
 
-                } else {
-                    newCommentStrBuf.append("\t\t<tr>\n");
+                out.append("\t\t</tr>");
+                if (headerRow) out.append("\t</thead>\n");
+                out.append("\t<tbody>\n");
+                inTable = true;
 
-                    String[] tdata = getTableData(line);
-                    for (int j = 0; j < tdata.length; j++) {
-                        newCommentStrBuf.append(tdata[j]);
-                    }
-
-                    newCommentStrBuf.append("\t\t<tr>\n");
-                }
             } else {
-                if (inTable) {
-                    newCommentStrBuf.append("\t</tbody>\n</table>\n");
-                    inTable = false;
-                }
+                out.append("\t\t<tr>\n");
+
+                getTableData(line);
 
-                // don't need to re-append br, since bullet replacement did it
-                newCommentStrBuf.append(line + "\n");
+                out.append("\t\t<tr>\n");
             }
+        } else {
+            if (inTable) {
+                out.append(TABLE_END);
+                inTable = false;
+            }
+
+            // don't need to re-append br, since bullet replacement did it
+            out.append(line).append('\n');
         }
+    }
 
-        if (inTable) {
-            newCommentStrBuf.append("\t</tbody>\n</table>\n");
+    private static boolean isTableRow(CharSequence line) {
+        int i = 0;
+        while (i < line.length() && isSpace(line.charAt(i))) {
+            i++;
         }
+        return i < line.length() && line.charAt(i) == '|';
+    }
 
-        return newCommentStrBuf.toString();
+    /**
+     * Formats and writes the contents of a row. Aligns the <td> tags based on
+     * the whitespace in each column. More space on the left means align left,
+     * more on the right, align right, equal align center.
+     */
+    private void getTableData(StringBuilder line) {
+        int end = line.lastIndexOf("|");
+        int cell = line.indexOf("|") + 1;
+        for (int i = cell; i < end; i++) {
+            if (line.charAt(i) == '|') {
+                appendTableCell(line, cell, i);
+                cell = i + 1;
+            }
+        }
+        appendTableCell(line, cell, end);
     }
 
     /**
-     * Formats and gets the contents of a row. Aligns the <td> tags based on the
-     * whitespace in each column. More space on the left means align left, more
-     * on the right, align right, equal align center.
+     * Writes one cell as if matched by (\s*)(.+?)(\s*), or as is when that
+     * does not match.
      */
-    private static String[] getTableData(String line) {
-        line = line.substring(line.indexOf("|"), line.lastIndexOf("|"));
-        String[] tdata = line.split("\\|");
-
-        for (int i = 0; i < tdata.length; i++) {
-            String tdataItem = tdata[i];
-            Matcher matcher = tableCellPtn.matcher(tdataItem);
-            if (matcher.matches()) {
-                String beginSpacesStr = matcher.group(1);
-                String endSpacesStr = matcher.group(3);
-                int beginSpaces = beginSpacesStr != null ? beginSpacesStr.length() : 0;
-                int endSpaces = endSpacesStr != null ? endSpacesStr.length() : 0;
-
-                String alignment = beginSpaces == endSpaces ? "center" :
-                                   beginSpaces > endSpaces ? "right" : "left";
-
-                tdata[i] = "\t\t\t<td align=\"" + alignment + "\">" + matcher.group(2) + "</td>\n";
+    private void appendTableCell(CharSequence line, int start, int end) {
+        int textStart = start;
+        while (textStart < end && isSpace(line.charAt(textStart))) {
+            textStart++;
+        }
+        if (start >= end) {
+            return;
+        }
+        int textEnd = end;
+        if (textStart == end) {
+            // all whitespace, the text is the last character a . can match
+            while (textEnd > start && line.charAt(textEnd - 1) == '\r') {
+                textEnd--;
             }
+            if (textEnd == start) {
+                out.append(line, start, end);
+                return;
+            }
+            textStart = textEnd - 1;
+        } else {
+            while (isSpace(line.charAt(textEnd - 1))) {
+                textEnd--;
+            }
+            for (int i = textStart; i < textEnd; i++) {
+                if (isLineTerminator(line.charAt(i))) {
+                    out.append(line, start, end);
+                    return;
+                }
+            }
+        }
+        int beginSpaces = textStart - start;
+        int endSpaces = end - textEnd;
+
+        String alignment = beginSpaces == endSpaces ? "center" :
+                           beginSpaces > endSpaces ? "right" : "left";
+
+        out.append("\t\t\t<td align=\"").append(alignment).append("\">")
+            .append(line, textStart, textEnd).append("</td>\n");
+    }
+
+    private static boolean contains(CharSequence line, String str) {
+        int last = line.length() - str.length();
+        for (int i = 0; i <= last; i++) {
+            if (line.charAt(i) == str.charAt(0)) {
+                int j = 1;
+                while (j < str.length() && line.charAt(i + j) == str.charAt(j)) {
+                    j++;
+                }
+                if (j == str.length()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of leading whitespace characters.
+     */
+    private static int indent(CharSequence line) {
+        int i = 0;
+        while (i < line.length() && isSpace(line.charAt(i))) {
+            i++;
         }
+        return i;
+    }
 
-        return tdata;
+    /**
+     * Whether the text would be empty when trimmed.
+     */
+    private static boolean isBlank(CharSequence line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The regex \s.
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+            || c == '\f' || c == '\r';
+    }
+
+    /**
+     * The characters a regex . does not match.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028'
+            || c == '\u2029';
     }
-}
\ No newline at end of file
+}
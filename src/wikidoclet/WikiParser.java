@@ -0,0 +1,550 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet;
+
+/**
+ * Parses the inline WIKI markup of a comment. A single scan over the text
+ * records every place where markup can start: underscores, equal signs, dash
+ * runs and heading markers, link brackets, verbatim tags and line terminators.
+ * The inline rules are then resolved from those positions alone into a table
+ * holding one action per input character. The table is the parsed form of the
+ * comment; {@link #nextLine} walks it once and writes the HTML of each line.
+ *
+ * The rules are resolved in the order the original regex passes applied them,
+ * so the result is the same character for character, quirks included: spans
+ * never cross a line terminator, headings and links swallow the newline that
+ * follows them, and a later rule sees the tags written by an earlier one.
+ *
+ * @author  Jason Horman (jason@jhorman.org)
+ */
+
+final class WikiParser {
+
+    /***************************************************
+     *  Class variables
+     ***************************************************/
+
+    private static final byte KEEP = 0;
+    private static final byte SKIP = 1;
+    private static final byte BOLD_ITALIC = 2;
+    private static final byte BOLD_ITALIC_END = 3;
+    private static final byte ITALIC = 4;
+    private static final byte ITALIC_END = 5;
+    private static final byte BOLD_FIXED = 6;
+    private static final byte BOLD_FIXED_END = 7;
+    private static final byte FIXED = 8;
+    private static final byte FIXED_END = 9;
+    private static final byte HEADING = 10;        // 10 - 13 for <h1> - <h4>
+    private static final byte HEADING_END = 14;    // 14 - 17 for </h1> - </h4>
+    private static final byte HORIZ_LINE = 18;
+    private static final byte LINK = 19;
+    private static final byte LINK_LABEL = 20;
+    private static final byte LINK_END = 21;
+    private static final byte VERBATIM = 22;
+    private static final byte VERBATIM_END = 23;
+
+    /**
+     * The html written for each action, indexed by action.
+     */
+    private static final String[] HTML = {
+        null, "",
+        "<i><b>", "</b></i>", "<i>", "</i>",
+        "<code><b>", "</b></code>", "<code>", "</code>",
+        "<h1>", "<h2>", "<h3>", "<h4>",
+        "</h1>", "</h2>", "</h3>", "</h4>",
+        "<hr size=\"1\"/>",
+        "<a href=\"", "\">", "</a>",
+        "<pre>", "</pre>"
+    };
+
+    private static final String VERBATIM_TAG = "<verbatim>";
+    private static final String VERBATIM_END_TAG = "</verbatim>";
+
+    // kinds of link brackets
+    private static final int LINK_OPEN = 0;     // [[
+    private static final int LINK_MIDDLE = 1;   // ][
+    private static final int LINK_CLOSE = 2;    // ]]
+
+    /***************************************************
+     *  Instance variables
+     ***************************************************/
+
+    private final char[] text;
+    private final int length;
+
+    /**
+     * What to write for each character of the text.
+     */
+    private final byte[] actions;
+
+    /**
+     * Line terminators, ie. the characters a regex <code>.</code> does not
+     * match. The other position lists remember for each entry how many
+     * terminators precede it, which is what tells whether two pieces of
+     * markup are on the same line.
+     */
+    private final Positions terminators = new Positions();
+    private final Positions underscores = new Positions();
+    private final Positions equals = new Positions();
+    private final Positions dashes = new Positions();      // value: end of run
+    private final Positions headings = new Positions();    // value: number of +'s
+    private final Positions brackets = new Positions();    // value: LINK_xxx
+    private final Positions verbatims = new Positions();   // value: 1 for end tag
+
+    /**
+     * Line number of each terminator once the newlines eaten by headings
+     * have been joined away.
+     */
+    private int[] joinedLines;
+
+    /**
+     * Where {@link #nextLine} continues.
+     */
+    private int next = 0;
+
+    /***************************************************
+     *  Instance methods
+     ***************************************************/
+
+    WikiParser(CharSequence comment) {
+        length = comment.length();
+        text = new char[length];
+        if (comment instanceof String) {
+            ((String) comment).getChars(0, length, text, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                text[i] = comment.charAt(i);
+            }
+        }
+        actions = new byte[length];
+        scan();
+        resolveBoldItalics();
+        resolveItalics();
+        resolveHeadings();
+        resolveBoldFixedFonts();
+        resolveFixedFonts();
+        resolveHorizLines();
+        resolveLinks();
+        resolveVerbatims();
+    }
+
+    /**
+     * Writes the html of the next line, without its newline, into the
+     * buffer. Lines are separated by the newlines left over once headings
+     * and links have eaten theirs.
+     *
+     * @return false if there are no more lines.
+     */
+    boolean nextLine(StringBuilder line) {
+        if (next > length) {
+            return false;
+        }
+        line.setLength(0);
+        int start = next;
+        for (int i = next; i < length; i++) {
+            byte action = actions[i];
+            if (action == KEEP) {
+                if (text[i] == '\n') {
+                    line.append(text, start, i - start);
+                    next = i + 1;
+                    return true;
+                }
+                continue;
+            }
+            line.append(text, start, i - start);
+            line.append(HTML[action]);
+            start = i + 1;
+        }
+        line.append(text, start, length - start);
+        next = length + 1;
+        return true;
+    }
+
+    /**
+     * The one pass over the text.
+     */
+    private void scan() {
+        int lines = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text[i];
+            switch (c) {
+                case '\n':
+                case '\r':
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    terminators.add(i, lines++, c);
+                    break;
+                case '_':
+                    underscores.add(i, lines, 0);
+                    break;
+                case '=':
+                    equals.add(i, lines, 0);
+                    break;
+                case '-':
+                    int end = i + 1;
+                    while (end < length && text[end] == '-') {
+                        end++;
+                    }
+                    dashes.add(i, lines, end);
+                    if (end - i >= 3 && end < length && text[end] == '+') {
+                        int pluses = 1;
+                        while (end + pluses < length && text[end + pluses] == '+') {
+                            pluses++;
+                        }
+                        headings.add(end - 3, lines, pluses);
+                    }
+                    i = end - 1;
+                    break;
+                case '[':
+                    if (i + 1 < length && text[i + 1] == '[') {
+                        brackets.add(i, lines, LINK_OPEN);
+                    }
+                    break;
+                case ']':
+                    if (i + 1 < length && text[i + 1] == '[') {
+                        brackets.add(i, lines, LINK_MIDDLE);
+                    } else if (i + 1 < length && text[i + 1] == ']') {
+                        brackets.add(i, lines, LINK_CLOSE);
+                    }
+                    break;
+                case '<':
+                    if (startsWith(i, VERBATIM_TAG)) {
+                        verbatims.add(i, lines, 0);
+                    } else if (startsWith(i, VERBATIM_END_TAG)) {
+                        verbatims.add(i, lines, 1);
+                    }
+                    break;
+            }
+        }
+        terminators.add(length, lines, 0);
+    }
+
+    private boolean startsWith(int offset, String str) {
+        int len = str.length();
+        if (offset + len > length) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (text[offset + i] != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * __bold italic__
+     */
+    private void resolveBoldItalics() {
+        resolveDoubles(underscores, BOLD_ITALIC, null);
+    }
+
+    /**
+     * _italic_, among the underscores left over by the bold italics.
+     */
+    private void resolveItalics() {
+        resolveSingles(underscores, ITALIC, null, false);
+    }
+
+    /**
+     * ---+ heading, up to ---++++. The rule for each level runs over the
+     * whole text before the next one, from h4 to h1, and each heading eats
+     * the first newline still left after its marker. A marker inside the
+     * text of a heading is thus still found by a later level.
+     */
+    private void resolveHeadings() {
+        int lines = terminators.size;
+        // next newline not yet eaten, path compressed
+        int[] nextNewline = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            nextNewline[i] = terminators.value[i] == '\n' ? i : i + 1;
+        }
+        nextNewline[lines - 1] = lines - 1;
+        boolean[] eaten = new boolean[lines];
+
+        for (int level = 4; level >= 1 && headings.size > 0; level--) {
+            int from = 0;
+            for (int h = 0; h < headings.size; h++) {
+                int marker = headings.pos[h];
+                if (headings.value[h] < level || marker < from
+                        || actions[marker] != KEEP) {
+                    continue;
+                }
+                int newline = findNewline(nextNewline, headings.line[h]);
+                if (newline == lines - 1) {
+                    break;
+                }
+                int end = terminators.pos[newline];
+                int rest = marker + 3 + level;
+                if (end == rest) {
+                    continue;
+                }
+                if (text[rest] == ' ' && end - rest >= 2) {
+                    rest++;
+                }
+                actions[marker] = (byte) (HEADING + level - 1);
+                for (int i = marker + 1; i < rest; i++) {
+                    actions[i] = SKIP;
+                }
+                actions[end] = (byte) (HEADING_END + level - 1);
+                eaten[newline] = true;
+                nextNewline[newline] = newline + 1;
+                from = end + 1;
+            }
+        }
+
+        joinedLines = new int[lines];
+        int joined = 0;
+        for (int i = 0; i < lines; i++) {
+            joinedLines[i] = joined;
+            if (!eaten[i]) {
+                joined++;
+            }
+        }
+    }
+
+    private static int findNewline(int[] nextNewline, int line) {
+        int found = line;
+        while (nextNewline[found] != found) {
+            found = nextNewline[found];
+        }
+        while (nextNewline[line] != found) {
+            int following = nextNewline[line];
+            nextNewline[line] = found;
+            line = following;
+        }
+        return found;
+    }
+
+    /**
+     * ==bold fixed font==
+     */
+    private void resolveBoldFixedFonts() {
+        resolveDoubles(equals, BOLD_FIXED, joinedLines);
+    }
+
+    /**
+     * =fixed font=, among the equal signs left over by the bold fixed fonts.
+     * An equal sign followed by &gt;, &lt; or &quot; does not start one.
+     */
+    private void resolveFixedFonts() {
+        resolveSingles(equals, FIXED, joinedLines, true);
+    }
+
+    /**
+     * Four dashes or more, except the dashes of a heading marker.
+     */
+    private void resolveHorizLines() {
+        for (int d = 0; d < dashes.size; d++) {
+            int start = dashes.pos[d];
+            int end = dashes.value[d];
+            if (end - start >= 3 && actions[end - 3] != KEEP) {
+                end -= 3;
+            }
+            if (end - start >= 4) {
+                actions[start] = HORIZ_LINE;
+                for (int i = start + 1; i < end; i++) {
+                    actions[i] = SKIP;
+                }
+            }
+        }
+    }
+
+    /**
+     * [[href][label]], which also eats the line break following it.
+     */
+    private void resolveLinks() {
+        Positions b = brackets;
+        int k = 0;
+        while (k < b.size) {
+            if (b.value[k] != LINK_OPEN) {
+                k++;
+                continue;
+            }
+            int open = b.pos[k];
+            int line = joinedLines[b.line[k]];
+            int middle = find(b, k + 1, line, LINK_MIDDLE, open + 3);
+            int close = middle < 0 ? -1
+                : find(b, middle + 1, line, LINK_CLOSE, b.pos[middle] + 3);
+            if (close < 0) {
+                k = skipLine(b, k, line, joinedLines);
+                continue;
+            }
+            mark(open, LINK, 2);
+            mark(b.pos[middle], LINK_LABEL, 2);
+            mark(b.pos[close], LINK_END, 2);
+            int end = b.pos[close] + 2;
+            if (end < length && text[end] == '\r') {
+                actions[end++] = SKIP;
+            }
+            if (end < length && text[end] == '\n' && actions[end] == KEEP) {
+                actions[end++] = SKIP;
+            }
+            k = close + 1;
+            while (k < b.size && b.pos[k] < end) {
+                k++;
+            }
+        }
+    }
+
+    private int find(Positions b, int k, int line, int kind, int from) {
+        for (; k < b.size && joinedLines[b.line[k]] == line; k++) {
+            if (b.value[k] == kind && b.pos[k] >= from) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * &lt;verbatim&gt; and &lt;/verbatim&gt;
+     */
+    private void resolveVerbatims() {
+        for (int v = 0; v < verbatims.size; v++) {
+            if (verbatims.value[v] == 0) {
+                mark(verbatims.pos[v], VERBATIM, VERBATIM_TAG.length());
+            } else {
+                mark(verbatims.pos[v], VERBATIM_END, VERBATIM_END_TAG.length());
+            }
+        }
+    }
+
+    /**
+     * Pairs a doubled delimiter with the next doubled one on the same line,
+     * with at least one character in between.
+     */
+    private void resolveDoubles(Positions p, byte action, int[] lines) {
+        int k = 0;
+        while (k + 1 < p.size) {
+            if (p.pos[k + 1] != p.pos[k] + 1) {
+                k++;
+                continue;
+            }
+            int open = p.pos[k];
+            int line = line(p, k, lines);
+            int close = -1;
+            for (int c = k + 2; c + 1 < p.size && line(p, c, lines) == line; c++) {
+                if (p.pos[c] >= open + 3 && p.pos[c + 1] == p.pos[c] + 1) {
+                    close = c;
+                    break;
+                }
+            }
+            if (close < 0) {
+                k = skipLine(p, k, line, lines);
+                continue;
+            }
+            mark(open, action, 2);
+            mark(p.pos[close], (byte) (action + 1), 2);
+            k = close + 2;
+        }
+    }
+
+    /**
+     * Pairs a delimiter not used up yet with the next one on the same line,
+     * with at least one character in between.
+     */
+    private void resolveSingles(Positions p, byte action, int[] lines,
+            boolean lookahead) {
+        int k = 0;
+        while (k < p.size) {
+            int open = p.pos[k];
+            if (actions[open] != KEEP || (lookahead && !startsSpan(open))) {
+                k++;
+                continue;
+            }
+            int line = line(p, k, lines);
+            int close = -1;
+            for (int c = k + 1; c < p.size && line(p, c, lines) == line; c++) {
+                if (p.pos[c] >= open + 2 && actions[p.pos[c]] == KEEP) {
+                    close = c;
+                    break;
+                }
+            }
+            if (close < 0) {
+                k = skipLine(p, k, line, lines);
+                continue;
+            }
+            actions[open] = action;
+            actions[p.pos[close]] = (byte) (action + 1);
+            k = close + 1;
+        }
+    }
+
+    /**
+     * The (?![&gt;&lt;"]) of the fixed font rule. Whatever the earlier rules
+     * wrote at the next character is a tag, so it starts with &lt;.
+     */
+    private boolean startsSpan(int open) {
+        if (open + 1 == length) {
+            return true;
+        }
+        char c = text[open + 1];
+        return actions[open + 1] == KEEP && c != '>' && c != '<' && c != '"';
+    }
+
+    private static int line(Positions p, int k, int[] lines) {
+        return lines == null ? p.line[k] : lines[p.line[k]];
+    }
+
+    /**
+     * When a delimiter finds no partner, no later one on its line will.
+     */
+    private static int skipLine(Positions p, int k, int line, int[] lines) {
+        while (k < p.size && line(p, k, lines) == line) {
+            k++;
+        }
+        return k;
+    }
+
+    private void mark(int pos, byte action, int len) {
+        actions[pos] = action;
+        for (int i = 1; i < len; i++) {
+            actions[pos + i] = SKIP;
+        }
+    }
+
+    /**
+     * A growable list of positions in the text, with the number of line
+     * terminators preceding each and one extra value.
+     */
+    private static final class Positions {
+        int[] pos = new int[8];
+        int[] line = new int[8];
+        int[] value = new int[8];
+        int size = 0;
+
+        void add(int p, int l, int v) {
+            if (size == pos.length) {
+                pos = grow(pos);
+                line = grow(line);
+                value = grow(value);
+            }
+            pos[size] = p;
+            line[size] = l;
+            value[size] = v;
+            size++;
+        }
+
+        private static int[] grow(int[] a) {
+            int[] b = new int[a.length * 2];
+            System.arraycopy(a, 0, b, 0, a.length);
+            return b;
+        }
+    }
+}
@@ -45,7 +45,7 @@ public class AnnotationTypeWriterImpl extends SubWriterHolderWriter
               annotationType.name() + ".html",
               DirectoryManager.getRelativePath(annotationType.containingPackage().name()));
         this.annotationType = annotationType;
-        configuration.currentcd = annotationType.asClassDoc();
+        configuration.setCurrentClass(annotationType.asClassDoc());
         this.prev = prevType;
         this.next = nextType;
     }
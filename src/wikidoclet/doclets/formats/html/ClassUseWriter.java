@@ -63,30 +63,31 @@ public class ClassUseWriter extends SubWriterHolderWriter {
         super(configuration, path, filename, relpath);
         this.classdoc = classdoc;
         if (mapper.classToPackageAnnotations.containsKey(classdoc.qualifiedName()))
-        	pkgToPackageAnnotations = new HashSet((List) mapper.classToPackageAnnotations.get(classdoc.qualifiedName()));
-        configuration.currentcd = classdoc;
-        this.pkgSet = new TreeSet();
-        this.pkgToClassTypeParameter = pkgDivide(mapper.classToClassTypeParam);
-        this.pkgToClassAnnotations = pkgDivide(mapper.classToClassAnnotations);
-        this.pkgToMethodTypeParameter = pkgDivide(mapper.classToExecMemberDocTypeParam);
-        this.pkgToMethodArgTypeParameter = pkgDivide(mapper.classToExecMemberDocArgTypeParam);
-        this.pkgToFieldTypeParameter = pkgDivide(mapper.classToFieldDocTypeParam);
-        this.pkgToFieldAnnotations = pkgDivide(mapper.annotationToFieldDoc);
-        this.pkgToMethodReturnTypeParameter = pkgDivide(mapper.classToExecMemberDocReturnTypeParam);
-        this.pkgToMethodAnnotations = pkgDivide(mapper.classToExecMemberDocAnnotations);
-        this.pkgToMethodParameterAnnotations = pkgDivide(mapper.classToExecMemberDocParamAnnotation);
-        this.pkgToSubclass = pkgDivide(mapper.classToSubclass);
-        this.pkgToSubinterface = pkgDivide(mapper.classToSubinterface);
-        this.pkgToImplementingClass = pkgDivide(mapper.classToImplementingClass);
-        this.pkgToField = pkgDivide(mapper.classToField);
-        this.pkgToMethodReturn = pkgDivide(mapper.classToMethodReturn);
-        this.pkgToMethodArgs = pkgDivide(mapper.classToMethodArgs);
-        this.pkgToMethodThrows = pkgDivide(mapper.classToMethodThrows);
-        this.pkgToConstructorAnnotations = pkgDivide(mapper.classToConstructorAnnotations);
-        this.pkgToConstructorParameterAnnotations = pkgDivide(mapper.classToConstructorParamAnnotation);
-        this.pkgToConstructorArgs = pkgDivide(mapper.classToConstructorArgs);
-        this.pkgToConstructorArgTypeParameter = pkgDivide(mapper.classToConstructorDocArgTypeParam);
-        this.pkgToConstructorThrows = pkgDivide(mapper.classToConstructorThrows);
+        	pkgToPackageAnnotations = new TreeSet((List) mapper.classToPackageAnnotations.get(classdoc.qualifiedName()));
+        configuration.setCurrentClass(classdoc);
+        ClassUseMapper.ClassUse uses = mapper.getClassUse(classdoc);
+        this.pkgSet = uses.getPackages();
+        this.pkgToClassTypeParameter = uses.getUses(mapper.classToClassTypeParam);
+        this.pkgToClassAnnotations = uses.getUses(mapper.classToClassAnnotations);
+        this.pkgToMethodTypeParameter = uses.getUses(mapper.classToExecMemberDocTypeParam);
+        this.pkgToMethodArgTypeParameter = uses.getUses(mapper.classToExecMemberDocArgTypeParam);
+        this.pkgToFieldTypeParameter = uses.getUses(mapper.classToFieldDocTypeParam);
+        this.pkgToFieldAnnotations = uses.getUses(mapper.annotationToFieldDoc);
+        this.pkgToMethodReturnTypeParameter = uses.getUses(mapper.classToExecMemberDocReturnTypeParam);
+        this.pkgToMethodAnnotations = uses.getUses(mapper.classToExecMemberDocAnnotations);
+        this.pkgToMethodParameterAnnotations = uses.getUses(mapper.classToExecMemberDocParamAnnotation);
+        this.pkgToSubclass = uses.getUses(mapper.classToSubclass);
+        this.pkgToSubinterface = uses.getUses(mapper.classToSubinterface);
+        this.pkgToImplementingClass = uses.getUses(mapper.classToImplementingClass);
+        this.pkgToField = uses.getUses(mapper.classToField);
+        this.pkgToMethodReturn = uses.getUses(mapper.classToMethodReturn);
+        this.pkgToMethodArgs = uses.getUses(mapper.classToMethodArgs);
+        this.pkgToMethodThrows = uses.getUses(mapper.classToMethodThrows);
+        this.pkgToConstructorAnnotations = uses.getUses(mapper.classToConstructorAnnotations);
+        this.pkgToConstructorParameterAnnotations = uses.getUses(mapper.classToConstructorParamAnnotation);
+        this.pkgToConstructorArgs = uses.getUses(mapper.classToConstructorArgs);
+        this.pkgToConstructorArgTypeParameter = uses.getUses(mapper.classToConstructorDocArgTypeParam);
+        this.pkgToConstructorThrows = uses.getUses(mapper.classToConstructorThrows);
         //tmp test
         if (pkgSet.size() > 0 &&
             mapper.classToPackage.containsKey(classdoc.qualifiedName()) &&
@@ -106,7 +107,8 @@ public class ClassUseWriter extends SubWriterHolderWriter {
      */
     public static void generate(ConfigurationImpl configuration,
                                 ClassTree classtree)  {
-        ClassUseMapper mapper = new ClassUseMapper(configuration.root, classtree);
+        ClassUseMapper mapper = new ClassUseMapper(configuration.root,
+            classtree, configuration.threads);
         ClassDoc[] classes = configuration.root.classes();
         for (int i = 0; i < classes.length; i++) {
             ClassUseWriter.generate(configuration, mapper, classes[i]);
@@ -115,27 +117,7 @@ public class ClassUseWriter extends SubWriterHolderWriter {
         for (int i = 0; i < pkgs.length; i++) {
             PackageUseWriter.generate(configuration, mapper, pkgs[i]);
         }
-    }
-
-    private Map pkgDivide(Map classMap) {
-        Map map = new HashMap();
-        List list= (List)classMap.get(classdoc.qualifiedName());
-        if (list != null) {
-            Collections.sort(list);
-            Iterator it = list.iterator();
-            while (it.hasNext()) {
-                ProgramElementDoc doc = (ProgramElementDoc)it.next();
-                PackageDoc pkg = doc.containingPackage();
-                pkgSet.add(pkg);
-                List inPkg = (List)map.get(pkg.name());
-                if (inPkg == null) {
-                    inPkg = new ArrayList();
-                    map.put(pkg.name(), inPkg);
-                }
-                inPkg.add(doc);
-            }
-        }
-        return map;
+        configuration.sampleHeap();
     }
 
     /**
@@ -51,7 +51,7 @@ public class ClassWriterImpl extends SubWriterHolderWriter
               classDoc.name() + ".html",
               DirectoryManager.getRelativePath(classDoc.containingPackage().name()));
         this.classDoc = classDoc;
-        configuration.currentcd = classDoc;
+        configuration.setCurrentClass(classDoc);
         this.classtree = classTree;
         this.prev = prevClass;
         this.next = nextClass;
@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.formats.html;
+
+import com.sun.javadoc.*;
+import java.util.*;
+
+/**
+ * Cache of comments that were already converted to HTML by
+ * {@link HtmlDocletWriter#commentTagsToString}.  The same comment is
+ * rendered on the class page, the package summary, the index, the class-use
+ * pages and the deprecated list, so the expanded and formatted text is kept
+ * and reused for the same doc, tag array and first sentence flag.
+ * <p>
+ * A comment that consists of plain text only, without links and without
+ * {&#064;docRoot}, renders the same everywhere and is cached once.  Any other
+ * comment is cached together with the state of the writer that the result
+ * depends on: the relative path of the page, its file name, whether relative
+ * links are redirected and the class being documented.
+ * <p>
+ * The cache holds at most a fixed number of entries, and optionally a
+ * fixed number of bytes, and evicts the least recently used one first.  It
+ * may be shared by threads generating pages in parallel.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+public class CommentCache {
+
+    /**
+     * The default maximum number of cached comments.
+     */
+    public static final int DEFAULT_SIZE = 4096;
+
+    /**
+     * The estimated number of bytes taken by an entry besides the characters
+     * of the formatted comment: the key, the entry and the string object.
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    /**
+     * The cached entries, in access order.
+     */
+    private final Map entries = new LinkedHashMap(16, 0.75f, true);
+
+    private final int maxSize;
+
+    private final long maxBytes;
+
+    /**
+     * The estimated number of bytes taken by the cached entries.
+     */
+    private long bytes = 0;
+
+    private int hits = 0;
+
+    private int misses = 0;
+
+    /**
+     * Construct a new cache.
+     *
+     * @param maxSize the maximum number of comments to keep.
+     */
+    public CommentCache(int maxSize) {
+        this(maxSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * Construct a new cache that also keeps the estimated size of the
+     * comments within a budget.
+     *
+     * @param maxSize  the maximum number of comments to keep.
+     * @param maxBytes the maximum number of bytes the comments may take.
+     */
+    public CommentCache(int maxSize, long maxBytes) {
+        this.maxSize = maxSize;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Return the cached rendering for the given key, or null if there is none.
+     * Every lookup is counted as a hit or a miss.
+     *
+     * @param key the key built by {@link #key}.
+     */
+    public synchronized Entry get(Key key) {
+        Entry entry = (Entry) entries.get(key);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * Store the rendering of a comment.
+     *
+     * @param key           the key built by {@link #key}.
+     * @param html          the formatted comment.
+     * @param displayLength the amount by which the rendering advanced
+     *                      {@link HtmlDocletWriter#displayLength}.
+     */
+    public synchronized void put(Key key, String html, int displayLength) {
+        Entry entry = new Entry(html, displayLength);
+        Entry old = (Entry) entries.put(key, entry);
+        bytes += entry.getBytes();
+        if (old != null) {
+            bytes -= old.getBytes();
+        }
+        Iterator iter = entries.values().iterator();
+        while ((entries.size() > maxSize || bytes > maxBytes) &&
+                iter.hasNext()) {
+            bytes -= ((Entry) iter.next()).getBytes();
+            iter.remove();
+        }
+    }
+
+    /**
+     * Return the number of lookups that found a cached rendering.
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of lookups that had to render the comment.
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Return the number of comments currently cached.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Return the estimated number of bytes taken by the cached comments.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Build the key of a comment rendered by the given writer.
+     *
+     * @param writer the writer rendering the comment.
+     * @param doc    the doc holding the comment.
+     * @param tags   the tags of the comment.
+     * @param isFirstSentence true if only the first sentence is rendered.
+     * @param redirectLinks true if the writer redirects relative links.
+     */
+    public static Key key(HtmlDocletWriter writer, Doc doc, Tag[] tags,
+            boolean isFirstSentence, boolean redirectLinks) {
+        if (isPlainText(tags)) {
+            return new Key(doc, tags, isFirstSentence, null, null, null,
+                false, null, null);
+        }
+        ConfigurationImpl configuration = writer.configuration;
+        return new Key(doc, tags, isFirstSentence, writer.relativePath,
+            writer.relativepathNoSlash, writer.filename, redirectLinks,
+            configuration.getCurrentClass(),
+            writer instanceof ClassWriterImpl ?
+                ((ClassWriterImpl) writer).getClassDoc() : null);
+    }
+
+    /**
+     * Return true if the tags are text tags only and the rendered text can
+     * not depend on the page it is written to, that is, it contains neither
+     * an anchor that could be redirected nor a {&#064;docRoot} to replace.
+     */
+    private static boolean isPlainText(Tag[] tags) {
+        for (int i = 0; i < tags.length; i++) {
+            if (! tags[i].name().equals("Text")) {
+                return false;
+            }
+            String text = tags[i].text();
+            if (indexOfIgnoreCase(text, "<a") >= 0 ||
+                    indexOfIgnoreCase(text, "{@docroot}") >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find a lower case ASCII string in text, ignoring the case of text.
+     */
+    private static int indexOfIgnoreCase(String text, String lower) {
+        int last = text.length() - lower.length();
+        char first = lower.charAt(0);
+        for (int i = 0; i <= last; i++) {
+            if (Character.toLowerCase(text.charAt(i)) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < lower.length() &&
+                    Character.toLowerCase(text.charAt(i + j)) == lower.charAt(j)) {
+                j++;
+            }
+            if (j == lower.length()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A cached rendering.
+     */
+    public static class Entry {
+
+        /**
+         * The formatted comment.
+         */
+        public final String html;
+
+        /**
+         * The display length added by the links in the comment.
+         */
+        public final int displayLength;
+
+        Entry(String html, int displayLength) {
+            this.html = html;
+            this.displayLength = displayLength;
+        }
+
+        long getBytes() {
+            return ENTRY_OVERHEAD + 2L * html.length();
+        }
+    }
+
+    /**
+     * The identity of a rendering.  Docs, tag arrays and classes are
+     * compared by identity, the paths by value.
+     */
+    public static class Key {
+
+        private final Doc doc;
+        private final Tag[] tags;
+        private final boolean isFirstSentence;
+        private final String relativePath;
+        private final String relativepathNoSlash;
+        private final String filename;
+        private final boolean redirectLinks;
+        private final ClassDoc currentcd;
+        private final ClassDoc classDoc;
+        private final int hash;
+
+        Key(Doc doc, Tag[] tags, boolean isFirstSentence,
+                String relativePath, String relativepathNoSlash,
+                String filename, boolean redirectLinks,
+                ClassDoc currentcd, ClassDoc classDoc) {
+            this.doc = doc;
+            this.tags = tags;
+            this.isFirstSentence = isFirstSentence;
+            this.relativePath = relativePath;
+            this.relativepathNoSlash = relativepathNoSlash;
+            this.filename = filename;
+            this.redirectLinks = redirectLinks;
+            this.currentcd = currentcd;
+            this.classDoc = classDoc;
+            int h = System.identityHashCode(doc);
+            h = 31 * h + System.identityHashCode(tags);
+            h = 31 * h + (isFirstSentence ? 1 : 0);
+            h = 31 * h + (relativePath == null ? 0 : relativePath.hashCode());
+            h = 31 * h + (filename == null ? 0 : filename.hashCode());
+            hash = h;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            if (! (obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return doc == other.doc &&
+                tags == other.tags &&
+                isFirstSentence == other.isFirstSentence &&
+                redirectLinks == other.redirectLinks &&
+                currentcd == other.currentcd &&
+                classDoc == other.classDoc &&
+                equal(relativePath, other.relativePath) &&
+                equal(relativepathNoSlash, other.relativepathNoSlash) &&
+                equal(filename, other.filename);
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import wikidoclet.doclets.internal.toolkit.util.*;
 
 import com.sun.javadoc.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 
 /**
@@ -157,10 +158,25 @@ public class ConfigurationImpl extends Configuration {
     public String topFile = "";
 
     /**
-     * The classdoc for the class file getting generated.
+     * The classdoc for the class file getting generated.  Each thread
+     * generating class files has its own.
      */
-    public ClassDoc currentcd = null;  // Set this classdoc in the
-    // ClassWriter.
+    private final ThreadLocal currentcd = new ThreadLocal();  // Set this
+    // classdoc in the ClassWriter.
+
+    /**
+     * The comments already converted to HTML.  A new cache is created for
+     * every run by {@link #setSpecificDocletOptions}.
+     */
+    public CommentCache commentCache =
+        new CommentCache(CommentCache.DEFAULT_SIZE);
+
+    /**
+     * The tool tips of the links to classes, keyed by the kind of class and
+     * its package, or by the name of a type parameter.  A new map is
+     * created for every run by {@link #setSpecificDocletOptions}.
+     */
+    public Map classToolTips = new ConcurrentHashMap();
 
     /**
      * Constructor. Initialises resource for the
@@ -175,6 +191,24 @@ public class ConfigurationImpl extends Configuration {
         return instance;
     }
 
+    /**
+     * Return the classdoc for the class file getting generated by the
+     * current thread.
+     */
+    public ClassDoc getCurrentClass() {
+        return (ClassDoc) currentcd.get();
+    }
+
+    /**
+     * Set the classdoc for the class file getting generated by the
+     * current thread.
+     *
+     * @param cd the class being documented.
+     */
+    public void setCurrentClass(ClassDoc cd) {
+        currentcd.set(cd);
+    }
+
     /**
      * Return the build date for the doclet.
      */
@@ -247,6 +281,13 @@ public class ConfigurationImpl extends Configuration {
         }
         setCreateOverview();
         setTopFile(root);
+        // In low memory mode the rendered comments may take a small share
+        // of the heap only.
+        commentCache = lowmemory ?
+            new CommentCache(CommentCache.DEFAULT_SIZE,
+                Runtime.getRuntime().maxMemory() / 64) :
+            new CommentCache(CommentCache.DEFAULT_SIZE);
+        classToolTips = new ConcurrentHashMap();
     }
 
     /**
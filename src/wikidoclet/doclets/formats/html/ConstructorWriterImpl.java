@@ -35,8 +35,9 @@ public class ConstructorWriterImpl extends AbstractExecutableMemberWriter
     public ConstructorWriterImpl(SubWriterHolderWriter writer,
             ClassDoc classDoc) {
         super(writer, classDoc);
-        VisibleMemberMap visibleMemberMap = new VisibleMemberMap(classDoc,
-            VisibleMemberMap.CONSTRUCTORS, configuration().nodeprecated);
+        VisibleMemberMap visibleMemberMap =
+            configuration().visibleMemberCache.getVisibleMemberMap(classDoc,
+                VisibleMemberMap.CONSTRUCTORS, configuration().nodeprecated);
         List constructors = new ArrayList(visibleMemberMap.getMembersFor(classDoc));
         for (int i = 0; i < constructors.size(); i++) {
             if (((ProgramElementDoc)(constructors.get(i))).isProtected() ||
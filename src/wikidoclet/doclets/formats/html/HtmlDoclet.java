@@ -12,6 +12,7 @@ import wikidoclet.doclets.internal.toolkit.util.*;
 
 import com.sun.javadoc.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 
 /**
@@ -64,6 +65,10 @@ public class HtmlDoclet extends AbstractDoclet {
     protected void generateOtherFiles(RootDoc root, ClassTree classtree)
             throws Exception {
         super.generateOtherFiles(root, classtree);
+        if (configuration.lowmemory) {
+            // The constant summary was the last page to read the catalog.
+            configuration.classDocCatalog = null;
+        }
         if (configuration.linksource) {
             if (configuration.destDirName.length() > 0) {
                 SourceToHTMLConverter.convertRoot(configuration,
@@ -91,11 +96,16 @@ public class HtmlDoclet extends AbstractDoclet {
         if (configuration.classuse) {
             ClassUseWriter.generate(configuration, classtree);
         }
-        IndexBuilder indexbuilder = new IndexBuilder(configuration, nodeprecated);
-
         if (configuration.createtree) {
             TreeWriter.generate(configuration, classtree);
         }
+        configuration.sampleHeap();
+        classtree.clear();
+        if (configuration.lowmemory) {
+            configuration.resetCaches();
+        }
+        IndexBuilder indexbuilder = new IndexBuilder(configuration, nodeprecated);
+
         if (configuration.createindex) {
             if (configuration.splitindex) {
                 SplitIndexWriter.generate(configuration, indexbuilder);
@@ -103,13 +113,19 @@ public class HtmlDoclet extends AbstractDoclet {
                 SingleIndexWriter.generate(configuration, indexbuilder);
             }
         }
+        configuration.sampleHeap();
+        if (configuration.lowmemory) {
+            // Only the classes of the index are needed from now on.
+            indexbuilder = indexbuilder.getClassesIndex(configuration);
+        }
 
         if (!(configuration.nodeprecatedlist || nodeprecated)) {
             DeprecatedListWriter.generate(configuration);
         }
 
         AllClassesFrameWriter.generate(configuration,
-            new IndexBuilder(configuration, nodeprecated, true));
+            indexbuilder.getClassesIndex(configuration));
+        indexbuilder = null;
 
         FrameOutputWriter.generate(configuration);
 
@@ -123,6 +139,12 @@ public class HtmlDoclet extends AbstractDoclet {
         if (configuration.stylesheetfile.length() == 0) {
             StylesheetWriter.generate(configuration);
         }
+        if (configuration.stats) {
+            configuration.root.printNotice(configuration.getText(
+                "doclet.Comment_Cache_Report",
+                String.valueOf(configuration.commentCache.getHits()),
+                String.valueOf(configuration.commentCache.getMisses())));
+        }
     }
 
     /**
@@ -130,34 +152,97 @@ public class HtmlDoclet extends AbstractDoclet {
      */
     protected void generateClassFiles(ClassDoc[] arr, ClassTree classtree) {
         Arrays.sort(arr);
+        if (configuration.threads > 1) {
+            generateClassFilesInParallel(arr, classtree);
+            return;
+        }
+        for(int i = 0; i < arr.length; i++) {
+            if (!(configuration.isGeneratedDoc(arr[i]) && arr[i].isIncluded())) {
+                continue;
+            }
+            generateClassFile(arr, i, classtree);
+        }
+    }
+
+    /**
+     * Generate the class files on a pool of <code>configuration.threads</code>
+     * threads, one task per class.  The output is the same as when the
+     * files are generated one after another.
+     *
+     * @param arr       the sorted array of classes.
+     * @param classtree the data structure representing the class tree.
+     */
+    private void generateClassFilesInParallel(final ClassDoc[] arr,
+            final ClassTree classtree) {
+        // Set up the state that is otherwise created lazily by the first
+        // class, before the threads start sharing it.
+        configuration.getBuilderFactory();
+        configuration.tagletManager.getInlineCustomTags();
+        List tasks = new ArrayList();
+        ClassDoc last = null;
         for(int i = 0; i < arr.length; i++) {
             if (!(configuration.isGeneratedDoc(arr[i]) && arr[i].isIncluded())) {
                 continue;
             }
-            ClassDoc prev = (i == 0)?
-                null:
-                arr[i-1];
-            ClassDoc curr = arr[i];
-            ClassDoc next = (i+1 == arr.length)?
-                null:
-                arr[i+1];
-            try {
-                if (curr.isAnnotationType()) {
-                    AbstractBuilder annotationTypeBuilder =
-                        configuration.getBuilderFactory()
-                            .getAnnotationTypeBuilder((AnnotationTypeDoc) curr,
-                                prev, next);
-                    annotationTypeBuilder.build();
-                } else {
-                    AbstractBuilder classBuilder =
-                        configuration.getBuilderFactory()
-                            .getClassBuilder(curr, prev, next, classtree);
-                    classBuilder.build();
+            final int index = i;
+            tasks.add(new Callable() {
+                public Object call() {
+                    generateClassFile(arr, index, classtree);
+                    return null;
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
-                throw new DocletAbortException();
+            });
+            last = arr[i];
+        }
+        Util.invokeAll(tasks, configuration.threads);
+        // The pages generated next see the class of the last class page,
+        // as they do after the sequential loop.
+        configuration.setCurrentClass(last);
+    }
+
+    /**
+     * Generate the class file for the class at the given index, linking it
+     * to its neighbours in the sorted array.
+     *
+     * @param arr       the sorted array of classes.
+     * @param i         the index of the class to document.
+     * @param classtree the data structure representing the class tree.
+     */
+    private void generateClassFile(ClassDoc[] arr, int i, ClassTree classtree) {
+        ClassDoc prev = (i == 0)?
+            null:
+            arr[i-1];
+        ClassDoc curr = arr[i];
+        ClassDoc next = (i+1 == arr.length)?
+            null:
+            arr[i+1];
+        if (configuration.manifest != null &&
+                configuration.manifest.isUpToDate(curr, prev, next)) {
+            // The pages generated next see this class and the comments
+            // of its enum methods, as if its page had been written, and
+            // the doc files are copied as they would be with the page.
+            if (curr.isEnum()) {
+                Util.setEnumDocumentation(configuration, curr);
+            }
+            configuration.setCurrentClass(curr);
+            AbstractBuilder.copyDocFiles(configuration, curr);
+            return;
+        }
+        try {
+            if (curr.isAnnotationType()) {
+                AbstractBuilder annotationTypeBuilder =
+                    configuration.getBuilderFactory()
+                        .getAnnotationTypeBuilder((AnnotationTypeDoc) curr,
+                            prev, next);
+                annotationTypeBuilder.build();
+            } else {
+                AbstractBuilder classBuilder =
+                    configuration.getBuilderFactory()
+                        .getClassBuilder(curr, prev, next, classtree);
+                classBuilder.build();
             }
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new DocletAbortException();
         }
     }
 
@@ -171,12 +256,23 @@ public class HtmlDoclet extends AbstractDoclet {
         }
         PackageDoc prev = null, next;
         for(int i = 0; i < packages.length; i++) {
-            PackageFrameWriter.generate(configuration, packages[i]);
             next = (i + 1 < packages.length && packages[i+1].name().length() > 0) ?
                 packages[i+1] : null;
             //If the next package is unnamed package, skip 2 ahead if possible
             next = (i + 2 < packages.length && next == null) ?
                 packages[i+2]: next;
+            if (configuration.manifest != null &&
+                    configuration.manifest.isUpToDate(packages[i], prev, next,
+                        getPackageFiles())) {
+                Util.copyDocFiles(configuration,
+                    Util.getPackageSourcePath(configuration, packages[i]),
+                    DirectoryManager.getDirectoryPath(packages[i])
+                        + File.separator + DocletConstants.DOC_FILES_DIR_NAME,
+                    true);
+                prev = packages[i];
+                continue;
+            }
+            PackageFrameWriter.generate(configuration, packages[i]);
             AbstractBuilder packageSummaryBuilder = configuration.
                 getBuilderFactory().getPackageSummaryBuilder(
                 packages[i], prev, next);
@@ -190,6 +286,17 @@ public class HtmlDoclet extends AbstractDoclet {
         }
     }
 
+    /**
+     * Return the names of the pages generated for each package.
+     */
+    private String[] getPackageFiles() {
+        return configuration.createtree ?
+            new String[] {PackageFrameWriter.OUTPUT_FILE_NAME,
+                PackageWriterImpl.OUTPUT_FILE_NAME, "package-tree.html"} :
+            new String[] {PackageFrameWriter.OUTPUT_FILE_NAME,
+                PackageWriterImpl.OUTPUT_FILE_NAME};
+    }
+
     /**
      * Check for doclet added options here.
      *
@@ -65,6 +65,12 @@ public class HtmlDocletWriter extends HtmlDocWriter {
      */
     public int displayLength = 0;
 
+    /**
+     * The links to classes already rendered on this page, keyed by
+     * everything the link depends on, see {@link LinkFactoryImpl}.
+     */
+    final Map classLinks = new HashMap();
+
     /**
      * The global configuration information for this run.
      */
@@ -122,40 +128,7 @@ public class HtmlDocletWriter extends HtmlDocWriter {
      * to prevent the inline tag from being interpreted.
      */
     public String replaceDocRootDir(String htmlstr) {
-        // Return if no inline tags exist
-        int index = htmlstr.indexOf("{@");
-        if (index < 0) {
-            return htmlstr;
-        }
-        String lowerHtml = htmlstr.toLowerCase();
-        // Return index of first occurrence of {@docroot}
-        // Note: {@docRoot} is not case sensitive when passed in w/command line option
-        index = lowerHtml.indexOf("{@docroot}", index);
-        if (index < 0) {
-            return htmlstr;
-        }
-        StringBuffer buf = new StringBuffer();
-        int previndex = 0;
-        while (true) {
-            // Search for lowercase version of {@docRoot}
-            index = lowerHtml.indexOf("{@docroot}", previndex);
-            // If next {@docRoot} tag not found, append rest of htmlstr and exit loop
-            if (index < 0) {
-                buf.append(htmlstr.substring(previndex));
-                break;
-            }
-            // If next {@docroot} tag found, append htmlstr up to start of tag
-            buf.append(htmlstr.substring(previndex, index));
-            previndex = index + 10;  // length for {@docroot} string
-            // Insert relative path where {@docRoot} was located
-            buf.append(relativepathNoSlash);
-            // Append slash if next character is not a slash
-            if (relativepathNoSlash.length() > 0 && previndex < htmlstr.length()
-                    && htmlstr.charAt(previndex) != '/') {
-                buf.append(DirectoryManager.URL_FILE_SEPERATOR);
-            }
-        }
-        return buf.toString();
+        return rewriteLinks(null, htmlstr, null);
     }
 
     /**
@@ -1077,31 +1050,26 @@ public class HtmlDocletWriter extends HtmlDocWriter {
     public String getCrossClassLink(String qualifiedClassName, String refMemName,
                                     String label, boolean bold, String style,
                                     boolean code) {
-        String className = "",
-            packageName = qualifiedClassName == null ? "" : qualifiedClassName;
-        int periodIndex;
-        while((periodIndex = packageName.lastIndexOf('.')) != -1) {
-            className = packageName.substring(periodIndex + 1, packageName.length()) +
-                (className.length() > 0 ? "." + className : "");
-            String defaultLabel = code ? getCode() + className + getCodeEnd() : className;
-            packageName = packageName.substring(0, periodIndex);
-            if (getCrossPackageLink(packageName) != null) {
-                //The package exists in external documentation, so link to the external
-                //class (assuming that it exists).  This is definitely a limitation of
-                //the -link option.  There are ways to determine if an external package
-                //exists, but no way to determine if the external class exists.  We just
-                //have to assume that it does.
-                return getHyperLink(
-                    configuration.extern.getExternalLink(packageName, relativePath,
-                    		className + ".html?is-external=true"),
-                    refMemName == null ? "" : refMemName,
-                    label == null || label.length() == 0 ? defaultLabel : label,
-                    bold, style,
-                    configuration.getText("doclet.Href_Class_Or_Interface_Title", packageName),
-                    "");
-            }
+        String packageName =
+            configuration.extern.findExternalPackage(qualifiedClassName);
+        if (packageName == null) {
+            return null;
         }
-        return null;
+        //The package exists in external documentation, so link to the external
+        //class (assuming that it exists).  This is definitely a limitation of
+        //the -link option.  There are ways to determine if an external package
+        //exists, but no way to determine if the external class exists.  We just
+        //have to assume that it does.
+        String className = qualifiedClassName.substring(packageName.length() + 1);
+        String defaultLabel = code ? getCode() + className + getCodeEnd() : className;
+        return getHyperLink(
+            configuration.extern.getExternalLink(packageName, relativePath,
+            		className + ".html?is-external=true"),
+            refMemName == null ? "" : refMemName,
+            label == null || label.length() == 0 ? defaultLabel : label,
+            bold, style,
+            configuration.getText("doclet.Href_Class_Or_Interface_Title", packageName),
+            "");
     }
 
     public boolean isClassLinkable(ClassDoc cd) {
@@ -1353,7 +1321,7 @@ public class HtmlDocletWriter extends HtmlDocWriter {
                 // inherits it automatically.
                 containing = ((ClassWriterImpl) this).getClassDoc();
             }
-            if (configuration.currentcd != containing) {
+            if (configuration.getCurrentClass() != containing) {
                 refMemName = containing.name() + "." + refMemName;
             }
             if (refMem instanceof ExecutableMemberDoc) {
@@ -1434,6 +1402,33 @@ public class HtmlDocletWriter extends HtmlDocWriter {
      */
     public String commentTagsToString(Tag holderTag, Doc doc, Tag[] tags,
             boolean isFirstSentence) {
+        if (holderTag != null || doc == null) {
+            return renderCommentTags(holderTag, doc, tags, isFirstSentence);
+        }
+        CommentCache cache = configuration.commentCache;
+        CommentCache.Key key = CommentCache.key(this, doc, tags,
+            isFirstSentence, ! shouldNotRedirectRelativeLinks());
+        CommentCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            displayLength += entry.displayLength;
+            return entry.html;
+        }
+        // A rendering that reported a warning is cached as well; the
+        // warning would only be dropped as a duplicate when the comment is
+        // rendered again.
+        int startLength = displayLength;
+        String html = renderCommentTags(null, doc, tags, isFirstSentence);
+        cache.put(key, html, displayLength - startLength);
+        return html;
+    }
+
+    /**
+     * Expand the inline tags and format the text of a comment.
+     *
+     * @see #commentTagsToString(Tag, Doc, Tag[], boolean)
+     */
+    private String renderCommentTags(Tag holderTag, Doc doc, Tag[] tags,
+            boolean isFirstSentence) {
         StringBuffer result = new StringBuffer();
         // Array of all possible inline tags for this javadoc run
         configuration.tagletManager.checkTags(doc, tags, true);
@@ -1456,14 +1451,14 @@ public class HtmlDocletWriter extends HtmlDocWriter {
             } else {
                 //This is just a regular text tag.  The text may contain html links (<a>)
                 //or inline tag {@docRoot}, which will be handled as special cases.
-                String text = redirectRelativeLinks(tagelem.holder(), tagelem.text());
-
+                //Both are rewritten in one pass by redirectRelativeLinks.
+                //
                 // Replace @docRoot only if not represented by an instance of DocRootTaglet,
                 // that is, only if it was not present in a source file doc comment.
                 // This happens when inserted by the doclet (a few lines
                 // above in this method).  [It might also happen when passed in on the command
                 // line as a text argument to an option (like -header).]
-                text = replaceDocRootDir(text);
+                String text = redirectRelativeLinks(tagelem.holder(), tagelem.text());
                 if (isFirstSentence) {
                     text = removeNonInlineHtmlTags(text);
                 }
@@ -1477,7 +1472,9 @@ public class HtmlDocletWriter extends HtmlDocWriter {
                 result.append(textBuff);
             }
         }
-        return WikiFormatter.format(result.toString());
+        StringBuffer html = new StringBuffer(result.length() + 100);
+        WikiFormatter.format(result, html);
+        return html.toString();
     }
 
     /**
@@ -1508,6 +1505,9 @@ public class HtmlDocletWriter extends HtmlDocWriter {
      * the link like this:
      *
      * &lt;a href="./com/sun/javadoc/package-summary.html"&gt;The package Page&lt;/a&gt;
+     * <p>
+     * The {&#064;docRoot} tags in the text are replaced as well, see
+     * {@link #replaceDocRootDir}.
      *
      * @param doc the Doc object whose documentation is being written.
      * @param text the text being written.
@@ -1516,7 +1516,7 @@ public class HtmlDocletWriter extends HtmlDocWriter {
      */
     private String redirectRelativeLinks(Doc doc, String text) {
         if (doc == null || shouldNotRedirectRelativeLinks()) {
-            return text;
+            return replaceDocRootDir(text);
         }
 
         String redirectPathFromRoot;
@@ -1527,98 +1527,321 @@ public class HtmlDocletWriter extends HtmlDocWriter {
         } else if (doc instanceof PackageDoc) {
             redirectPathFromRoot = DirectoryManager.getDirectoryPath((PackageDoc) doc);
         } else {
-            return text;
+            return replaceDocRootDir(text);
         }
 
         if (! redirectPathFromRoot.endsWith(DirectoryManager.URL_FILE_SEPERATOR)) {
             redirectPathFromRoot += DirectoryManager.URL_FILE_SEPERATOR;
         }
 
-        //Redirect all relative links.
-        int end, begin = text.toLowerCase().indexOf("<a");
-        if(begin >= 0){
-            StringBuffer textBuff = new StringBuffer(text);
+        return rewriteLinks(doc, text, redirectPathFromRoot);
+    }
 
-            while(begin >=0){
-                if (textBuff.length() > begin + 2 && ! Character.isWhitespace(textBuff.charAt(begin+2))) {
-                    begin = textBuff.toString().toLowerCase().indexOf("<a", begin + 1);
+    /**
+     * Redirect the relative links of the text with the given path, and
+     * replace {&#064;docRoot} with the relative path to the destination
+     * directory, in one scan of the text.  The result is the same as that
+     * of redirecting the links first, inserting a {&#064;docRoot} before each
+     * relative link, and replacing all the {&#064;docRoot}s afterwards.
+     *
+     * @param doc the Doc whose documentation is being written.
+     * @param text the text being written.
+     * @param redirectPath the path to prefix relative links with, or null
+     *                     to leave the links alone.
+     */
+    private String rewriteLinks(Doc doc, String text, String redirectPath) {
+        int len = text.length();
+        int docRoot = indexOfDocRoot(text, 0);
+        // Where to look for the next <a, or -1 when done.
+        int linkFrom = redirectPath == null ? -1 : 0;
+        // The start of the next relative link, or -1 if not known yet.
+        int link = -1;
+        StringBuffer buf = null;
+        int copied = 0;
+        while (true) {
+            while (link < 0 && linkFrom >= 0) {
+                int begin = indexOfAnchor(text, linkFrom);
+                if (begin < 0) {
+                    linkFrom = -1;
+                    break;
+                }
+                if (len > begin + 2 && ! Character.isWhitespace(text.charAt(begin + 2))) {
+                    linkFrom = begin + 1;
                     continue;
                 }
-
-                begin = textBuff.indexOf("=", begin) + 1;
-                end = textBuff.indexOf(">", begin +1);
-                if(begin == 0){
+                begin = text.indexOf('=', begin) + 1;
+                int end = text.indexOf('>', begin + 1);
+                if (begin == 0) {
                     //Link has no equal symbol.
-                    configuration.root.printWarning(
-                        doc.position(),
-                        configuration.getText("doclet.malformed_html_link_tag", text));
+                    configuration.message.warning(doc.position(),
+                        "doclet.malformed_html_link_tag", text);
+                    linkFrom = -1;
                     break;
                 }
                 if (end == -1) {
-                    //Break without warning.  This <a> tag is not necessarily malformed.  The text
+                    //Stop without warning.  This <a> tag is not necessarily malformed.  The text
                     //might be missing '>' character because the href has an inline tag.
+                    linkFrom = -1;
                     break;
                 }
-                if(textBuff.substring(begin, end).indexOf("\"") != -1){
-                    begin = textBuff.indexOf("\"", begin) + 1;
-                    end = textBuff.indexOf("\"", begin +1);
-                    if(begin == 0 || end == -1){
+                int quote = text.indexOf('"', begin);
+                if (quote >= 0 && quote < end) {
+                    begin = quote + 1;
+                    end = text.indexOf('"', begin + 1);
+                    if (end == -1) {
                         //Link is missing a quote.
+                        linkFrom = -1;
                         break;
                     }
                 }
-                String relativeLink = textBuff.substring(begin, end);
-                if(!(relativeLink.toLowerCase().startsWith("mailto:") ||
-                     relativeLink.toLowerCase().startsWith("http:") ||
-                     relativeLink.toLowerCase().startsWith("https:") ||
-                     relativeLink.toLowerCase().startsWith("file:"))){
-                     relativeLink = "{@"+(new DocRootTaglet()).getName() + "}"
-                        + redirectPathFromRoot
-                        + relativeLink;
-                    textBuff.replace(begin, end, relativeLink);
+                if (startsWithIgnoreCase(text, begin, end, "mailto:") ||
+                        startsWithIgnoreCase(text, begin, end, "http:") ||
+                        startsWithIgnoreCase(text, begin, end, "https:") ||
+                        startsWithIgnoreCase(text, begin, end, "file:")) {
+                    linkFrom = begin + 1;
+                } else {
+                    link = begin;
+                    linkFrom = begin;
+                }
+            }
+            if (link < 0 && docRoot < 0) {
+                break;
+            }
+            if (buf == null) {
+                buf = new StringBuffer(len + 64);
+            }
+            if (link >= 0 && (docRoot < 0 || link <= docRoot)) {
+                buf.append(text, copied, link);
+                appendDocRoot(buf, redirectPath.charAt(0));
+                buf.append(redirectPath);
+                copied = link;
+                link = -1;
+            } else {
+                buf.append(text, copied, docRoot);
+                copied = docRoot + DOC_ROOT.length();
+                appendDocRoot(buf, copied < len ? text.charAt(copied) : '/');
+                docRoot = indexOfDocRoot(text, copied);
+            }
+        }
+        if (buf == null) {
+            return text;
+        }
+        buf.append(text, copied, len);
+        return buf.toString();
+    }
+
+    /**
+     * The {&#064;docRoot} tag, in lower case.
+     */
+    private static final String DOC_ROOT = "{@docroot}";
+
+    /**
+     * Append the relative path to the destination directory, with a slash
+     * unless the character following the {&#064;docRoot} is one.
+     */
+    private void appendDocRoot(StringBuffer buf, char next) {
+        buf.append(relativepathNoSlash);
+        if (relativepathNoSlash.length() > 0 && next != '/') {
+            buf.append(DirectoryManager.URL_FILE_SEPERATOR);
+        }
+    }
+
+    /**
+     * Return the index of the next {&#064;docRoot}, in any case, or -1.
+     */
+    private static int indexOfDocRoot(String text, int from) {
+        for (int i = text.indexOf("{@", from); i >= 0; i = text.indexOf("{@", i + 2)) {
+            if (text.regionMatches(true, i, DOC_ROOT, 0, DOC_ROOT.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the index of the next "&lt;a", in any case, or -1.
+     */
+    private static int indexOfAnchor(String text, int from) {
+        for (int i = text.indexOf('<', from); i >= 0; i = text.indexOf('<', i + 1)) {
+            if (i + 1 < text.length() &&
+                    (text.charAt(i + 1) == 'a' || text.charAt(i + 1) == 'A')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return true if the text between begin and end starts with the given
+     * lower case prefix, ignoring case.
+     */
+    private static boolean startsWithIgnoreCase(String text, int begin,
+            int end, String prefix) {
+        return end - begin >= prefix.length() &&
+            text.regionMatches(true, begin, prefix, 0, prefix.length());
+    }
+
+    /**
+     * The names of the block level tags removed from first sentences.
+     */
+    private static final String[] NON_INLINE_TAGS = {
+        "ul", "ol", "dl", "table", "tr", "td", "th", "p", "li", "dd", "dir",
+        "dt", "h1", "h2", "h3", "h4", "h5", "h6", "pre", "menu", "listing",
+        "hr", "blockquote", "center"
+    };
+
+    /**
+     * The trie of {@link #NON_INLINE_TAGS}.  Node 0 is the root; each node
+     * maps the index of a letter or digit, see {@link #trieIndex}, to the
+     * next node, with 0 for no node.
+     */
+    private static final int[][] NON_INLINE_TAG_TRIE;
+
+    /**
+     * True for the nodes of the trie that end a tag name.
+     */
+    private static final boolean[] NON_INLINE_TAG_END;
+
+    static {
+        List nodes = new ArrayList();
+        nodes.add(new int[36]);
+        Set ends = new HashSet();
+        for (int i = 0; i < NON_INLINE_TAGS.length; i++) {
+            int node = 0;
+            for (int j = 0; j < NON_INLINE_TAGS[i].length(); j++) {
+                int[] next = (int[]) nodes.get(node);
+                int c = trieIndex(NON_INLINE_TAGS[i].charAt(j));
+                if (next[c] == 0) {
+                    next[c] = nodes.size();
+                    nodes.add(new int[36]);
                 }
-                begin = textBuff.toString().toLowerCase().indexOf("<a", begin + 1);
+                node = next[c];
             }
-            return textBuff.toString();
+            ends.add(new Integer(node));
+        }
+        NON_INLINE_TAG_TRIE = (int[][]) nodes.toArray(new int[0][]);
+        NON_INLINE_TAG_END = new boolean[nodes.size()];
+        for (int i = 0; i < NON_INLINE_TAG_END.length; i++) {
+            NON_INLINE_TAG_END[i] = ends.contains(new Integer(i));
         }
-        return text;
     }
 
+    /**
+     * The largest buffer kept between calls of
+     * {@link #removeNonInlineHtmlTags}.
+     */
+    private static final int MAX_TAG_BUFFER = 4096;
+
+    /**
+     * The buffer of {@link #removeNonInlineHtmlTags}, reused by every call.
+     */
+    private StringBuilder tagBuffer;
+
+    /**
+     * Remove the block level tags, such as paragraphs, lists and tables,
+     * from the text of a first sentence.  Tags are matched ignoring case
+     * and may have attributes.  The text is scanned once, and returned
+     * as is when it contains no such tag.
+     *
+     * @param text the text to strip.
+     * @return the text without the block level tags.
+     */
     public String removeNonInlineHtmlTags(String text) {
-        if (text.indexOf('<') < 0) {
+        int i = text.indexOf('<');
+        if (i < 0) {
             return text;
         }
-        String noninlinetags[] = { "<ul>", "</ul>", "<ol>", "</ol>",
-                "<dl>", "</dl>", "<table>", "</table>",
-                "<tr>", "</tr>", "<td>", "</td>",
-                "<th>", "</th>", "<p>", "</p>",
-                "<li>", "</li>", "<dd>", "</dd>",
-                "<dir>", "</dir>", "<dt>", "</dt>",
-                "<h1>", "</h1>", "<h2>", "</h2>",
-                "<h3>", "</h3>", "<h4>", "</h4>",
-                "<h5>", "</h5>", "<h6>", "</h6>",
-                "<pre>", "</pre>", "<menu>", "</menu>",
-                "<listing>", "</listing>", "<hr>",
-                "<blockquote>", "</blockquote>",
-                "<center>", "</center>",
-                "<UL>", "</UL>", "<OL>", "</OL>",
-                "<DL>", "</DL>", "<TABLE>", "</TABLE>",
-                "<TR>", "</TR>", "<TD>", "</TD>",
-                "<TH>", "</TH>", "<P>", "</P>",
-                "<LI>", "</LI>", "<DD>", "</DD>",
-                "<DIR>", "</DIR>", "<DT>", "</DT>",
-                "<H1>", "</H1>", "<H2>", "</H2>",
-                "<H3>", "</H3>", "<H4>", "</H4>",
-                "<H5>", "</H5>", "<H6>", "</H6>",
-                "<PRE>", "</PRE>", "<MENU>", "</MENU>",
-                "<LISTING>", "</LISTING>", "<HR>",
-                "<BLOCKQUOTE>", "</BLOCKQUOTE>",
-                "<CENTER>", "</CENTER>"
-        };
-        for (int i = 0; i < noninlinetags.length; i++) {
-            text = replace(text, noninlinetags[i], "");
+        StringBuilder buf = null;
+        int copied = 0;
+        while (i >= 0) {
+            int end = findNonInlineTagEnd(text, i);
+            if (end < 0) {
+                i = text.indexOf('<', i + 1);
+                continue;
+            }
+            if (buf == null) {
+                if (tagBuffer == null) {
+                    tagBuffer = new StringBuilder(text.length());
+                }
+                buf = tagBuffer;
+                buf.setLength(0);
+            }
+            buf.append(text, copied, i);
+            copied = end;
+            i = text.indexOf('<', end);
+        }
+        if (buf == null) {
+            return text;
+        }
+        buf.append(text, copied, text.length());
+        String result = buf.toString();
+        if (buf.capacity() > MAX_TAG_BUFFER) {
+            tagBuffer = null;
+        }
+        return result;
+    }
+
+    /**
+     * Return the index just past the block level tag starting at the given
+     * index, or -1 if there is no such tag there.
+     */
+    private static int findNonInlineTagEnd(String text, int start) {
+        int len = text.length();
+        int i = start + 1;
+        if (i < len && text.charAt(i) == '/') {
+            i++;
+        }
+        int nameStart = i;
+        int node = 0;
+        for (; i < len; i++) {
+            int c = trieIndex(text.charAt(i));
+            if (c < 0) {
+                break;
+            }
+            node = NON_INLINE_TAG_TRIE[node][c];
+            if (node == 0) {
+                return -1;
+            }
+        }
+        if (i == nameStart || i == len || ! NON_INLINE_TAG_END[node]) {
+            return -1;
+        }
+        char c = text.charAt(i);
+        if (c == '>') {
+            return i + 1;
+        } else if (c != '/' && ! Character.isWhitespace(c)) {
+            return -1;
+        }
+        // Skip the attributes; a '>' within quotes does not end the tag.
+        char quote = 0;
+        for (; i < len; i++) {
+            c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the index in the tag trie of the given letter, ignoring case,
+     * or digit, or -1 for any other character.
+     */
+    private static int trieIndex(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        } else if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= '0' && c <= '9') {
+            return 26 + c - '0';
         }
-        return text;
+        return -1;
     }
 
     public String replace(String text, String tobe, String by) {
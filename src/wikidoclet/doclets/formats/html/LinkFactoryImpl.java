@@ -35,61 +35,91 @@ public class LinkFactoryImpl extends LinkFactory {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * A page links the same classes over and over, so the link to a class,
+     * without its type parameters, is rendered once per page for each
+     * label, anchor and style, and reused after that.
      */
     protected LinkOutput getClassLink(LinkInfo linkInfo) {
         LinkInfoImpl classLinkInfo = (LinkInfoImpl) linkInfo;
         boolean noLabel = linkInfo.label == null || linkInfo.label.length() == 0;
         ClassDoc classDoc = classLinkInfo.classDoc;
-        //Create a tool tip if we are linking to a class or interface.  Don't
-        //create one if we are linking to a member.
-        String title =
-            (classLinkInfo.where == null || classLinkInfo.where.length() == 0) ?
-                getClassToolTip(classDoc,
-                    classLinkInfo.type != null &&
-                    !classDoc.qualifiedTypeName().equals(classLinkInfo.type.qualifiedTypeName())) :
-            "";
+        boolean isTypeLink = classLinkInfo.type != null &&
+            !classDoc.qualifiedTypeName().equals(classLinkInfo.type.qualifiedTypeName());
         StringBuffer label = new StringBuffer(
             classLinkInfo.getClassLinkLabel(m_writer.configuration));
         classLinkInfo.displayLength += label.length();
         if (noLabel && classLinkInfo.excludeTypeParameterLinks) {
             label.append(getTypeParameterLinks(linkInfo).toString());
         }
-        Configuration configuration = ConfigurationImpl.getInstance();
+        String key = getClassLinkKey(classLinkInfo, label.toString(), isTypeLink);
+        String link = (String) m_writer.classLinks.get(key);
+        if (link == null) {
+            link = getClassLink(classLinkInfo, label.toString(), isTypeLink);
+            m_writer.classLinks.put(key, link);
+        }
         LinkOutputImpl linkOutput = new LinkOutputImpl();
+        linkOutput.append(link);
+        if (noLabel && !classLinkInfo.excludeTypeParameterLinks) {
+            linkOutput.append(getTypeParameterLinks(linkInfo).toString());
+        }
+        return linkOutput;
+    }
+
+    /**
+     * Return the key of the link to a class on the current page.  The
+     * path and the file name of a page never change, so they are not part
+     * of the key.
+     */
+    private static String getClassLinkKey(LinkInfoImpl linkInfo,
+            String label, boolean isTypeLink) {
+        StringBuffer key = new StringBuffer();
+        key.append(linkInfo.classDoc.qualifiedName()).append('\0')
+            .append(linkInfo.where).append('\0')
+            .append(label).append('\0')
+            .append(linkInfo.styleName).append('\0')
+            .append(linkInfo.target).append('\0')
+            .append(linkInfo.isBold ? 'B' : '-')
+            .append(isTypeLink ? 'T' : '-')
+            .append(linkInfo.linkToSelf ? 'S' : '-')
+            .append(linkInfo.context == LinkInfoImpl.PACKAGE_FRAME ? 'F' : '-');
+        return key.toString();
+    }
+
+    /**
+     * Render the link to a class, without its type parameters.  If the
+     * class can not be linked, the label is returned.
+     */
+    private String getClassLink(LinkInfoImpl classLinkInfo, String label,
+            boolean isTypeLink) {
+        ClassDoc classDoc = classLinkInfo.classDoc;
+        Configuration configuration = ConfigurationImpl.getInstance();
         if (classDoc.isIncluded()) {
             if (configuration.isGeneratedDoc(classDoc)) {
-                String filename = pathString(classLinkInfo);
-                if (linkInfo.linkToSelf ||
-                		!(linkInfo.classDoc.name() + ".html").equals(m_writer.filename)) {
-	                linkOutput.append(m_writer.getHyperLink(filename,
-	                    classLinkInfo.where, label.toString(),
+                if (classLinkInfo.linkToSelf ||
+                		!(classDoc.name() + ".html").equals(m_writer.filename)) {
+                    //Create a tool tip if we are linking to a class or interface.
+                    //Don't create one if we are linking to a member.
+                    String title =
+                        (classLinkInfo.where == null || classLinkInfo.where.length() == 0) ?
+                            getClassToolTip(classDoc, isTypeLink) : "";
+	                return m_writer.getHyperLink(pathString(classLinkInfo),
+	                    classLinkInfo.where, label,
 	                    classLinkInfo.isBold, classLinkInfo.styleName,
-	                    title, classLinkInfo.target));
-	                if (noLabel && !classLinkInfo.excludeTypeParameterLinks) {
-	                    linkOutput.append(getTypeParameterLinks(linkInfo).toString());
-	                }
-	                return linkOutput;
+	                    title, classLinkInfo.target);
                 }
             }
         } else {
             String crossLink = m_writer.getCrossClassLink(
                 classDoc.qualifiedName(), classLinkInfo.where,
-                label.toString(), classLinkInfo.isBold, classLinkInfo.styleName,
+                label, classLinkInfo.isBold, classLinkInfo.styleName,
                 true);
             if (crossLink != null) {
-                linkOutput.append(crossLink);
-                if (noLabel && !classLinkInfo.excludeTypeParameterLinks) {
-                    linkOutput.append(getTypeParameterLinks(linkInfo).toString());
-                }
-                return linkOutput;
+                return crossLink;
             }
         }
         // Can't link so just write label.
-        linkOutput.append(label.toString());
-        if (noLabel && !classLinkInfo.excludeTypeParameterLinks) {
-            linkOutput.append(getTypeParameterLinks(linkInfo).toString());
-        }
-        return linkOutput;
+        return label;
     }
 
     /**
@@ -108,28 +138,53 @@ public class LinkFactoryImpl extends LinkFactory {
     }
 
     /**
-     * Given a class, return the appropriate tool tip.
+     * Given a class, return the appropriate tool tip.  The tool tips depend
+     * only on the kind of class and its package, or on the name of a type
+     * parameter, so each is formatted once per run.
      *
      * @param classDoc the class to get the tool tip for.
      * @return the tool tip for the appropriate class.
      */
     private String getClassToolTip(ClassDoc classDoc, boolean isTypeLink) {
-        Configuration configuration = ConfigurationImpl.getInstance();
+        ConfigurationImpl configuration = ConfigurationImpl.getInstance();
+        String key;
         if (isTypeLink) {
-            return configuration.getText("doclet.Href_Type_Param_Title",
-            classDoc.name());
+            key = "T" + classDoc.name();
         } else if (classDoc.isInterface()){
-            return configuration.getText("doclet.Href_Interface_Title",
-                Util.getPackageName(classDoc.containingPackage()));
+            key = "I" + classDoc.containingPackage().name();
         } else if (classDoc.isAnnotationType()) {
-            return configuration.getText("doclet.Href_Annotation_Title",
-                Util.getPackageName(classDoc.containingPackage()));
+            key = "A" + classDoc.containingPackage().name();
         } else if (classDoc.isEnum()) {
-            return configuration.getText("doclet.Href_Enum_Title",
-                Util.getPackageName(classDoc.containingPackage()));
+            key = "E" + classDoc.containingPackage().name();
         } else {
-            return configuration.getText("doclet.Href_Class_Title",
-                Util.getPackageName(classDoc.containingPackage()));
+            key = "C" + classDoc.containingPackage().name();
+        }
+        String toolTip = (String) configuration.classToolTips.get(key);
+        if (toolTip == null) {
+            toolTip = getClassToolTip(configuration, classDoc, key.charAt(0));
+            configuration.classToolTips.put(key, toolTip);
+        }
+        return toolTip;
+    }
+
+    private static String getClassToolTip(Configuration configuration,
+            ClassDoc classDoc, char kind) {
+        switch (kind) {
+            case 'T':
+                return configuration.getText("doclet.Href_Type_Param_Title",
+                    classDoc.name());
+            case 'I':
+                return configuration.getText("doclet.Href_Interface_Title",
+                    Util.getPackageName(classDoc.containingPackage()));
+            case 'A':
+                return configuration.getText("doclet.Href_Annotation_Title",
+                    Util.getPackageName(classDoc.containingPackage()));
+            case 'E':
+                return configuration.getText("doclet.Href_Enum_Title",
+                    Util.getPackageName(classDoc.containingPackage()));
+            default:
+                return configuration.getText("doclet.Href_Class_Title",
+                    Util.getPackageName(classDoc.containingPackage()));
         }
     }
 
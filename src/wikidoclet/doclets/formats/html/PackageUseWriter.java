@@ -20,7 +20,7 @@ import java.util.*;
 public class PackageUseWriter extends SubWriterHolderWriter {
 
     final PackageDoc pkgdoc;
-    final SortedMap usingPackageToUsedClasses = new TreeMap();
+    final SortedMap usingPackageToUsedClasses;
 
     /**
      * Constructor.
@@ -37,28 +37,9 @@ public class PackageUseWriter extends SubWriterHolderWriter {
               DirectoryManager.getRelativePath(pkgdoc.name()));
         this.pkgdoc = pkgdoc;
 
-        // by examining all classes in this package, find what packages
-        // use these classes - produce a map between using package and
-        // used classes.
-        ClassDoc[] content = pkgdoc.allClasses();
-        for (int i = 0; i < content.length; ++i) {
-            ClassDoc usedClass = content[i];
-            Set usingClasses = (Set)mapper.classToClass.get(usedClass.qualifiedName());
-            if (usingClasses != null) {
-                for (Iterator it = usingClasses.iterator(); it.hasNext(); ) {
-                    ClassDoc usingClass = (ClassDoc)it.next();
-                    PackageDoc usingPackage = usingClass.containingPackage();
-                    Set usedClasses = (Set)usingPackageToUsedClasses
-                        .get(usingPackage.name());
-                    if (usedClasses == null) {
-                        usedClasses = new TreeSet();
-                        usingPackageToUsedClasses.put(Util.getPackageName(usingPackage),
-                                                      usedClasses);
-                    }
-                    usedClasses.add(usedClass);
-                }
-            }
-        }
+        // the map between the packages using the classes of this package
+        // and the classes they use is part of the index of the mapper.
+        this.usingPackageToUsedClasses = mapper.getPackageUses(pkgdoc);
     }
 
     /**
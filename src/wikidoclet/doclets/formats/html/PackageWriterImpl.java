@@ -42,7 +42,7 @@ public class PackageWriterImpl extends HtmlDocletWriter
     /**
      * The name of the output file.
      */
-    private static final String OUTPUT_FILE_NAME = "package-summary.html";
+    static final String OUTPUT_FILE_NAME = "package-summary.html";
 
     /**
      * Constructor to construct PackageWriter object and to generate
@@ -9,7 +9,10 @@ package wikidoclet.doclets.formats.html;
 
 import wikidoclet.doclets.internal.toolkit.util.*;
 
+import com.sun.javadoc.*;
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Generate Separate Index Files for all the member names with Indexing in
@@ -31,6 +34,12 @@ public class SplitIndexWriter extends AbstractIndexWriter {
      */
     protected int next;
 
+    /**
+     * The links to all the index files, which are the same on every page,
+     * or null if they are not rendered yet.
+     */
+    protected String linksForIndexes;
+
     /**
      * Construct the SplitIndexWriter. Uses path to this file and relative path
      * from this file.
@@ -51,38 +60,79 @@ public class SplitIndexWriter extends AbstractIndexWriter {
 
     /**
      * Generate separate index files, for each Unicode character, listing all
-     * the members starting with the particular unicode character.
+     * the members starting with the particular unicode character.  The
+     * files are generated on a pool of <code>configuration.threads</code>
+     * threads, one task per character.
      *
      * @param indexbuilder IndexBuilder built by {@link IndexBuilder}
      * @throws DocletAbortException
      */
-    public static void generate(ConfigurationImpl configuration,
-                                IndexBuilder indexbuilder) {
-        SplitIndexWriter indexgen;
-        String filename = "";
-        String path = DirectoryManager.getPath("index-files");
-        String relpath = DirectoryManager.getRelativePath("index-files");
+    public static void generate(final ConfigurationImpl configuration,
+                                final IndexBuilder indexbuilder) {
+        final Object[] elements = indexbuilder.elements();
+        if (elements.length == 0) {
+            return;
+        }
+        final String path = DirectoryManager.getPath("index-files");
+        final String relpath = DirectoryManager.getRelativePath("index-files");
+        // The first page renders the links to all the pages, and the
+        // other pages, which may be generated on other threads, reuse them.
+        final SplitIndexWriter first = newWriter(configuration, path, relpath,
+                                                 indexbuilder, 0);
+        final String links = first.getLinksForIndexes();
+        final ClassDoc currentClass = configuration.getCurrentClass();
+        List tasks = new ArrayList();
+        for (int i = 0; i < elements.length; i++) {
+            final int index = i;
+            tasks.add(new Callable() {
+                public Object call() {
+                    configuration.setCurrentClass(currentClass);
+                    SplitIndexWriter indexgen = (index == 0)? first:
+                        newWriter(configuration, path, relpath, indexbuilder,
+                                  index);
+                    indexgen.linksForIndexes = links;
+                    try {
+                        indexgen.generateIndexFile((Character)elements[index]);
+                        indexgen.close();
+                    } catch (IOException exc) {
+                        error(configuration, exc, index);
+                    }
+                    return null;
+                }
+            });
+        }
+        Util.invokeAll(tasks, configuration.threads);
+    }
+
+    /**
+     * Return the writer of the index file for the character at the given
+     * index of the built index.
+     */
+    private static SplitIndexWriter newWriter(ConfigurationImpl configuration,
+                                              String path, String relpath,
+                                              IndexBuilder indexbuilder,
+                                              int i) {
+        int j = i + 1;
+        int prev = (j == 1)? -1: i;
+        int next = (j == indexbuilder.elements().length)? -1: j + 1;
         try {
-            for (int i = 0; i < indexbuilder.elements().length; i++) {
-                int j = i + 1;
-                int prev = (j == 1)? -1: i;
-                int next = (j == indexbuilder.elements().length)? -1: j + 1;
-                filename = "index-" + j +".html";
-                indexgen = new SplitIndexWriter(configuration,
-                                                path, filename, relpath,
-                                                indexbuilder, prev, next);
-                indexgen.generateIndexFile((Character)indexbuilder.
-                                                                 elements()[i]);
-                indexgen.close();
-            }
+            return new SplitIndexWriter(configuration, path,
+                                        "index-" + j + ".html", relpath,
+                                        indexbuilder, prev, next);
         } catch (IOException exc) {
-            configuration.standardmessage.error(
-                        "doclet.exception_encountered",
-                        exc.toString(), filename);
-            throw new DocletAbortException();
+            error(configuration, exc, i);
+            return null;
         }
     }
 
+    private static void error(ConfigurationImpl configuration,
+                              IOException exc, int i) {
+        configuration.standardmessage.error(
+                    "doclet.exception_encountered",
+                    exc.toString(), "index-" + (i + 1) + ".html");
+        throw new DocletAbortException();
+    }
+
     /**
      * Generate the contents of each index file, with Header, Footer,
      * Member Field, Method and Constructor Description.
@@ -112,12 +162,25 @@ public class SplitIndexWriter extends AbstractIndexWriter {
      * Print Links for all the Index Files per unicode character.
      */
     protected void printLinksForIndexes() {
-        for (int i = 0; i < indexbuilder.elements().length; i++) {
-            int j = i + 1;
-            printHyperLink("index-" + j + ".html",
-                           indexbuilder.elements()[i].toString());
-            print(' ');
+        print(getLinksForIndexes());
+    }
+
+    /**
+     * Return the links for all the Index Files per unicode character.
+     */
+    protected String getLinksForIndexes() {
+        if (linksForIndexes == null) {
+            Object[] elements = indexbuilder.elements();
+            StringBuffer buf = new StringBuffer();
+            for (int i = 0; i < elements.length; i++) {
+                int j = i + 1;
+                buf.append(getHyperLink("index-" + j + ".html",
+                                        elements[i].toString()));
+                buf.append(' ');
+            }
+            linksForIndexes = buf.toString();
         }
+        return linksForIndexes;
     }
 
     /**
@@ -212,11 +212,12 @@ public class TagletWriterImpl extends TagletWriter {
      */
     public TagletOutput throwsTagOutput(ThrowsTag throwsTag) {
         String result = DocletConstants.NL + "<DD>";
-        result += throwsTag.exceptionType() == null ?
+        Type exceptionType = Util.getExceptionType(throwsTag);
+        result += exceptionType == null ?
             htmlWriter.codeText(throwsTag.exceptionName()) :
             htmlWriter.codeText(
                 htmlWriter.getLink(new LinkInfoImpl(LinkInfoImpl.CONTEXT_MEMBER,
-                throwsTag.exceptionType())));
+                exceptionType)));
         TagletOutput text = new TagletOutputImpl(
             htmlWriter.commentTagsToString(throwsTag, null,
             throwsTag.inlineTags(), false));
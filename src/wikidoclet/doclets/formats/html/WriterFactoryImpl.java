@@ -32,7 +32,7 @@ public class WriterFactoryImpl implements WriterFactory {
      *
      * @return an instance of this factory.
      */
-    public static WriterFactoryImpl getInstance() {
+    public static synchronized WriterFactoryImpl getInstance() {
         if (instance == null) {
             instance = new WriterFactoryImpl(ConfigurationImpl.getInstance());
         }
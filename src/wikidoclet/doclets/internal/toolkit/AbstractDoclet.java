@@ -8,6 +8,7 @@
 package wikidoclet.doclets.internal.toolkit;
 
 import wikidoclet.doclets.internal.toolkit.builders.*;
+import wikidoclet.doclets.internal.toolkit.taglets.*;
 import wikidoclet.doclets.internal.toolkit.util.*;
 import wikidoclet.WikiDoclet;
 import com.sun.javadoc.*;
@@ -101,6 +102,9 @@ public abstract class AbstractDoclet {
         configuration.setOptions();
         configuration.getDocletSpecificMsg().notice("doclet.build_version",
             configuration.getDocletSpecificBuildDate());
+        HeapUsage.resetPeak();
+        checkTags(root);
+        configuration.sampleHeap();
         ClassTree classtree = new ClassTree(configuration, configuration.nodeprecated);
 
         generateClassFiles(root, classtree);
@@ -118,9 +122,108 @@ public abstract class AbstractDoclet {
 
         PackageListWriter.generate(configuration);
         generatePackageFiles(classtree);
+        configuration.sampleHeap();
+        if (configuration.lowmemory) {
+            configuration.resetCaches();
+        }
 
         generateOtherFiles(root, classtree);
+        if (configuration.manifest != null) {
+            configuration.manifest.store();
+        }
         configuration.tagletManager.printReport();
+        configuration.sampleHeap();
+        if (configuration.stats) {
+            OutputFactory output = configuration.outputFactory;
+            configuration.root.printNotice(configuration.getText(
+                "doclet.Output_Report",
+                String.valueOf(output.getFiles()),
+                String.valueOf(output.getBytes()),
+                String.valueOf(output.getWrites())));
+        }
+        if (configuration.stats) {
+            configuration.root.printNotice(configuration.getText(
+                "doclet.Heap_Report",
+                String.valueOf(HeapUsage.getPeak()),
+                String.valueOf(HeapUsage.getUsed())));
+        }
+    }
+
+    /**
+     * Check the tags of all the documentation the pages print before any
+     * page is generated, so that each comment is checked once rather than
+     * on every page it appears on.  Javadoc reports the problems it finds
+     * in a comment when it first reads it, so the classes are checked one
+     * after the other, sorted by their qualified names, and the warnings
+     * are printed in the same order on every run.
+     *
+     * @param root the RootDoc of source to document.
+     */
+    private void checkTags(RootDoc root) {
+        TagletManager tagletManager = configuration.tagletManager;
+        tagletManager.setAllTagsChecked(false);
+        if (configuration.nocomment) {
+            return;
+        }
+        // The pages generated on several threads only read the comments
+        // that are loaded here, see DocPreloader.
+        boolean preload = configuration.threads > 1;
+        checkTags(tagletManager, root, preload);
+        for (int i = 0; i < configuration.packages.length; i++) {
+            checkTags(tagletManager, configuration.packages[i], preload);
+        }
+        ClassDoc[] classes = (ClassDoc[]) root.classes().clone();
+        Arrays.sort(classes, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                return ((ClassDoc) o1).qualifiedName().compareTo(
+                    ((ClassDoc) o2).qualifiedName());
+            }
+        });
+        for (int i = 0; i < classes.length; i++) {
+            ClassDoc cd = classes[i];
+            if (!(configuration.isGeneratedDoc(cd) && cd.isIncluded())) {
+                continue;
+            }
+            if (cd.isEnum()) {
+                // Check the comments the doclet gives to values() and
+                // valueOf(), not the empty ones.
+                Util.setEnumDocumentation(configuration, cd);
+            }
+            checkTags(tagletManager, cd, preload);
+            checkTags(tagletManager, cd.fields(), preload);
+            checkTags(tagletManager, cd.enumConstants(), preload);
+            checkTags(tagletManager, cd.constructors(), preload);
+            checkTags(tagletManager, cd.methods(), preload);
+            if (cd instanceof AnnotationTypeDoc) {
+                checkTags(tagletManager,
+                    ((AnnotationTypeDoc) cd).elements(), preload);
+            }
+        }
+        if (preload) {
+            DocPreloader.load(root);
+        }
+        tagletManager.setAllTagsChecked(true);
+    }
+
+    private void checkTags(TagletManager tagletManager, Doc[] docs,
+            boolean preload) {
+        for (int i = 0; i < docs.length; i++) {
+            if (configuration.isGeneratedDoc(docs[i])) {
+                checkTags(tagletManager, docs[i], preload);
+            }
+        }
+    }
+
+    /**
+     * Check the tags of the given documentation, and read its first
+     * sentence too if the pages are generated on several threads.
+     */
+    private static void checkTags(TagletManager tagletManager, Doc doc,
+            boolean preload) {
+        tagletManager.checkTags(doc);
+        if (preload) {
+            doc.firstSentenceTags();
+        }
     }
 
     /**
@@ -162,6 +265,12 @@ public abstract class AbstractDoclet {
         PackageDoc[] packages = root.specifiedPackages();
         for (int i = 0; i < packages.length; i++) {
             generateClassFiles(packages[i].allClasses(), classtree);
+            configuration.sampleHeap();
+            if (configuration.lowmemory) {
+                // The visible members are mostly shared by the classes of
+                // one package, so drop them before the next one.
+                configuration.resetCaches();
+            }
         }
     }
 
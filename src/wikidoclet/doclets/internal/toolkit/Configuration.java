@@ -10,6 +10,7 @@ package wikidoclet.doclets.internal.toolkit;
 import wikidoclet.doclets.internal.toolkit.taglets.*;
 import wikidoclet.doclets.internal.toolkit.util.*;
 import wikidoclet.doclets.internal.toolkit.builders.BuilderFactory;
+import wikidoclet.doclets.internal.toolkit.builders.LayoutParser;
 import com.sun.javadoc.*;
 import java.util.*;
 import java.io.*;
@@ -172,6 +173,83 @@ public abstract class Configuration {
      */
     public boolean nodeprecated = false;
 
+    /**
+     * The number of threads used to generate the class pages, set with
+     * the -threads option.  Default is to generate them one after another.
+     */
+    public int threads = 1;
+
+    /**
+     * The factory that opens the generated files.  The size of its buffers
+     * is set with the -outputbuffer option, and -pagebuffer writes every
+     * page in one go.  A doclet may install a factory of its own.
+     */
+    public OutputFactory outputFactory =
+        new OutputFactory.Buffered(OutputFactory.DEFAULT_BUFFER_SIZE);
+
+    /**
+     * True if command line option "-incremental" is used.  Default value is
+     * false.
+     */
+    public boolean incremental = false;
+
+    /**
+     * The manifest of the pages generated by the previous run, used to skip
+     * the pages whose inputs did not change.  Null unless -incremental is
+     * used.
+     */
+    public BuildManifest manifest = null;
+
+    /**
+     * True if command line option "-lowmemory" is used.  The caches are
+     * then dropped between the phases of the run, the catalog of the
+     * classes and the index are released once their pages are written, and
+     * the rendered comments are kept within a budget of bytes.  Default
+     * value is false.
+     */
+    public boolean lowmemory = false;
+
+    /**
+     * True if command line option "-Xstats" or "-verbose" is used.  The
+     * doclet then reports statistics of the run, such as the hits of its
+     * caches, when it is done.  Default value is false.
+     */
+    public boolean stats = false;
+
+    /**
+     * The directory in which the "package-list" files of the -link and
+     * -linkoffline options are cached, set with the -linkcache option.
+     * Default is to fetch them on every run.
+     */
+    public String linkcachedir = null;
+
+    /**
+     * The number of seconds a cached "package-list" file is used before it
+     * is revalidated, set with the -linkcachettl option.  Default is a day.
+     */
+    public long linkcachettl = 86400;
+
+    /**
+     * True if command line option "-linkcacheonly" is used.  The cached
+     * "package-list" files are then used however old they are, and nothing
+     * is fetched.  Default value is false.
+     */
+    public boolean linkcacheonly = false;
+
+    /**
+     * The visible members of the documented classes, shared by the builders
+     * and writers.  A new cache is created for every run by
+     * {@link #setOptions()}.
+     */
+    public VisibleMemberCache visibleMemberCache = new VisibleMemberCache();
+
+    /**
+     * The interfaces of the documented classes and the documentation that
+     * their methods inherit.  A new cache is created for every run by
+     * {@link #setOptions()}.
+     */
+    public InheritanceCache inheritanceCache = new InheritanceCache();
+
     /**
      * The catalog of classes specified on the command-line
      */
@@ -186,6 +264,12 @@ public abstract class Configuration {
      */
     public MessageRetriever message = null;
 
+    /**
+     * The reporter that the message retrievers print through.  A new
+     * reporter is created for every run by {@link #setOptions()}.
+     */
+    public DiagnosticReporter diagnostics = new DiagnosticReporter();
+
     /**
      * True if user wants to suppress time stamp in output.
      * Default is false.
@@ -270,14 +354,19 @@ public abstract class Configuration {
         option = option.toLowerCase();
         if (option.equals("-author") ||
             option.equals("-docfilessubdirs") ||
+            option.equals("-incremental") ||
+            option.equals("-lowmemory") ||
             option.equals("-keywords") ||
+            option.equals("-linkcacheonly") ||
             option.equals("-linksource") ||
             option.equals("-nocomment") ||
             option.equals("-nodeprecated") ||
             option.equals("-nosince") ||
             option.equals("-notimestamp") ||
+            option.equals("-pagebuffer") ||
             option.equals("-quiet") ||
             option.equals("-xnodate") ||
+            option.equals("-xstats") ||
             option.equals("-version")) {
             return 1;
         } else if (option.equals("-d") ||
@@ -285,13 +374,17 @@ public abstract class Configuration {
                    option.equals("-encoding") ||
                    option.equals("-excludedocfilessubdir") ||
                    option.equals("-link") ||
+                   option.equals("-linkcache") ||
+                   option.equals("-linkcachettl") ||
                    option.equals("-sourcetab") ||
                    option.equals("-noqualifier") ||
                    option.equals("-output") ||
+                   option.equals("-outputbuffer") ||
                    option.equals("-sourcepath") ||
                    option.equals("-tag") ||
                    option.equals("-taglet") ||
-                   option.equals("-tagletpath")) {
+                   option.equals("-tagletpath") ||
+                   option.equals("-threads")) {
             return 2;
         } else if (option.equals("-group") ||
                    option.equals("-linkoffline")) {
@@ -328,6 +421,7 @@ public abstract class Configuration {
      */
     public void setOptions(String[][] options) {
         LinkedHashSet customTagStrs = new LinkedHashSet();
+        List links = new ArrayList();
         for (int oi = 0; oi < options.length; ++oi) {
             String[] os = options[oi];
             String opt = os[0].toLowerCase();
@@ -380,19 +474,38 @@ public abstract class Configuration {
                 tagletpath = os[1];
             } else  if (opt.equals("-keywords")) {
                 keywords = true;
+            } else if (opt.equals("-outputbuffer")) {
+                outputFactory =
+                    new OutputFactory.Buffered(Integer.parseInt(os[1]));
+            } else if (opt.equals("-pagebuffer")) {
+                outputFactory = new OutputFactory.Paged();
+            } else if (opt.equals("-incremental")) {
+                incremental = true;
+            } else if (opt.equals("-lowmemory")) {
+                lowmemory = true;
+            } else if (opt.equals("-xstats") || opt.equals("-verbose")) {
+                stats = true;
             } else  if (opt.equals("-serialwarn")) {
                 serialwarn = true;
             } else if (opt.equals("-group")) {
                 group.checkPackageGroups(os[1], os[2]);
-            } else if (opt.equals("-link")) {
-                String url = os[1];
-                extern.url(url, url, root, false);
-            } else if (opt.equals("-linkoffline")) {
-                String url = os[1];
-                String pkglisturl = os[2];
-                extern.url(url, pkglisturl, root, true);
+            } else if (opt.equals("-link") || opt.equals("-linkoffline")) {
+                links.add(os);
+            } else if (opt.equals("-linkcache")) {
+                linkcachedir = os[1];
+            } else if (opt.equals("-linkcachettl")) {
+                linkcachettl = Long.parseLong(os[1]);
+            } else if (opt.equals("-linkcacheonly")) {
+                linkcacheonly = true;
             }
         }
+        // The package lists are read once all the options are known, all
+        // at the same time.
+        extern.urls(links, root);
+        threads = getThreadCount(options);
+        if (incremental) {
+            manifest = new BuildManifest(this);
+        }
         if (sourcepath.length() == 0) {
             sourcepath = System.getProperty("env.class.path") == null ? "" :
                 System.getProperty("env.class.path");
@@ -405,18 +518,62 @@ public abstract class Configuration {
         initTagletManager(customTagStrs);
     }
 
+    /**
+     * Return the number of threads requested with the -threads option, or
+     * 1 if the option is not used.  The argument has already been checked
+     * by {@link #generalValidOptions}.
+     *
+     * @param options the two dimensional array of options.
+     */
+    public static int getThreadCount(String[][] options) {
+        int count = 1;
+        for (int oi = 0; oi < options.length; ++oi) {
+            if (options[oi][0].toLowerCase().equals("-threads")) {
+                count = Integer.parseInt(options[oi][1]);
+            }
+        }
+        return count;
+    }
+
     /**
      * Set the command line options supported by this configuration.
      *
      * @throws DocletAbortException
      */
     public void setOptions() {
+        // The configuration outlives a run when javadoc is invoked more
+        // than once in the same virtual machine.
+        resetCaches();
+        diagnostics = new DiagnosticReporter();
         initPackageArray();
         setOptions(root.options());
         setSpecificDocletOptions(root.options());
+        LayoutParser.getInstance(this).loadLayouts();
     }
 
 
+    /**
+     * Replace the caches of the visible members and of the inherited
+     * documentation with empty ones, and forget the paths of the packages.
+     * Whatever is needed afterwards is computed again, so the output does
+     * not change.
+     */
+    public void resetCaches() {
+        visibleMemberCache = new VisibleMemberCache();
+        inheritanceCache = new InheritanceCache();
+        DirectoryManager.resetPackagePaths();
+    }
+
+    /**
+     * Sample the use of the heap for the report of "-Xstats".  Called at
+     * the end of each phase of the run, before its data is released.
+     */
+    public void sampleHeap() {
+        if (stats) {
+            HeapUsage.sample();
+        }
+    }
+
     /**
      * Initialize the taglet manager.  The strings to initialize the simple custom tags should
      * be in the following format:  "[tag name]:[location str]:[heading]".
@@ -503,6 +660,8 @@ public abstract class Configuration {
     public boolean generalValidOptions(String options[][],
             DocErrorReporter reporter) {
         boolean docencodingfound = false;
+        boolean linkcachefound = false;
+        boolean linkcacheonlyfound = false;
         String encoding = "";
         for (int oi = 0; oi < options.length; oi++) {
             String[] os = options[oi];
@@ -533,8 +692,49 @@ public abstract class Configuration {
                 }
             } else if (opt.equals("-encoding")) {
                 encoding = os[1];
+            } else if (opt.equals("-threads")) {
+                int count;
+                try {
+                    count = Integer.parseInt(os[1]);
+                } catch (NumberFormatException e) {
+                    count = 0;
+                }
+                if (count <= 0) {
+                    reporter.printError(getText("doclet.threads_error"));
+                    return false;
+                }
+            } else if (opt.equals("-outputbuffer")) {
+                int size;
+                try {
+                    size = Integer.parseInt(os[1]);
+                } catch (NumberFormatException e) {
+                    size = 0;
+                }
+                if (size <= 0) {
+                    reporter.printError(getText("doclet.outputbuffer_error"));
+                    return false;
+                }
+            } else if (opt.equals("-linkcachettl")) {
+                long ttl;
+                try {
+                    ttl = Long.parseLong(os[1]);
+                } catch (NumberFormatException e) {
+                    ttl = -1;
+                }
+                if (ttl < 0) {
+                    reporter.printError(getText("doclet.linkcachettl_error"));
+                    return false;
+                }
+            } else if (opt.equals("-linkcacheonly")) {
+                linkcacheonlyfound = true;
+            } else if (opt.equals("-linkcache")) {
+                linkcachefound = true;
             }
         }
+        if (linkcacheonlyfound && !linkcachefound) {
+            reporter.printError(getText("doclet.linkcacheonly_error"));
+            return false;
+        }
         if (!docencodingfound && encoding.length() > 0) {
             if (!checkOutputFileEncoding(encoding, reporter)) {
                 return false;
@@ -9,6 +9,7 @@ package wikidoclet.doclets.internal.toolkit.builders;
 
 import wikidoclet.doclets.internal.toolkit.*;
 import wikidoclet.doclets.internal.toolkit.util.*;
+import com.sun.javadoc.*;
 import java.io.*;
 import java.lang.reflect.*;
 import java.util.*;
@@ -42,8 +43,10 @@ public abstract class AbstractBuilder {
      * Keep track of which packages we have seen for
      * efficiency purposes.  We don't want to copy the
      * doc files multiple times for a single package.
+     * Class pages may be built by several threads at once.
      */
-    protected static Set containingPackagesSeen;
+    protected static final Set containingPackagesSeen =
+        Collections.synchronizedSet(new HashSet());
 
     /**
      * True if we want to print debug output.
@@ -59,6 +62,31 @@ public abstract class AbstractBuilder {
         this.configuration = configuration;
     }
 
+    /**
+     * Copy the doc files of the package of the given class, unless the
+     * package is documented, in which case its own pages copy them, or a
+     * class of the same package was documented already.
+     *
+     * @param configuration the configuration used in this run of the doclet.
+     * @param cd            the class whose page is generated.
+     */
+    public static void copyDocFiles(Configuration configuration,
+            ClassDoc cd) {
+        PackageDoc containingPackage = cd.containingPackage();
+        if((configuration.packages == null ||
+                Arrays.binarySearch(configuration.packages,
+                                    containingPackage) < 0) &&
+           containingPackagesSeen.add(containingPackage.name())){
+            //Only copy doc files dir if the containing package is not
+            //documented AND if we have not documented a class from the same
+            //package already. Otherwise, we are making duplicate copies.
+            Util.copyDocFiles(configuration,
+                Util.getPackageSourcePath(configuration, containingPackage) +
+                DirectoryManager.getDirectoryPath(containingPackage)
+                    + File.separator, DocletConstants.DOC_FILES_DIR_NAME, true);
+        }
+    }
+
     /**
      * Return the name of this builder.
      *
@@ -75,26 +103,28 @@ public abstract class AbstractBuilder {
 
     /**
      * Build the documentation, as specified by the given XML elements.
+     * The elements returned by the {@link LayoutParser} are compiled, and
+     * the build methods of this builder are looked up once per layout.
+     * Any other list is compiled on every call.
      *
      * @param elements the XML elements that specify which components to
      *                 document.
      */
     protected void build(List elements) {
-        for (int i = 0; i < elements.size(); i++ ) {
-            Object element = elements.get(i);
-            String component = (String)
-                ((element instanceof String) ?
-                     element :
-                    ((List) element).get(0));
+        CompiledLayout layout = elements instanceof CompiledLayout ?
+            (CompiledLayout) elements : new CompiledLayout(elements);
+        Method[] plan = layout.getPlan(getClass());
+        for (int i = 0; i < plan.length; i++) {
+            String component = layout.getComponent(i);
+            if (DEBUG) {
+                configuration.root.printError("DEBUG: " +
+                    this.getClass().getName() + ".build" + component);
+            }
             try {
-                invokeMethod("build" + component,
-                    element instanceof String ?
-                        new Class[] {} :
-                        new Class[] {List.class},
-                    element instanceof String ?
-                        new Object[] {} :
-                        new Object[] {((List) element).subList(1,
-                            ((List) element).size())});
+                if (plan[i] == null) {
+                    throw new NoSuchMethodException("build" + component);
+                }
+                plan[i].invoke(this, layout.getArguments(i));
             } catch (NoSuchMethodException e) {
                 e.printStackTrace();
                 configuration.root.printError("Unknown element: " + component);
@@ -110,17 +140,4 @@ public abstract class AbstractBuilder {
             }
         }
     }
-
-    /**
-     * Given the name and parameters, invoke the method in the builder.  This
-     * method is required to invoke the appropriate build method as instructed
-     * by the builder XML file.
-     *
-     * @param methodName   the name of the method that we would like to invoke.
-     * @param paramClasses the types for each parameter.
-     * @param params       the parameters of the method.
-     */
-    protected abstract void invokeMethod(String methodName, Class[] paramClasses,
-            Object[] params)
-    throws Exception;
 }
@@ -12,7 +12,6 @@ import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.io.*;
 import java.util.*;
-import java.lang.reflect.*;
 
 /**
  * Builds the summary for a given annotation type.
@@ -65,26 +64,9 @@ public class AnnotationTypeBuilder extends AbstractBuilder {
         builder.configuration = configuration;
         builder.annotationTypeDoc = annotationTypeDoc;
         builder.writer = writer;
-        if(containingPackagesSeen == null) {
-            containingPackagesSeen = new HashSet();
-        }
         return builder;
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    public void invokeMethod(String methodName, Class[] paramClasses,
-            Object[] params)
-    throws Exception {
-        if (DEBUG) {
-            configuration.root.printError("DEBUG: " + this.getClass().getName()
-                + "." + methodName);
-        }
-        Method method = this.getClass().getMethod(methodName, paramClasses);
-        method.invoke(this, params);
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -107,32 +89,10 @@ public class AnnotationTypeBuilder extends AbstractBuilder {
      public void buildAnnotationTypeDoc(List elements) throws Exception {
         build(elements);
         writer.close();
-        copyDocFiles();
+        copyDocFiles(configuration, annotationTypeDoc);
      }
 
 
-     /**
-      * Copy the doc files for the current ClassDoc if necessary.
-      */
-     private void copyDocFiles() {
-        PackageDoc containingPackage = annotationTypeDoc.containingPackage();
-        if((configuration.packages == null ||
-                Arrays.binarySearch(configuration.packages,
-                                    containingPackage) < 0) &&
-           ! containingPackagesSeen.contains(containingPackage.name())){
-            //Only copy doc files dir if the containing package is not
-            //documented AND if we have not documented a class from the same
-            //package already. Otherwise, we are making duplicate copies.
-            Util.copyDocFiles(configuration,
-                Util.getPackageSourcePath(configuration,
-                    annotationTypeDoc.containingPackage()) +
-                DirectoryManager.getDirectoryPath(
-                    annotationTypeDoc.containingPackage())
-                    + File.separator, DocletConstants.DOC_FILES_DIR_NAME, true);
-            containingPackagesSeen.add(containingPackage.name());
-        }
-     }
-
     /**
      * Build the header of the page.
      */
@@ -12,7 +12,6 @@ import wikidoclet.doclets.internal.toolkit.util.*;
 import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.util.*;
-import java.lang.reflect.*;
 
 /**
  * Builds documentation for optional annotation type members.
@@ -53,8 +52,10 @@ public class AnnotationTypeOptionalMemberBuilder extends
             new AnnotationTypeOptionalMemberBuilder(configuration);
         builder.classDoc = classDoc;
         builder.writer = writer;
-        builder.visibleMemberMap = new VisibleMemberMap(classDoc,
-            VisibleMemberMap.ANNOTATION_TYPE_MEMBER_OPTIONAL, configuration.nodeprecated);
+        builder.visibleMemberMap =
+            configuration.visibleMemberCache.getVisibleMemberMap(classDoc,
+                VisibleMemberMap.ANNOTATION_TYPE_MEMBER_OPTIONAL,
+                configuration.nodeprecated);
         builder.members = new ArrayList(
             builder.visibleMemberMap.getMembersFor(classDoc));
         if (configuration.getMemberComparator() != null) {
@@ -87,20 +88,6 @@ public class AnnotationTypeOptionalMemberBuilder extends
         }
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    public void invokeMethod(String methodName, Class[] paramClasses,
-            Object[] params)
-    throws Exception {
-        if (DEBUG) {
-            configuration.root.printError("DEBUG: " + this.getClass().getName()
-                + "." + methodName);
-        }
-        Method method = this.getClass().getMethod(methodName, paramClasses);
-        method.invoke(this, params);
-    }
-
     /**
      * Document the default value for this optional member.
      */
@@ -12,7 +12,6 @@ import wikidoclet.doclets.internal.toolkit.util.*;
 import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.util.*;
-import java.lang.reflect.*;
 
 /**
  * Builds documentation for required annotation type members.
@@ -77,8 +76,10 @@ public class AnnotationTypeRequiredMemberBuilder extends AbstractMemberBuilder {
             new AnnotationTypeRequiredMemberBuilder(configuration);
         builder.classDoc = classDoc;
         builder.writer = writer;
-        builder.visibleMemberMap = new VisibleMemberMap(classDoc,
-            VisibleMemberMap.ANNOTATION_TYPE_MEMBER_REQUIRED, configuration.nodeprecated);
+        builder.visibleMemberMap =
+            configuration.visibleMemberCache.getVisibleMemberMap(classDoc,
+                VisibleMemberMap.ANNOTATION_TYPE_MEMBER_REQUIRED,
+                configuration.nodeprecated);
         builder.members = new ArrayList(
             builder.visibleMemberMap.getMembersFor(classDoc));
         if (configuration.getMemberComparator() != null) {
@@ -95,20 +96,6 @@ public class AnnotationTypeRequiredMemberBuilder extends AbstractMemberBuilder {
         return "AnnotationTypeRequiredMemberDetails";
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    public void invokeMethod(String methodName, Class[] paramClasses,
-            Object[] params)
-    throws Exception {
-        if (DEBUG) {
-            configuration.root.printError("DEBUG: " + this.getClass().getName()
-                + "." + methodName);
-        }
-        Method method = this.getClass().getMethod(methodName, paramClasses);
-        method.invoke(this, params);
-    }
-
     /**
      * Returns a list of members that will be documented for the given class.
      * This information can be used for doclet specific documentation
@@ -12,7 +12,6 @@ import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.io.*;
 import java.util.*;
-import java.lang.reflect.*;
 
 /**
  * Builds the summary for a given class.
@@ -81,26 +80,9 @@ public class ClassBuilder extends AbstractBuilder {
             builder.isEnum = true;
             Util.setEnumDocumentation(configuration, classDoc);
         }
-        if(containingPackagesSeen == null) {
-            containingPackagesSeen = new HashSet();
-        }
         return builder;
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    public void invokeMethod(String methodName, Class[] paramClasses,
-            Object[] params)
-    throws Exception {
-        if (DEBUG) {
-            configuration.root.printError("DEBUG: " + this.getClass().getName()
-                + "." + methodName);
-        }
-        Method method = this.getClass().getMethod(methodName, paramClasses);
-        method.invoke(this, params);
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -123,31 +105,10 @@ public class ClassBuilder extends AbstractBuilder {
      public void buildClassDoc(List elements) throws Exception {
         build(elements);
         writer.close();
-        copyDocFiles();
+        copyDocFiles(configuration, classDoc);
      }
 
 
-     /**
-      * Copy the doc files for the current ClassDoc if necessary.
-      */
-     private void copyDocFiles() {
-        PackageDoc containingPackage = classDoc.containingPackage();
-        if((configuration.packages == null ||
-                Arrays.binarySearch(configuration.packages,
-                                    containingPackage) < 0) &&
-           ! containingPackagesSeen.contains(containingPackage.name())){
-            //Only copy doc files dir if the containing package is not
-            //documented AND if we have not documented a class from the same
-            //package already. Otherwise, we are making duplicate copies.
-            Util.copyDocFiles(configuration,
-                Util.getPackageSourcePath(configuration,
-                    classDoc.containingPackage()) +
-                DirectoryManager.getDirectoryPath(classDoc.containingPackage())
-                    + File.separator, DocletConstants.DOC_FILES_DIR_NAME, true);
-            containingPackagesSeen.add(containingPackage.name());
-        }
-     }
-
     /**
      * Build the header of the page.
      */
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.builders;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * An immutable list of XML elements parsed by the {@link LayoutParser},
+ * together with the build methods that handle the elements.
+ * <p>
+ * Every element is either the name of a component or a list holding the
+ * name followed by the sub elements.  The sub elements are compiled when
+ * the layout is created, so the same list is handed to the build method of
+ * a component on every page.  The build methods are looked up once for
+ * each builder class that builds the layout, and the arguments are created
+ * once, so building a page walks the plan without looking up methods or
+ * concatenating names.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+final class CompiledLayout extends AbstractList {
+
+    private static final Object[] NO_ARGS = new Object[] {};
+
+    private static final Class[] NO_PARAMS = new Class[] {};
+
+    private static final Class[] LIST_PARAMS = new Class[] {List.class};
+
+    /**
+     * The elements as parsed.
+     */
+    private final Object[] elements;
+
+    /**
+     * The names of the components.
+     */
+    private final String[] components;
+
+    /**
+     * The arguments of the build methods: no arguments for a simple
+     * element, the compiled sub elements for a nested one.
+     */
+    private final Object[][] args;
+
+    /**
+     * Map of the name of each builder class onto its plan.
+     */
+    private final Map plans = new HashMap();
+
+    /**
+     * Compile the given elements.
+     *
+     * @param elements the elements parsed by the {@link LayoutParser}.
+     */
+    CompiledLayout(List elements) {
+        int size = elements.size();
+        this.elements = elements.toArray();
+        components = new String[size];
+        args = new Object[size][];
+        for (int i = 0; i < size; i++) {
+            Object element = this.elements[i];
+            if (element instanceof String) {
+                components[i] = (String) element;
+                args[i] = NO_ARGS;
+            } else {
+                List list = (List) element;
+                components[i] = (String) list.get(0);
+                args[i] = new Object[] {
+                    new CompiledLayout(list.subList(1, list.size()))};
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object get(int index) {
+        return elements[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * Return the name of the component of the given element.
+     */
+    String getComponent(int index) {
+        return components[index];
+    }
+
+    /**
+     * Return the arguments of the build method of the given element.
+     */
+    Object[] getArguments(int index) {
+        return args[index];
+    }
+
+    /**
+     * Return the build methods of the elements for the given builder class.
+     * An element that the builder can not handle has no method.
+     *
+     * @param builderClass the class of the builder.
+     */
+    Method[] getPlan(Class builderClass) {
+        String key = builderClass.getName();
+        synchronized (plans) {
+            Method[] plan = (Method[]) plans.get(key);
+            if (plan == null) {
+                plan = new Method[elements.length];
+                for (int i = 0; i < plan.length; i++) {
+                    try {
+                        plan[i] = builderClass.getMethod("build" + components[i],
+                            args[i] == NO_ARGS ? NO_PARAMS : LIST_PARAMS);
+                    } catch (NoSuchMethodException e) {
+                        plan[i] = null;
+                    }
+                }
+                plans.put(key, plan);
+            }
+            return plan;
+        }
+    }
+}
@@ -12,7 +12,6 @@ import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.io.*;
 import java.util.*;
-import java.lang.reflect.*;
 
 /**
  * Builds the Constants Summary Page.
@@ -88,20 +87,6 @@ public class ConstantsSummaryBuilder extends AbstractBuilder {
         return builder;
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    public void invokeMethod(String methodName, Class[] paramClasses,
-            Object[] params)
-    throws Exception {
-        if (DEBUG) {
-            configuration.root.printError("DEBUG: " + this.getClass().getName()
-                + "." + methodName);
-        }
-        Method method = this.getClass().getMethod(methodName, paramClasses);
-        method.invoke(this, params);
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -277,8 +262,9 @@ public class ConstantsSummaryBuilder extends AbstractBuilder {
      * @return true if the given package has constant fields to document.
      */
     private boolean hasConstantField (ClassDoc classDoc) {
-        VisibleMemberMap visibleMemberMapFields = new VisibleMemberMap(classDoc,
-            VisibleMemberMap.FIELDS, configuration.nodeprecated);
+        VisibleMemberMap visibleMemberMapFields =
+            configuration.visibleMemberCache.getVisibleMemberMap(classDoc,
+                VisibleMemberMap.FIELDS, configuration.nodeprecated);
         List fields = visibleMemberMapFields.getLeafClassMembers(configuration);
         for (Iterator iter = fields.iterator(); iter.hasNext(); ) {
             FieldDoc field = (FieldDoc) iter.next();
@@ -335,10 +321,12 @@ public class ConstantsSummaryBuilder extends AbstractBuilder {
          */
         public ConstantFieldBuilder(ClassDoc classdoc) {
             this.classdoc = classdoc;
-            visibleMemberMapFields = new VisibleMemberMap(classdoc,
-                VisibleMemberMap.FIELDS, configuration.nodeprecated);
-            visibleMemberMapEnumConst = new VisibleMemberMap(classdoc,
-                VisibleMemberMap.ENUM_CONSTANTS, configuration.nodeprecated);
+            visibleMemberMapFields =
+                configuration.visibleMemberCache.getVisibleMemberMap(classdoc,
+                    VisibleMemberMap.FIELDS, configuration.nodeprecated);
+            visibleMemberMapEnumConst =
+                configuration.visibleMemberCache.getVisibleMemberMap(classdoc,
+                    VisibleMemberMap.ENUM_CONSTANTS, configuration.nodeprecated);
         }
 
         /**
@@ -10,7 +10,6 @@ package wikidoclet.doclets.internal.toolkit.builders;
 import wikidoclet.doclets.internal.toolkit.util.*;
 import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
-import java.lang.reflect.*;
 import java.util.*;
 
 /**
@@ -81,7 +80,7 @@ public class ConstructorBuilder extends AbstractMemberBuilder {
 		builder.classDoc = classDoc;
 		builder.writer = writer;
 		builder.visibleMemberMap =
-			new VisibleMemberMap(
+			configuration.visibleMemberCache.getVisibleMemberMap(
 				classDoc,
 				VisibleMemberMap.CONSTRUCTORS,
 				configuration.nodeprecated);
@@ -117,22 +116,6 @@ public class ConstructorBuilder extends AbstractMemberBuilder {
 		return constructors.size() > 0;
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	public void invokeMethod(
-		String methodName,
-		Class[] paramClasses,
-		Object[] params)
-		throws Exception {
-		if (DEBUG) {
-			configuration.root.printError(
-				"DEBUG: " + this.getClass().getName() + "." + methodName);
-		}
-		Method method = this.getClass().getMethod(methodName, paramClasses);
-		method.invoke(this, params);
-	}
-
 	/**
 	 * Returns a list of constructors that will be documented for the given class.
 	 * This information can be used for doclet specific documentation
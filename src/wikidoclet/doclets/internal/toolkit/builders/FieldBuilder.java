@@ -11,7 +11,6 @@ import wikidoclet.doclets.internal.toolkit.util.*;
 import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.util.*;
-import java.lang.reflect.*;
 
 /**
  * Builds documentation for a field.
@@ -76,7 +75,7 @@ public class FieldBuilder extends AbstractMemberBuilder {
 		builder.classDoc = classDoc;
 		builder.writer = writer;
 		builder.visibleMemberMap =
-			new VisibleMemberMap(
+			configuration.visibleMemberCache.getVisibleMemberMap(
 				classDoc,
 				VisibleMemberMap.FIELDS,
 				configuration.nodeprecated);
@@ -98,22 +97,6 @@ public class FieldBuilder extends AbstractMemberBuilder {
 		return "FieldDetails";
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	public void invokeMethod(
-		String methodName,
-		Class[] paramClasses,
-		Object[] params)
-		throws Exception {
-		if (DEBUG) {
-			configuration.root.printError(
-				"DEBUG: " + this.getClass().getName() + "." + methodName);
-		}
-		Method method = this.getClass().getMethod(methodName, paramClasses);
-		method.invoke(this, params);
-	}
-
 	/**
 	 * Returns a list of fields that will be documented for the given class.
 	 * This information can be used for doclet specific documentation
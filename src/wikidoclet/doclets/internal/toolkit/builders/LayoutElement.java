@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.builders;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * An element of the XML that specifies the layout of the documentation, as
+ * read by the {@link LayoutParser}.  Elements are immutable, so a tree may
+ * be shared by any number of threads.
+ * <p>
+ * A tree can be written to and read back from a compact binary form: the
+ * distinct element names, followed by the elements in document order, each
+ * as the index of its name and the number of its children.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+final class LayoutElement {
+
+    private static final LayoutElement[] NO_CHILDREN = new LayoutElement[] {};
+
+    private final String name;
+
+    private final LayoutElement[] children;
+
+    /**
+     * Construct a new element.
+     *
+     * @param name     the name of the element.
+     * @param children the child elements, in document order.
+     */
+    LayoutElement(String name, List children) {
+        this.name = name;
+        this.children = children.isEmpty() ? NO_CHILDREN :
+            (LayoutElement[]) children.toArray(new LayoutElement[children.size()]);
+    }
+
+    private LayoutElement(String name, LayoutElement[] children) {
+        this.name = name;
+        this.children = children;
+    }
+
+    /**
+     * Return the name of the element.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Return the element in the form the builders expect: the name of an
+     * element without children, otherwise a list holding the name followed
+     * by the children in the same form.  The lists can not be modified.
+     */
+    Object toBuilderElement() {
+        if (children.length == 0) {
+            return name;
+        }
+        List list = new ArrayList(children.length + 1);
+        list.add(name);
+        for (int i = 0; i < children.length; i++) {
+            list.add(children[i].toBuilderElement());
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Add this element and all its descendants to the given map, keyed by
+     * name, unless an element of the same name was added before.  The
+     * elements are visited in document order, so each name is mapped to its
+     * first occurrence.
+     *
+     * @param map the map of names onto elements.
+     */
+    void collect(Map map) {
+        if (! map.containsKey(name)) {
+            map.put(name, this);
+        }
+        for (int i = 0; i < children.length; i++) {
+            children[i].collect(map);
+        }
+    }
+
+    /**
+     * Write this element and all its descendants.
+     *
+     * @param out the stream to write to.
+     */
+    void write(DataOutputStream out) throws IOException {
+        List names = new ArrayList();
+        Map indexes = new HashMap();
+        collectNames(names, indexes);
+        out.writeInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            out.writeUTF((String) names.get(i));
+        }
+        write(out, indexes);
+    }
+
+    private void collectNames(List names, Map indexes) {
+        if (! indexes.containsKey(name)) {
+            indexes.put(name, new Integer(names.size()));
+            names.add(name);
+        }
+        for (int i = 0; i < children.length; i++) {
+            children[i].collectNames(names, indexes);
+        }
+    }
+
+    private void write(DataOutputStream out, Map indexes) throws IOException {
+        out.writeInt(((Integer) indexes.get(name)).intValue());
+        out.writeInt(children.length);
+        for (int i = 0; i < children.length; i++) {
+            children[i].write(out, indexes);
+        }
+    }
+
+    /**
+     * Read an element and all its descendants, as written by
+     * {@link #write(DataOutputStream)}.
+     *
+     * @param in the stream to read from.
+     * @return the element.
+     * @throws IOException if the stream can not be read or is not a tree
+     *         written by this class.
+     */
+    static LayoutElement read(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid layout");
+        }
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = in.readUTF();
+        }
+        return read(in, names);
+    }
+
+    private static LayoutElement read(DataInputStream in, String[] names)
+            throws IOException {
+        int index = in.readInt();
+        int count = in.readInt();
+        if (index < 0 || index >= names.length || count < 0) {
+            throw new IOException("Invalid layout");
+        }
+        LayoutElement[] children = count == 0 ?
+            NO_CHILDREN : new LayoutElement[count];
+        for (int i = 0; i < count; i++) {
+            children[i] = read(in, names);
+        }
+        return new LayoutElement(names[index], children);
+    }
+}
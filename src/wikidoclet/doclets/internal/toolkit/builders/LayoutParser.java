@@ -9,6 +9,7 @@ package wikidoclet.doclets.internal.toolkit.builders;
 import wikidoclet.doclets.internal.toolkit.*;
 import wikidoclet.doclets.internal.toolkit.util.*;
 import java.io.*;
+import java.security.*;
 import java.util.*;
 import org.xml.sax.*;
 import org.xml.sax.helpers.DefaultHandler;
@@ -17,28 +18,58 @@ import javax.xml.parsers.*;
 /**
  * Parse the XML that specified the order of operation for the builders.  This
  * Parser uses SAX parsing.
+ * <p>
+ * The XML is read once, into a tree of {@link LayoutElement}s, and the
+ * layout of every element is compiled from that tree.  The layouts are
+ * immutable and may be used by several threads at once.  When the XML is
+ * read from a file given by {@link Configuration#builderXMLPath}, the tree
+ * is also written next to it, to the same path followed by
+ * {@link #CACHE_SUFFIX}, together with a hash of the contents of the XML,
+ * and later runs read the tree from there for as long as the hash of the
+ * XML is the same.
  *
  * @author Jamie Ho
  * @since 1.5
  * @see SAXParser
  */
-public class LayoutParser extends DefaultHandler {
+public class LayoutParser {
 
     /**
-     * The map of XML elements that have been parsed.
+     * The suffix of the file the parsed layout of a custom builder XML is
+     * kept in.
      */
-    private Map xmlElementsMap;
+    public static final String CACHE_SUFFIX = ".layout";
+
+    private static final int CACHE_MAGIC = 0x57444c59;
+
+    private static final int CACHE_VERSION = 2;
+
+    /**
+     * The layout of an element that is not in the XML.
+     */
+    private static final List EMPTY_LAYOUT =
+        new CompiledLayout(Collections.EMPTY_LIST);
+
+    /**
+     * Map of each builder XML that was read onto the map of its element
+     * names onto their layouts.
+     */
+    private final Map layoutsMap;
+
+    /**
+     * The layouts of the builder XML of the current run, or null until
+     * they are loaded.
+     */
+    private volatile Map layouts;
 
     private Configuration configuration;
     private static LayoutParser instance;
-    private String currentRoot;
-    private boolean isParsing;
 
     /**
      * This class is a singleton.
      */
     private LayoutParser(Configuration configuration) {
-        xmlElementsMap = new HashMap();
+        layoutsMap = new HashMap();
         this.configuration = configuration;
     }
 
@@ -48,7 +79,7 @@ public class LayoutParser extends DefaultHandler {
      * @param configuration the current configuration of the doclet.
      * @return an instance of the BuilderXML.
      */
-    public static LayoutParser getInstance(Configuration configuration) {
+    public static synchronized LayoutParser getInstance(Configuration configuration) {
         if (instance == null) {
             instance = new LayoutParser(configuration);
         }
@@ -56,24 +87,53 @@ public class LayoutParser extends DefaultHandler {
     }
 
     /**
-     * Parse the XML specifying the layout of the documentation.
+     * Return the layout of the first element of the XML with the given
+     * name.  The layout is a list that holds one list: the name followed
+     * by the sub elements.  The same list is returned for every request of
+     * the same root.
      *
      * @return List the list of XML elements parsed.
      */
     public List parseXML(String root) {
-        if (xmlElementsMap.containsKey(root)) {
-            return (List) xmlElementsMap.get(root);
+        Map current = layouts;
+        if (current == null) {
+            current = loadLayouts();
         }
+        List layout = (List) current.get(root);
+        return layout == null ? EMPTY_LAYOUT : layout;
+    }
+
+    /**
+     * Load the layouts of the builder XML of the configuration for the
+     * rest of the run.  A builder XML file is read, and the hash of its
+     * contents computed, once per call; its layouts are compiled only if
+     * no earlier run read the same contents.  Called by
+     * {@link Configuration#setOptions()} once the options are known, so
+     * that the lookups of {@link #parseXML(String)} take no lock.
+     *
+     * @return the map of element names onto their layouts.
+     */
+    public synchronized Map loadLayouts() {
+        String path = configuration.builderXMLPath;
+        byte[] xml = null;
+        byte[] hash = null;
+        String key = "";
         try {
-            List xmlElements = new ArrayList();
-            xmlElementsMap.put(root, xmlElements);
-            currentRoot = root;
-            isParsing = false;
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser saxParser = factory.newSAXParser();
-            InputStream in = configuration.getBuilderXML();
-            saxParser.parse(in, this);
-            return xmlElements;
+            if (path != null) {
+                xml = readFile(new File(path));
+                hash = MessageDigest.getInstance("SHA-1").digest(xml);
+                key = path + ' ' + toHex(hash);
+            }
+            Map result = (Map) layoutsMap.get(key);
+            if (result == null) {
+                LayoutElement document = xml == null ?
+                    parse(configuration.getBuilderXML()) :
+                    readCachedLayout(new File(path), xml, hash);
+                result = compile(document);
+                layoutsMap.put(key, result);
+            }
+            layouts = result;
+            return result;
         } catch (Throwable t) {
             t.printStackTrace();
             throw new DocletAbortException();
@@ -81,42 +141,171 @@ public class LayoutParser extends DefaultHandler {
     }
 
     /**
-     * {@inheritDoc}
+     * Compile the layout of every element of the given tree.
      */
-    public void startElement(String namespaceURI, String sName, String qName,
-        Attributes attrs)
-    throws SAXException {
-        if (isParsing || qName.equals(currentRoot)) {
-            isParsing = true;
-            List xmlElements = (List) xmlElementsMap.get(currentRoot);
-            xmlElements.add(qName);
+    private static Map compile(LayoutElement document) {
+        Map elements = new HashMap();
+        document.collect(elements);
+        Map layouts = new HashMap();
+        for (Iterator iter = elements.entrySet().iterator(); iter.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            LayoutElement element = (LayoutElement) entry.getValue();
+            layouts.put(entry.getKey(), new CompiledLayout(
+                Collections.singletonList(element.toBuilderElement())));
         }
+        return layouts;
     }
 
     /**
-     * {@inheritDoc}
+     * Parse a builder XML.
+     *
+     * @param in the XML, which is closed when it was read.
+     * @return the document element.
      */
-    public void endElement(String namespaceURI, String sName, String qName)
-    throws SAXException {
-        if (! isParsing) {
-            isParsing = false;
-            return;
+    private static LayoutElement parse(InputStream in) throws Exception {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        SAXParser saxParser = factory.newSAXParser();
+        TreeHandler handler = new TreeHandler();
+        try {
+            saxParser.parse(in, handler);
+        } finally {
+            in.close();
         }
-        List xmlElements = (List) xmlElementsMap.get(currentRoot);
-        if (xmlElements.get(xmlElements.size()-1).equals(qName)) {
-            return;
-        } else {
-            List subElements = new ArrayList();
-            int targetIndex = xmlElements.indexOf(qName);
-            int size = xmlElements.size();
-            for (int i = targetIndex; i < size; i++) {
-                subElements.add(xmlElements.get(targetIndex));
-                xmlElements.remove(targetIndex);
+        return handler.document;
+    }
+
+    /**
+     * Return the tree of the given builder XML file, from its cache if the
+     * cache was written for the same contents, and otherwise from the XML,
+     * writing the cache.
+     *
+     * @param file the builder XML file.
+     * @param xml  the contents of the file.
+     * @param hash the hash of the contents.
+     */
+    private static LayoutElement readCachedLayout(File file, byte[] xml,
+            byte[] hash) throws Exception {
+        File cache = new File(file.getPath() + CACHE_SUFFIX);
+        if (cache.exists()) {
+            try {
+                DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(cache)));
+                try {
+                    byte[] cachedHash = new byte[hash.length];
+                    if (in.readInt() == CACHE_MAGIC &&
+                            in.readInt() == CACHE_VERSION &&
+                            in.readInt() == hash.length) {
+                        in.readFully(cachedHash);
+                        if (Arrays.equals(hash, cachedHash)) {
+                            return LayoutElement.read(in);
+                        }
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                // Parse the XML again.
+            }
+        }
+        LayoutElement document = parse(new ByteArrayInputStream(xml));
+        writeCachedLayout(cache, document, hash);
+        return document;
+    }
+
+    /**
+     * Write the tree to the cache, or leave the cache alone if it can not
+     * be written.  The tree is written to a new file first, so that a run
+     * never reads a partly written cache.
+     */
+    private static void writeCachedLayout(File cache, LayoutElement document,
+            byte[] hash) {
+        File tmp = null;
+        try {
+            File dir = cache.getAbsoluteFile().getParentFile();
+            tmp = File.createTempFile(cache.getName(), null, dir);
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeInt(hash.length);
+                out.write(hash);
+                document.write(out);
+            } finally {
+                out.close();
+            }
+            cache.delete();
+            if (tmp.renameTo(cache)) {
+                tmp = null;
+            }
+        } catch (IOException e) {
+            // The layout is parsed again by the next run.
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
             }
-            //Save the sub elements as a list.
-            xmlElements.add(subElements);
         }
-        isParsing = ! qName.equals(currentRoot);
     }
-}
 
+    private static byte[] readFile(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < bytes.length; i++) {
+            sb.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(bytes[i] & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Build the tree of {@link LayoutElement}s while the XML is parsed.
+     */
+    private static class TreeHandler extends DefaultHandler {
+
+        /**
+         * The lists of children of the open elements, innermost last.
+         */
+        private final LinkedList children = new LinkedList();
+
+        /**
+         * The document element, once it is closed.
+         */
+        LayoutElement document;
+
+        /**
+         * {@inheritDoc}
+         */
+        public void startElement(String namespaceURI, String sName,
+                String qName, Attributes attrs) throws SAXException {
+            children.addLast(new ArrayList());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void endElement(String namespaceURI, String sName,
+                String qName) throws SAXException {
+            LayoutElement element =
+                new LayoutElement(qName, (List) children.removeLast());
+            if (children.isEmpty()) {
+                document = element;
+            } else {
+                ((List) children.getLast()).add(element);
+            }
+        }
+    }
+}
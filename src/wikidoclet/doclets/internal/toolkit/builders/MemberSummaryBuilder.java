@@ -11,7 +11,6 @@ import wikidoclet.doclets.internal.toolkit.util.*;
 import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.util.*;
-import java.lang.reflect.*;
 
 /**
  * Builds the member summary.
@@ -86,7 +85,7 @@ public class MemberSummaryBuilder extends AbstractMemberBuilder {
             new VisibleMemberMap[VisibleMemberMap.NUM_MEMBER_TYPES];
         for (int i = 0; i < VisibleMemberMap.NUM_MEMBER_TYPES; i++) {
             visibleMemberMaps[i] =
-                new VisibleMemberMap(
+                configuration.visibleMemberCache.getVisibleMemberMap(
                     classDoc,
                     i,
                     configuration.nodeprecated);
@@ -156,22 +155,6 @@ public class MemberSummaryBuilder extends AbstractMemberBuilder {
 		return visibleMemberMaps[type].getLeafClassMembers(configuration);
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	public void invokeMethod(
-		String methodName,
-		Class[] paramClasses,
-		Object[] params)
-		throws Exception {
-		if (DEBUG) {
-			configuration.root.printError(
-				"DEBUG: " + this.getClass().getName() + "." + methodName);
-		}
-		Method method = this.getClass().getMethod(methodName, paramClasses);
-		method.invoke(this, params);
-	}
-
 	/**
 	 * Return true it there are any members to summarize.
 	 *
@@ -300,9 +283,10 @@ public class MemberSummaryBuilder extends AbstractMemberBuilder {
                     //Inherit comments from overriden or implemented method if
                     //necessary.
                     DocFinder.Output inheritedDoc =
-                        DocFinder.search(new DocFinder.Input((MethodDoc) member));
+                        DocFinder.search(configuration,
+                            new DocFinder.Input((MethodDoc) member));
                     if (inheritedDoc.holder != null &&
-                            inheritedDoc.holder.firstSentenceTags().length > 0) {
+                            Util.firstSentenceTags(inheritedDoc.holder).length > 0) {
                         firstSentenceTags = inheritedDoc.holder.firstSentenceTags();
                     }
                 }
@@ -11,7 +11,6 @@ import wikidoclet.doclets.internal.toolkit.util.*;
 import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.util.*;
-import java.lang.reflect.*;
 /**
  * Builds documentation for a method.
  *
@@ -71,7 +70,7 @@ public class MethodBuilder extends AbstractMemberBuilder {
 		builder.classDoc = classDoc;
 		builder.writer = writer;
 		builder.visibleMemberMap =
-			new VisibleMemberMap(
+			configuration.visibleMemberCache.getVisibleMemberMap(
 				classDoc,
 				VisibleMemberMap.METHODS,
 				configuration.nodeprecated);
@@ -93,22 +92,6 @@ public class MethodBuilder extends AbstractMemberBuilder {
 		return "MethodDetails";
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	public void invokeMethod(
-		String methodName,
-		Class[] paramClasses,
-		Object[] params)
-		throws Exception {
-		if (DEBUG) {
-			configuration.root.printError(
-				"DEBUG: " + this.getClass().getName() + "." + methodName);
-		}
-		Method method = this.getClass().getMethod(methodName, paramClasses);
-		method.invoke(this, params);
-	}
-
 	/**
 	 * Returns a list of methods that will be documented for the given class.
 	 * This information can be used for doclet specific documentation
@@ -192,7 +175,7 @@ public class MethodBuilder extends AbstractMemberBuilder {
             MethodDoc method = (MethodDoc) methods.get(currentMethodIndex);
 
             if (method.inlineTags().length == 0) {
-                DocFinder.Output docs = DocFinder.search(
+                DocFinder.Output docs = DocFinder.search(configuration,
                     new DocFinder.Input(method));
                 method = docs.inlineTags != null && docs.inlineTags.length > 0 ?
                     (MethodDoc) docs.holder : method;
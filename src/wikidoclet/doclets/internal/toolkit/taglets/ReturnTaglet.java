@@ -69,7 +69,8 @@ public class ReturnTaglet extends BaseExecutableMemberTaglet
         //Inherit @return tag if necessary.
         if (tags.length == 0) {
             DocFinder.Output inheritedDoc =
-                DocFinder.search(new DocFinder.Input((MethodDoc) holder, this));
+                DocFinder.search(writer.configuration(),
+                    new DocFinder.Input((MethodDoc) holder, this));
             tags = inheritedDoc.holderTag == null ? tags : new Tag[] {inheritedDoc.holderTag};
         }
         return tags.length > 0 ? writer.returnTagOutput(tags[0]) : null;
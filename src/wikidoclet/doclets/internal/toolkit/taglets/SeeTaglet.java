@@ -46,7 +46,8 @@ public class SeeTaglet extends BaseTaglet implements InheritableTaglet {
         SeeTag[] tags = holder.seeTags();
         if (tags.length == 0 && holder instanceof MethodDoc) {
             DocFinder.Output inheritedDoc =
-                DocFinder.search(new DocFinder.Input((MethodDoc) holder, this));
+                DocFinder.search(writer.configuration(),
+                    new DocFinder.Input((MethodDoc) holder, this));
             if (inheritedDoc.holder != null) {
                 tags = inheritedDoc.holder.seeTags();
             }
@@ -14,6 +14,7 @@ import java.io.*;
 import java.lang.reflect.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Manages the<code>Taglet</code>s used by doclets.
@@ -45,6 +46,11 @@ public class TagletManager {
      */
     private LinkedHashMap customTags;
 
+    /**
+     * The classes of the taglets loaded with -taglet.
+     */
+    private final List tagletClasses = new ArrayList();
+
     /**
      * The array of custom tags that can appear in packages.
      */
@@ -134,6 +140,25 @@ public class TagletManager {
      */
     private boolean showauthor;
 
+    /**
+     * What is known about each tag name that was checked, keyed by the
+     * name as returned by {@link Tag#name()}.  Each name is classified once;
+     * after that a check of a tag is a single lookup.  The table is cleared
+     * when a custom tag is added.
+     */
+    private final ConcurrentMap tagInfos = new ConcurrentHashMap();
+
+    /**
+     * The documentation whose tags were checked by {@link #checkTags(Doc)}.
+     */
+    private final Set checkedDocs = new HashSet();
+
+    /**
+     * True once {@link #checkTags(Doc)} has been called for all the
+     * documentation of the run, see {@link #setAllTagsChecked(boolean)}.
+     */
+    private volatile boolean allTagsChecked;
+
     /**
      * Construct a new <code>TagletManager</code>.
      * @param nosince true if we do not want to use @since tags.
@@ -172,6 +197,7 @@ public class TagletManager {
             }
             customTags.put(name, customTag);
             checkTagName(name);
+            tagInfos.clear();
         }
     }
 
@@ -193,6 +219,7 @@ public class TagletManager {
             cpString = appendPath(tagletPath, cpString);
             URLClassLoader appClassLoader = new URLClassLoader(pathToURLs(cpString));
             customTagClass = appClassLoader.loadClass(classname);
+            tagletClasses.add(customTagClass);
             Method meth = customTagClass.getMethod("register",
                                                    new Class[] {Class.forName("java.util.Map")});
             Object[] list = customTags.values().toArray();
@@ -214,6 +241,7 @@ public class TagletManager {
         } catch (Exception exc) {
             message.error("doclet.Error_taglet_not_registered", exc.getClass().getName(), classname);
         }
+        tagInfos.clear();
 
     }
 
@@ -310,6 +338,7 @@ public class TagletManager {
             customTags.remove(tagName);
             customTags.put(tagName, tag);
         }
+        tagInfos.clear();
     }
 
     /**
@@ -348,57 +377,191 @@ public class TagletManager {
      * custom tags.
      * @param name the name of the seen custom tag.
      */
-    public void seenCustomTag(String name) {
+    public synchronized void seenCustomTag(String name) {
         unseenCustomTags.remove(name);
     }
 
+    /**
+     * Check all the tags of the given documentation, both block tags and
+     * inline tags, including the inline tags of each block tag that is
+     * printed: those that have a taglet, and the deprecated tag.  This is
+     * done, one doc after the other, for all the documentation the pages
+     * print before any page is generated, see
+     * {@link #setAllTagsChecked(boolean)}.
+     *
+     * @param doc the Doc object whose tags are checked.
+     */
+    public void checkTags(Doc doc) {
+        Tag[] tags = doc.tags();
+        checkTags(doc, tags, false, true);
+        for (int i = 0; i < tags.length; i++) {
+            if (getTagInfo(tags[i].name()).taglet != null ||
+                    tags[i].kind().equals("@deprecated")) {
+                checkTags(doc, tags[i].inlineTags(), true, true);
+            }
+        }
+        checkTags(doc, doc.inlineTags(), true, true);
+        checkedDocs.add(doc);
+    }
+
+    /**
+     * Record whether {@link #checkTags(Doc)} has been called for all the
+     * documentation of the run.  If so, the renderers need not check the
+     * tags of that documentation again; the tags of any other
+     * documentation are still checked when they are printed.  Setting it
+     * to false forgets the documentation that was checked.
+     *
+     * @param checked true if all the documentation of the run was checked.
+     */
+    public void setAllTagsChecked(boolean checked) {
+        if (! checked) {
+            checkedDocs.clear();
+        }
+        allTagsChecked = checked;
+    }
+
     /**
      * Given an array of <code>Tag</code>s, check for spelling mistakes.
+     * Nothing is done if the tags belong to documentation that was checked
+     * before generation, unless they are checked on behalf of some other
+     * documentation that inherits them.
      * @param doc the Doc object that holds the tags.
      * @param tags the list of <code>Tag</code>s to check.
      * @param areInlineTags true if the array of tags are inline and false otherwise.
      */
     public void checkTags(Doc doc, Tag[] tags, boolean areInlineTags) {
-        if (tags == null) {
+        checkTags(doc, tags, areInlineTags, false);
+    }
+
+    private void checkTags(Doc doc, Tag[] tags, boolean areInlineTags,
+            boolean validating) {
+        if (tags == null || tags.length == 0) {
             return;
         }
-        Taglet taglet;
-        for (int i = 0; i < tags.length; i++) {
-            String name = tags[i].name();
-            if (name.length() > 0 && name.charAt(0) == '@') {
-                name = name.substring(1, name.length());
+        if (! validating && allTagsChecked) {
+            Doc holder = tags[0].holder();
+            if ((doc == null || doc == holder) &&
+                    checkedDocs.contains(holder)) {
+                return;
             }
-            if (! (standardTags.contains(name) || customTags.containsKey(name))) {
-                if (standardTagsLowercase.contains(name.toLowerCase())) {
-                    message.warning(tags[i].position(), "doclet.UnknownTagLowercase", tags[i].name());
-                    continue;
-                } else {
-                    message.warning(tags[i].position(), "doclet.UnknownTag", tags[i].name());
-                    continue;
-                }
+        }
+        int location = getLocation(doc);
+        for (int i = 0; i < tags.length; i++) {
+            TagInfo info = getTagInfo(tags[i].name());
+            if (info.unknownKey != null) {
+                message.warning(tags[i].position(), info.unknownKey, tags[i].name());
+                continue;
             }
             //Check if this tag is being used in the wrong location.
-            if((taglet = (Taglet) customTags.get(name)) != null) {
-                if (areInlineTags && ! taglet.isInlineTag()) {
-                    printTagMisuseWarn(taglet, tags[i], "inline");
+            if (info.taglet != null) {
+                if (areInlineTags && (info.locations & INLINE) == 0) {
+                    printTagMisuseWarn(info.taglet, tags[i], "inline");
                 }
-                if ((doc instanceof RootDoc) && ! taglet.inOverview()) {
-                    printTagMisuseWarn(taglet, tags[i], "overview");
-                } else if ((doc instanceof PackageDoc) && ! taglet.inPackage()) {
-                    printTagMisuseWarn(taglet, tags[i], "package");
-                } else if ((doc instanceof ClassDoc) && ! taglet.inType()) {
-                    printTagMisuseWarn(taglet, tags[i], "class");
-                } else if ((doc instanceof ConstructorDoc) && ! taglet.inConstructor()) {
-                    printTagMisuseWarn(taglet, tags[i], "constructor");
-                } else if ((doc instanceof FieldDoc) && ! taglet.inField()) {
-                    printTagMisuseWarn(taglet, tags[i], "field");
-                } else if ((doc instanceof MethodDoc) && ! taglet.inMethod()) {
-                    printTagMisuseWarn(taglet, tags[i], "method");
+                if (location != 0 && (info.locations & location) == 0) {
+                    printTagMisuseWarn(info.taglet, tags[i],
+                        getLocationName(location));
                 }
             }
         }
     }
 
+    private static final int OVERVIEW = 1;
+    private static final int PACKAGE = 2;
+    private static final int TYPE = 4;
+    private static final int CONSTRUCTOR = 8;
+    private static final int FIELD = 16;
+    private static final int METHOD = 32;
+    private static final int INLINE = 64;
+
+    /**
+     * Return the location of the given documentation, or 0 if its kind
+     * of documentation does not restrict the tags.
+     */
+    private static int getLocation(Doc doc) {
+        if (doc instanceof RootDoc) {
+            return OVERVIEW;
+        } else if (doc instanceof PackageDoc) {
+            return PACKAGE;
+        } else if (doc instanceof ClassDoc) {
+            return TYPE;
+        } else if (doc instanceof ConstructorDoc) {
+            return CONSTRUCTOR;
+        } else if (doc instanceof FieldDoc) {
+            return FIELD;
+        } else if (doc instanceof MethodDoc) {
+            return METHOD;
+        }
+        return 0;
+    }
+
+    private static String getLocationName(int location) {
+        switch (location) {
+            case OVERVIEW:
+                return "overview";
+            case PACKAGE:
+                return "package";
+            case TYPE:
+                return "class";
+            case CONSTRUCTOR:
+                return "constructor";
+            case FIELD:
+                return "field";
+            default:
+                return "method";
+        }
+    }
+
+    /**
+     * Return what is known about the tag with the given name, classifying
+     * the name the first time it is seen.
+     *
+     * @param tagName the name of the tag, as returned by {@link Tag#name()}.
+     */
+    private TagInfo getTagInfo(String tagName) {
+        TagInfo info = (TagInfo) tagInfos.get(tagName);
+        if (info != null) {
+            return info;
+        }
+        String name = tagName;
+        if (name.length() > 0 && name.charAt(0) == '@') {
+            name = name.substring(1, name.length());
+        }
+        Taglet taglet = null;
+        String unknownKey = null;
+        int locations = 0;
+        if (! (standardTags.contains(name) || customTags.containsKey(name))) {
+            unknownKey = standardTagsLowercase.contains(name.toLowerCase()) ?
+                "doclet.UnknownTagLowercase" : "doclet.UnknownTag";
+        } else if ((taglet = (Taglet) customTags.get(name)) != null) {
+            locations = (taglet.inOverview() ? OVERVIEW : 0) |
+                (taglet.inPackage() ? PACKAGE : 0) |
+                (taglet.inType() ? TYPE : 0) |
+                (taglet.inConstructor() ? CONSTRUCTOR : 0) |
+                (taglet.inField() ? FIELD : 0) |
+                (taglet.inMethod() ? METHOD : 0) |
+                (taglet.isInlineTag() ? INLINE : 0);
+        }
+        info = new TagInfo(taglet, unknownKey, locations);
+        TagInfo previous = (TagInfo) tagInfos.putIfAbsent(tagName, info);
+        return previous == null ? info : previous;
+    }
+
+    /**
+     * What is known about a tag name: its taglet, if any, the locations
+     * the taglet allows, and the key of the warning for an unknown tag.
+     */
+    private static class TagInfo {
+        final Taglet taglet;
+        final String unknownKey;
+        final int locations;
+
+        TagInfo(Taglet taglet, String unknownKey, int locations) {
+            this.taglet = taglet;
+            this.unknownKey = unknownKey;
+            this.locations = locations;
+        }
+    }
+
     /**
      * Given the taglet, the tag and the type of documentation that the tag
      * was found in, print a tag misuse warning.
@@ -739,6 +902,16 @@ public class TagletManager {
         }
 
     }
+
+    /**
+     * Return the classes of the taglets loaded with -taglet, in the order
+     * they were loaded.
+     *
+     * @return the classes of the loaded taglets.
+     */
+    public Class[] getTagletClasses() {
+        return (Class[]) tagletClasses.toArray(new Class[] {});
+    }
 }
 
 
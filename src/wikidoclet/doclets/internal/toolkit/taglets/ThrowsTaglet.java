@@ -96,11 +96,12 @@ public class ThrowsTaglet extends BaseExecutableMemberTaglet
             Set declaredExceptionTags = new LinkedHashSet();
             for (int j = 0; j < declaredExceptionTypes.length; j++) {
                 DocFinder.Output inheritedDoc =
-                    DocFinder.search(new DocFinder.Input((MethodDoc) holder, this,
+                    DocFinder.search(writer.configuration(),
+                        new DocFinder.Input((MethodDoc) holder, this,
                         declaredExceptionTypes[j].typeName()));
                 if (inheritedDoc.tagList.size() == 0) {
-                    inheritedDoc = DocFinder.search(new DocFinder.Input(
-                        (MethodDoc) holder, this,
+                    inheritedDoc = DocFinder.search(writer.configuration(),
+                        new DocFinder.Input((MethodDoc) holder, this,
                         declaredExceptionTypes[j].qualifiedTypeName()));
                 }
                 declaredExceptionTags.addAll(inheritedDoc.tagList);
@@ -148,7 +149,7 @@ public class ThrowsTaglet extends BaseExecutableMemberTaglet
         if (throwTags.length > 0) {
             for (int i = 0; i < throwTags.length; ++i) {
                 ThrowsTag tt = throwTags[i];
-                ClassDoc cd = tt.exception();
+                ClassDoc cd = Util.getException(tt);
                 if ((!allowDups) && (alreadyDocumented.contains(tt.exceptionName()) ||
                     (cd != null && alreadyDocumented.contains(cd.qualifiedName())))) {
                     continue;
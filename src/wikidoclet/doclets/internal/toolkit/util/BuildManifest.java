@@ -0,0 +1,504 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import wikidoclet.doclets.internal.toolkit.*;
+import com.sun.javadoc.*;
+import java.io.*;
+import java.net.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * Records a hash of the inputs of every class and package page, so that a
+ * later run with the -incremental option can skip the pages whose inputs
+ * have not changed.  The manifest is kept in the destination directory.
+ * <p>
+ * The hash of a class page covers:
+ * <ul>
+ * <li>the options of the run,
+ * <li>the code that generates the pages: the version of the doclet, the
+ *     contents of the jar or directory the doclet was loaded from, those
+ *     of the taglets loaded with -taglet, and the version of Java, which
+ *     is printed in every page,
+ * <li>the API of every documented class: names, modifiers, supertypes,
+ *     member signatures and constant values, because these decide how
+ *     links to other classes and {&#064;value} tags are rendered,
+ * <li>the comments, annotations and member signatures of the class and of
+ *     all its superclasses and superinterfaces, from which comments are
+ *     inherited,
+ * <li>the previous and next class in the navigation bar.
+ * </ul>
+ * The hash of a package page covers the options and the API, the package
+ * comment, the comments of the classes in the package and the previous and
+ * next package.  Source line numbers are only part of the hashes when the
+ * pages link to the source.
+ * <p>
+ * The manifest file is removed when it is read and written back only after
+ * the run completed, so a page is never trusted after a failed run.
+ * <p>
+ * A page that is skipped is not rendered, so the warnings found while
+ * rendering it, such as links that cannot be resolved, are not reported
+ * again.  The warnings of the tag check that precedes the generation are
+ * reported on every run.  The doc files are copied for skipped pages too.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+public class BuildManifest {
+
+    /**
+     * The name of the manifest file in the destination directory.
+     */
+    public static final String FILE_NAME = ".build-manifest";
+
+    /**
+     * The options that do not change the generated pages.
+     */
+    private static final Set NEUTRAL_OPTIONS = new HashSet(Arrays.asList(
+        new String[] {"-incremental", "-outputbuffer", "-pagebuffer",
+            "-quiet", "-threads"}));
+
+    private final Configuration configuration;
+
+    private final File file;
+
+    /**
+     * The hashes of the previous run, keyed by page path.
+     */
+    private final Properties previous = new Properties();
+
+    /**
+     * The hashes of this run, keyed by page path.
+     */
+    private final Properties current = new Properties();
+
+    /**
+     * The hash of the options and of the API of all documented classes.
+     */
+    private byte[] apiHash = null;
+    /**
+     * The hashes of the comments and members of single classes, keyed by
+     * qualified name.
+     */
+    private final Map classHashes = new HashMap();
+
+    private int upToDate = 0;
+
+    private int regenerated = 0;
+
+    /**
+     * Read the manifest of the previous run, if there is one.
+     *
+     * @param configuration the configuration of this run.
+     */
+    public BuildManifest(Configuration configuration) {
+        this.configuration = configuration;
+        file = new File(configuration.destDirName + FILE_NAME);
+        if (file.exists()) {
+            try {
+                InputStream in = new FileInputStream(file);
+                try {
+                    previous.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                previous.clear();
+            }
+            file.delete();
+        }
+    }
+
+    /**
+     * Return true if the page of the given class does not have to be
+     * generated again.
+     *
+     * @param cd   the class to document.
+     * @param prev the previous class in the navigation bar, or null.
+     * @param next the next class in the navigation bar, or null.
+     */
+    public boolean isUpToDate(ClassDoc cd, ClassDoc prev, ClassDoc next) {
+        MessageDigest digest = newDigest();
+        digest.update(getApiHash());
+        update(digest, "class");
+        update(digest, cd.qualifiedName());
+        update(digest, prev == null ? "" : prev.qualifiedName());
+        update(digest, next == null ? "" : next.qualifiedName());
+        Set seen = new HashSet();
+        addClassHashes(cd, seen, digest);
+        return check(new String[] {DirectoryManager.getPathToClass(cd)},
+            digest);
+    }
+
+    /**
+     * Return true if the pages of the given package do not have to be
+     * generated again.
+     *
+     * @param pd    the package to document.
+     * @param prev  the previous package in the navigation bar, or null.
+     * @param next  the next package in the navigation bar, or null.
+     * @param files the names of the pages of the package.
+     */
+    public boolean isUpToDate(PackageDoc pd, PackageDoc prev, PackageDoc next,
+            String[] files) {
+        MessageDigest digest = newDigest();
+        digest.update(getApiHash());
+        update(digest, "package");
+        update(digest, pd.name());
+        update(digest, prev == null ? "" : prev.name());
+        update(digest, next == null ? "" : next.name());
+        update(digest, pd.getRawCommentText());
+        updateAnnotations(digest, pd.annotations());
+        ClassDoc[] classes = sortByName(pd.allClasses());
+        for (int i = 0; i < classes.length; i++) {
+            update(digest, classes[i].qualifiedName());
+            update(digest, classes[i].getRawCommentText());
+        }
+        String[] paths = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            paths[i] = DirectoryManager.getPathToPackage(pd, files[i]);
+        }
+        return check(paths, digest);
+    }
+
+    /**
+     * Write the manifest of this run.
+     */
+    public synchronized void store() {
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                current.store(out, null);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            configuration.message.warning((SourcePosition) null,
+                "doclet.Manifest_Not_Written", file.getPath(), e.toString());
+        }
+        configuration.message.notice("doclet.Incremental_Report",
+            String.valueOf(upToDate), String.valueOf(regenerated));
+    }
+
+    /**
+     * Record the hash of the given pages and return true if it is the same
+     * as in the previous run and all the pages exist.
+     */
+    private synchronized boolean check(String[] paths, MessageDigest digest) {
+        String hash = toHex(digest.digest());
+        boolean result = true;
+        for (int i = 0; i < paths.length; i++) {
+            current.setProperty(paths[i], hash);
+            result = result && hash.equals(previous.getProperty(paths[i])) &&
+                new File(configuration.destDirName + paths[i]).exists();
+        }
+        if (result) {
+            upToDate++;
+        } else {
+            regenerated++;
+        }
+        return result;
+    }
+
+    /**
+     * Add the hashes of the given class and of all its supertypes that are
+     * not in the given set.
+     */
+    private void addClassHashes(ClassDoc cd, Set seen, MessageDigest digest) {
+        if (cd == null || ! seen.add(cd.qualifiedName())) {
+            return;
+        }
+        digest.update(getClassHash(cd));
+        addClassHashes(cd.superclass(), seen, digest);
+        ClassDoc[] interfaces = cd.interfaces();
+        for (int i = 0; i < interfaces.length; i++) {
+            addClassHashes(interfaces[i], seen, digest);
+        }
+    }
+
+    /**
+     * Return the hash of the code, of the options and of the API of the
+     * documented classes.
+     */
+    private synchronized byte[] getApiHash() {
+        if (apiHash != null) {
+            return apiHash;
+        }
+        MessageDigest digest = newDigest();
+        update(digest, DocletConstants.DOCLET_VERSION);
+        Set locations = new HashSet();
+        updateCode(digest, BuildManifest.class, locations);
+        updateCode(digest, configuration.getClass(), locations);
+        Class[] taglets = configuration.tagletManager.getTagletClasses();
+        for (int i = 0; i < taglets.length; i++) {
+            update(digest, taglets[i].getName());
+            updateCode(digest, taglets[i], locations);
+        }
+        update(digest, configuration.getDocletSpecificBuildDate());
+        String[][] options = configuration.root.options();
+        for (int i = 0; i < options.length; i++) {
+            if (NEUTRAL_OPTIONS.contains(options[i][0].toLowerCase())) {
+                continue;
+            }
+            for (int j = 0; j < options[i].length; j++) {
+                update(digest, options[i][j]);
+            }
+        }
+        ClassDoc[] classes = sortByName(configuration.root.classes());
+        for (int i = 0; i < classes.length; i++) {
+            ClassDoc cd = classes[i];
+            update(digest, cd.qualifiedName());
+            update(digest, cd.modifiers());
+            update(digest, String.valueOf(cd.isIncluded()));
+            update(digest, String.valueOf(cd.isInterface()));
+            update(digest, String.valueOf(cd.isEnum()));
+            update(digest, String.valueOf(cd.isAnnotationType()));
+            update(digest, String.valueOf(cd.tags("deprecated").length));
+            update(digest, String.valueOf(cd.superclassType()));
+            updateTypes(digest, cd.interfaceTypes());
+            updateTypes(digest, cd.typeParameters());
+            updateMembers(digest, cd, false);
+        }
+        apiHash = digest.digest();
+        return apiHash;
+    }
+
+    /**
+     * Return the hash of the comments, annotations and members of one class.
+     */
+    private byte[] getClassHash(ClassDoc cd) {
+        String name = cd.qualifiedName();
+        synchronized (classHashes) {
+            byte[] hash = (byte[]) classHashes.get(name);
+            if (hash != null) {
+                return hash;
+            }
+        }
+        MessageDigest digest = newDigest();
+        update(digest, name);
+        update(digest, cd.getRawCommentText());
+        updatePosition(digest, cd);
+        updateAnnotations(digest, cd.annotations());
+        updateMembers(digest, cd, true);
+        ClassDoc[] inner = cd.innerClasses(false);
+        for (int i = 0; i < inner.length; i++) {
+            update(digest, inner[i].qualifiedName());
+            update(digest, inner[i].getRawCommentText());
+        }
+        byte[] hash = digest.digest();
+        synchronized (classHashes) {
+            classHashes.put(name, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Add the contents of the jar or directory the given class was loaded
+     * from, unless it is in the given set of locations, or of the class
+     * file alone if it was not loaded from a file.
+     */
+    private static void updateCode(MessageDigest digest, Class c,
+            Set locations) {
+        File file = null;
+        CodeSource source = c.getProtectionDomain().getCodeSource();
+        if (source != null && source.getLocation() != null &&
+                source.getLocation().getProtocol().equals("file")) {
+            try {
+                file = new File(source.getLocation().toURI());
+            } catch (URISyntaxException e) {
+                file = new File(source.getLocation().getPath());
+            }
+        }
+        try {
+            if (file != null && file.exists()) {
+                if (locations.add(file.getPath())) {
+                    updateFile(digest, file, file.getName());
+                }
+            } else {
+                String name = c.getName();
+                updateStream(digest, c.getResourceAsStream(
+                    name.substring(name.lastIndexOf('.') + 1) + ".class"));
+            }
+        } catch (IOException e) {
+            // Never match the pages of a previous run.
+            update(digest, String.valueOf(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Add the names and contents of a file, or of all the files in a
+     * directory, in the order of their names.
+     */
+    private static void updateFile(MessageDigest digest, File file,
+            String name) throws IOException {
+        update(digest, name);
+        if (file.isDirectory()) {
+            String[] names = file.list();
+            if (names == null) {
+                throw new IOException(file.getPath());
+            }
+            Arrays.sort(names);
+            for (int i = 0; i < names.length; i++) {
+                updateFile(digest, new File(file, names[i]),
+                    name + "/" + names[i]);
+            }
+        } else {
+            updateStream(digest, new FileInputStream(file));
+        }
+    }
+
+    private static void updateStream(MessageDigest digest, InputStream in)
+            throws IOException {
+        if (in == null) {
+            throw new FileNotFoundException();
+        }
+        try {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                digest.update(buf, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Add the members of a class, with their comments if requested.
+     */
+    private void updateMembers(MessageDigest digest, ClassDoc cd,
+            boolean withComments) {
+        List members = new ArrayList();
+        members.addAll(Arrays.asList(cd.fields(false)));
+        members.addAll(Arrays.asList(cd.enumConstants()));
+        members.addAll(Arrays.asList(cd.constructors(false)));
+        members.addAll(Arrays.asList(cd.methods(false)));
+        if (cd instanceof AnnotationTypeDoc) {
+            members.addAll(Arrays.asList(
+                ((AnnotationTypeDoc) cd).elements()));
+        }
+        members.addAll(Arrays.asList(cd.innerClasses(false)));
+        for (Iterator iter = members.iterator(); iter.hasNext(); ) {
+            ProgramElementDoc member = (ProgramElementDoc) iter.next();
+            update(digest, member.name());
+            update(digest, member.modifiers());
+            update(digest, String.valueOf(member.isIncluded()));
+            update(digest, String.valueOf(member.tags("deprecated").length));
+            if (member instanceof ExecutableMemberDoc) {
+                ExecutableMemberDoc emd = (ExecutableMemberDoc) member;
+                update(digest, emd.signature());
+                updateTypes(digest, emd.thrownExceptionTypes());
+                updateTypes(digest, emd.typeParameters());
+            }
+            if (member instanceof MethodDoc) {
+                update(digest,
+                    String.valueOf(((MethodDoc) member).returnType()));
+            }
+            if (member instanceof FieldDoc) {
+                FieldDoc field = (FieldDoc) member;
+                update(digest, String.valueOf(field.type()));
+                update(digest, field.constantValueExpression());
+            }
+            if (member instanceof AnnotationTypeElementDoc) {
+                update(digest, String.valueOf(
+                    ((AnnotationTypeElementDoc) member).defaultValue()));
+            }
+            if (withComments) {
+                update(digest, member.getRawCommentText());
+                updatePosition(digest, member);
+                updateAnnotations(digest, member.annotations());
+                if (member instanceof ExecutableMemberDoc) {
+                    Parameter[] params =
+                        ((ExecutableMemberDoc) member).parameters();
+                    for (int i = 0; i < params.length; i++) {
+                        update(digest, params[i].name());
+                        updateAnnotations(digest, params[i].annotations());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the source line of a doc, if the pages link to the source.
+     */
+    private void updatePosition(MessageDigest digest, Doc doc) {
+        if (configuration.linksource) {
+            SourcePosition pos = doc.position();
+            update(digest, pos == null ? "" : String.valueOf(pos.line()));
+        }
+    }
+
+    private static void updateAnnotations(MessageDigest digest,
+            AnnotationDesc[] annotations) {
+        for (int i = 0; i < annotations.length; i++) {
+            update(digest, annotations[i].toString());
+        }
+    }
+
+    private static void updateTypes(MessageDigest digest, Type[] types) {
+        for (int i = 0; i < types.length; i++) {
+            update(digest, types[i].toString());
+        }
+    }
+
+    /**
+     * Add a string, followed by a separator, to the digest.
+     */
+    private static void update(MessageDigest digest, String s) {
+        if (s != null) {
+            try {
+                digest.update(s.getBytes("UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new DocletAbortException();
+            }
+        }
+        digest.update((byte) 0);
+    }
+
+    private static ClassDoc[] sortByName(ClassDoc[] classes) {
+        ClassDoc[] sorted = (ClassDoc[]) classes.clone();
+        Arrays.sort(sorted, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                return ((ClassDoc) o1).qualifiedName().compareTo(
+                    ((ClassDoc) o2).qualifiedName());
+            }
+        });
+        return sorted;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new DocletAbortException();
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < bytes.length; i++) {
+            sb.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(bytes[i] & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
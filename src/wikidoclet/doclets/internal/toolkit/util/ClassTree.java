@@ -354,4 +354,20 @@ public class ClassTree {
     public List baseAnnotationTypes() {
         return baseAnnotationTypes;
     }
+
+    /**
+     * Drop the tree.  The tree and the class use pages are the last pages
+     * that need it; the rest of the run has no use for the memory it takes.
+     */
+    public void clear() {
+        baseclasses.clear();
+        subclasses.clear();
+        baseinterfaces.clear();
+        subinterfaces.clear();
+        baseEnums.clear();
+        subEnums.clear();
+        baseAnnotationTypes.clear();
+        subAnnotationTypes.clear();
+        implementingclasses.clear();
+    }
 }
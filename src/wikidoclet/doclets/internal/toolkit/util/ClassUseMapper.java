@@ -9,9 +9,16 @@ package wikidoclet.doclets.internal.toolkit.util;
 
 import com.sun.javadoc.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Map all class uses for a given class.
+ * <p>
+ * Once the uses are mapped, they are indexed for the class-use and
+ * package-use pages: for every documented class, each kind of use is
+ * divided by the package of the using element and sorted, and for every
+ * package the using packages are mapped onto the classes they use.  The
+ * index does not change after the mapper is constructed.
  *
  * This code is not part of an API.
  * It is implementation that is subject to change.
@@ -161,8 +168,53 @@ public class ClassUseMapper {
      */
     public Map annotationToFieldDoc = new HashMap();
 
+    /**
+     * Mapping of the qualified names of the documented classes to their
+     * {@link ClassUse}.
+     */
+    private final Map classUses = new HashMap();
+
+    /**
+     * Mapping of package names to a sorted map of the names of the
+     * packages using them onto the set of classes used.
+     */
+    private final Map packageUses = new HashMap();
+
+    /**
+     * The maps whose uses are divided by package in the index.
+     */
+    private final Map[] useMaps = {
+        classToClassTypeParam, classToClassAnnotations,
+        classToExecMemberDocTypeParam, classToExecMemberDocArgTypeParam,
+        classToFieldDocTypeParam, annotationToFieldDoc,
+        classToExecMemberDocReturnTypeParam, classToExecMemberDocAnnotations,
+        classToExecMemberDocParamAnnotation, classToSubclass,
+        classToSubinterface, classToImplementingClass, classToField,
+        classToMethodReturn, classToMethodArgs, classToMethodThrows,
+        classToConstructorAnnotations, classToConstructorParamAnnotation,
+        classToConstructorArgs, classToConstructorDocArgTypeParam,
+        classToConstructorThrows};
 
+    /**
+     * Map and index the uses of all classes of the root.
+     *
+     * @param root      the root of the documentation tree.
+     * @param classtree the class tree of the root.
+     */
     public ClassUseMapper(RootDoc root, ClassTree classtree) {
+        this(root, classtree, 1);
+    }
+
+    /**
+     * Map and index the uses of all classes of the root.  The members of
+     * the classes are mapped and the index is built on the given number of
+     * threads.
+     *
+     * @param root      the root of the documentation tree.
+     * @param classtree the class tree of the root.
+     * @param threads   the number of threads to use.
+     */
+    public ClassUseMapper(RootDoc root, ClassTree classtree, int threads) {
         this.classtree = classtree;
 
         // Map subclassing, subinterfacing implementing, ...
@@ -173,9 +225,48 @@ public class ClassUseMapper {
             // does subinterfacing as side-effect
             implementingClasses((ClassDoc)it.next());
         }
-        // Map methods, fields, constructors using a class.
-        ClassDoc[] classes = root.classes();
-        for (int i = 0; i < classes.length; i++) {
+        // Map methods, fields, constructors using a class.  Every task maps
+        // a run of classes on a mapper of its own, and the results are
+        // merged in the order of the classes.
+        final ClassDoc[] classes = root.classes();
+        if (threads <= 1) {
+            mapClasses(classes, 0, classes.length);
+        } else {
+            List tasks = new ArrayList();
+            for (int from = 0; from < classes.length; ) {
+                final int start = from;
+                final int end = Math.min(classes.length,
+                    from + chunkSize(classes.length, threads));
+                tasks.add(new Callable() {
+                    public Object call() {
+                        ClassUseMapper part = new ClassUseMapper(
+                            ClassUseMapper.this.classtree);
+                        part.mapClasses(classes, start, end);
+                        return part;
+                    }
+                });
+                from = end;
+            }
+            List parts = Util.invokeAll(tasks, threads);
+            for (Iterator it = parts.iterator(); it.hasNext(); ) {
+                merge((ClassUseMapper) it.next());
+            }
+        }
+        buildIndex(classes, threads);
+    }
+
+    /**
+     * Construct an empty mapper, to map a part of the classes.
+     */
+    private ClassUseMapper(ClassTree classtree) {
+        this.classtree = classtree;
+    }
+
+    /**
+     * Map the uses by the classes between the given indices.
+     */
+    private void mapClasses(ClassDoc[] classes, int from, int to) {
+        for (int i = from; i < to; i++) {
             PackageDoc pkg = classes[i].containingPackage();
             mapAnnotations(classToPackageAnnotations, pkg, pkg);
             ClassDoc cd = classes[i];
@@ -210,6 +301,211 @@ public class ClassUseMapper {
         }
     }
 
+    /**
+     * Append the uses mapped by the given mapper to the uses of this one.
+     */
+    private void merge(ClassUseMapper part) {
+        mergeLists(classToPackageAnnotations, part.classToPackageAnnotations);
+        for (int i = 0; i < useMaps.length; i++) {
+            mergeLists(useMaps[i], part.useMaps[i]);
+        }
+        mergeSets(classToPackage, part.classToPackage);
+        mergeSets(classToClass, part.classToClass);
+    }
+
+    private static void mergeLists(Map map, Map from) {
+        for (Iterator it = from.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            List list = (List) map.get(entry.getKey());
+            if (list == null) {
+                map.put(entry.getKey(), entry.getValue());
+            } else {
+                list.addAll((List) entry.getValue());
+            }
+        }
+    }
+
+    private static void mergeSets(Map map, Map from) {
+        for (Iterator it = from.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            Set set = (Set) map.get(entry.getKey());
+            if (set == null) {
+                map.put(entry.getKey(), entry.getValue());
+            } else {
+                set.addAll((Set) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Return the number of classes handled by one task.
+     */
+    private static int chunkSize(int count, int threads) {
+        return Math.max(1, (count + threads * 4 - 1) / (threads * 4));
+    }
+
+    /**
+     * Build the index of the uses of the given classes and of their
+     * packages.
+     */
+    private void buildIndex(final ClassDoc[] classes, int threads) {
+        List tasks = new ArrayList();
+        for (int from = 0; from < classes.length; ) {
+            final int start = from;
+            final int end = Math.min(classes.length,
+                from + chunkSize(classes.length, threads));
+            tasks.add(new Callable() {
+                public Object call() {
+                    ClassUse[] uses = new ClassUse[end - start];
+                    for (int i = start; i < end; i++) {
+                        uses[i - start] = new ClassUse(classes[i]);
+                    }
+                    return uses;
+                }
+            });
+            from = end;
+        }
+        List results = Util.invokeAll(tasks, threads);
+        int i = 0;
+        for (Iterator it = results.iterator(); it.hasNext(); ) {
+            ClassUse[] uses = (ClassUse[]) it.next();
+            for (int j = 0; j < uses.length; j++) {
+                classUses.put(classes[i++].qualifiedName(), uses[j]);
+            }
+        }
+        for (i = 0; i < classes.length; i++) {
+            ClassDoc usedClass = classes[i];
+            String pkgName = usedClass.containingPackage().name();
+            SortedMap usingPackageToUsedClasses =
+                (SortedMap) packageUses.get(pkgName);
+            if (usingPackageToUsedClasses == null) {
+                usingPackageToUsedClasses = new TreeMap();
+                packageUses.put(pkgName, usingPackageToUsedClasses);
+            }
+            Set usingClasses = (Set) classToClass.get(usedClass.qualifiedName());
+            if (usingClasses == null) {
+                continue;
+            }
+            for (Iterator it = usingClasses.iterator(); it.hasNext(); ) {
+                ClassDoc usingClass = (ClassDoc) it.next();
+                String usingPackage =
+                    Util.getPackageName(usingClass.containingPackage());
+                Set usedClasses =
+                    (Set) usingPackageToUsedClasses.get(usingPackage);
+                if (usedClasses == null) {
+                    usedClasses = new TreeSet();
+                    usingPackageToUsedClasses.put(usingPackage, usedClasses);
+                }
+                usedClasses.add(usedClass);
+            }
+        }
+        for (Iterator it = packageUses.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            SortedMap map = (SortedMap) entry.getValue();
+            for (Iterator iter = map.entrySet().iterator(); iter.hasNext(); ) {
+                Map.Entry e = (Map.Entry) iter.next();
+                e.setValue(Collections.unmodifiableSortedSet(
+                    (SortedSet) e.getValue()));
+            }
+            entry.setValue(Collections.unmodifiableSortedMap(map));
+        }
+    }
+
+    /**
+     * Return the indexed uses of the given documented class.
+     *
+     * @param cd the class whose uses are returned.
+     * @return the uses of the class, or null if the class is not documented.
+     */
+    public ClassUse getClassUse(ClassDoc cd) {
+        return (ClassUse) classUses.get(cd.qualifiedName());
+    }
+
+    /**
+     * Return the uses of the classes of the given package, as a sorted map
+     * of the names of the using packages onto the sorted set of classes they
+     * use.
+     *
+     * @param pd the package whose uses are returned.
+     */
+    public SortedMap getPackageUses(PackageDoc pd) {
+        SortedMap map = (SortedMap) packageUses.get(pd.name());
+        return map == null ?
+            Collections.unmodifiableSortedMap(new TreeMap()) : map;
+    }
+
+    /**
+     * The uses of one class, divided by the package of the using element.
+     */
+    public class ClassUse {
+
+        /**
+         * The sorted set of packages that use the class.
+         */
+        private final SortedSet packages = new TreeSet();
+
+        /**
+         * For each of the use maps, the map of package names onto the
+         * sorted list of using elements in that package.
+         */
+        private final Map[] uses = new Map[useMaps.length];
+
+        private ClassUse(ClassDoc cd) {
+            for (int i = 0; i < useMaps.length; i++) {
+                uses[i] = pkgDivide((List) useMaps[i].get(cd.qualifiedName()));
+            }
+        }
+
+        private Map pkgDivide(List list) {
+            if (list == null) {
+                return Collections.EMPTY_MAP;
+            }
+            list = new ArrayList(list);
+            Collections.sort(list);
+            Map map = new HashMap();
+            for (Iterator it = list.iterator(); it.hasNext(); ) {
+                ProgramElementDoc doc = (ProgramElementDoc) it.next();
+                PackageDoc pkg = doc.containingPackage();
+                packages.add(pkg);
+                List inPkg = (List) map.get(pkg.name());
+                if (inPkg == null) {
+                    inPkg = new ArrayList();
+                    map.put(pkg.name(), inPkg);
+                }
+                inPkg.add(doc);
+            }
+            for (Iterator it = map.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) it.next();
+                entry.setValue(Collections.unmodifiableList(
+                    (List) entry.getValue()));
+            }
+            return Collections.unmodifiableMap(map);
+        }
+
+        /**
+         * Return the sorted set of packages that use the class.
+         */
+        public SortedSet getPackages() {
+            return Collections.unmodifiableSortedSet(packages);
+        }
+
+        /**
+         * Return the uses recorded in the given map of the mapper, as a map
+         * of package names onto the sorted list of using elements.
+         *
+         * @param useMap one of the maps of uses of the mapper, for example
+         *               {@link ClassUseMapper#classToField}.
+         */
+        public Map getUses(Map useMap) {
+            for (int i = 0; i < useMaps.length; i++) {
+                if (useMaps[i] == useMap) {
+                    return uses[i];
+                }
+            }
+            throw new IllegalArgumentException();
+        }
+    }
+
     /**
      * Return all subclasses of a class AND fill-in classToSubclass map.
      */
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import com.sun.javadoc.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Print the errors, warnings and notices of a run.  The same comment is
+ * rendered on many pages, and each rendering would report the same
+ * problems, so an error or warning is printed only the first time it is
+ * reported for a position, message key and arguments.
+ * <p>
+ * A thread may buffer what it reports, see {@link #startBuffer()}.
+ * {@link Util#invokeAll} gives every task that runs on a pool a buffer of
+ * its own and flushes the buffers in the order of the tasks, so the log
+ * of a parallel run is the same as that of a sequential one.  A duplicate
+ * is only dropped when the buffers are flushed.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+public class DiagnosticReporter {
+
+    public static final int ERROR = 0;
+
+    public static final int WARNING = 1;
+
+    public static final int NOTICE = 2;
+
+    /**
+     * The buffer of the current thread, or null.
+     */
+    private static final ThreadLocal buffers = new ThreadLocal();
+
+    /**
+     * The ids of the diagnostics printed so far.
+     */
+    private final ConcurrentMap printed = new ConcurrentHashMap();
+
+    /**
+     * Return the id of a diagnostic, used to recognize the same diagnostic
+     * when it is reported again.
+     *
+     * @param kind the kind of diagnostic.
+     * @param pos  the position of the source, or null.
+     * @param key  the key of the message.
+     * @param args the arguments of the message.
+     */
+    public static String getId(int kind, SourcePosition pos, String key,
+            String[] args) {
+        StringBuffer id = new StringBuffer();
+        id.append(kind).append(' ').append(key);
+        if (pos != null) {
+            id.append(' ').append(pos.file()).append(':')
+                .append(pos.line()).append(':').append(pos.column());
+        }
+        for (int i = 0; i < args.length; i++) {
+            id.append('\0').append(args[i]);
+        }
+        return id.toString();
+    }
+
+    /**
+     * Return true if the diagnostic with the given id was printed already.
+     * The message of such a diagnostic need not even be formatted.
+     *
+     * @param id the id of the diagnostic, or null for a notice.
+     */
+    public boolean isPrinted(String id) {
+        return id != null && printed.containsKey(id);
+    }
+
+    /**
+     * Report a diagnostic.  It is printed now, unless the current thread
+     * has a buffer.
+     *
+     * @param root the reporter to print to.
+     * @param kind the kind of diagnostic.
+     * @param pos  the position of the source, or null.
+     * @param id   the id of the diagnostic, or null if it is printed every
+     *             time it is reported.
+     * @param msg  the message.
+     */
+    public void report(DocErrorReporter root, int kind, SourcePosition pos,
+            String id, String msg) {
+        report(new Diagnostic(this, root, kind, pos, id, msg));
+    }
+
+    private static void report(Diagnostic diagnostic) {
+        Buffer buffer = (Buffer) buffers.get();
+        if (buffer != null) {
+            buffer.diagnostics.add(diagnostic);
+        } else {
+            diagnostic.reporter.print(diagnostic);
+        }
+    }
+
+    private void print(Diagnostic d) {
+        if (d.id != null && printed.putIfAbsent(d.id, d.id) != null) {
+            return;
+        }
+        switch (d.kind) {
+            case ERROR:
+                if (d.pos == null) {
+                    d.root.printError(d.msg);
+                } else {
+                    d.root.printError(d.pos, d.msg);
+                }
+                break;
+            case WARNING:
+                if (d.pos == null) {
+                    d.root.printWarning(d.msg);
+                } else {
+                    d.root.printWarning(d.pos, d.msg);
+                }
+                break;
+            default:
+                if (d.pos == null) {
+                    d.root.printNotice(d.msg);
+                } else {
+                    d.root.printNotice(d.pos, d.msg);
+                }
+        }
+    }
+
+    /**
+     * Buffer what the current thread reports from now on, until
+     * {@link #endBuffer()} is called.
+     *
+     * @return the new buffer.
+     */
+    public static Buffer startBuffer() {
+        Buffer buffer = new Buffer();
+        buffers.set(buffer);
+        return buffer;
+    }
+
+    /**
+     * Stop buffering what the current thread reports.
+     */
+    public static void endBuffer() {
+        buffers.set(null);
+    }
+
+    /**
+     * The diagnostics reported by a thread, in the order they were
+     * reported.
+     */
+    public static class Buffer {
+
+        private final List diagnostics = new ArrayList();
+
+        /**
+         * Report the buffered diagnostics again, in the current thread,
+         * and empty the buffer.
+         */
+        public void flush() {
+            for (int i = 0; i < diagnostics.size(); i++) {
+                report((Diagnostic) diagnostics.get(i));
+            }
+            diagnostics.clear();
+        }
+    }
+
+    private static class Diagnostic {
+        final DiagnosticReporter reporter;
+        final DocErrorReporter root;
+        final int kind;
+        final SourcePosition pos;
+        final String id;
+        final String msg;
+
+        Diagnostic(DiagnosticReporter reporter, DocErrorReporter root,
+                int kind, SourcePosition pos, String id, String msg) {
+            this.reporter = reporter;
+            this.root = root;
+            this.kind = kind;
+            this.pos = pos;
+            this.id = id;
+            this.msg = msg;
+        }
+    }
+}
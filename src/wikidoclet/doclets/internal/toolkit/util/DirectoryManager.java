@@ -10,11 +10,16 @@ package wikidoclet.doclets.internal.toolkit.util;
 import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.io.*;
+import java.util.concurrent.*;
 
 
 /**
  * Handle the directory creations and the path string generations.
  * All static - never instaniated.
+ * <p>
+ * The paths depend on nothing but the name of the package, and the same
+ * packages are linked from every page, so the paths of each package are
+ * computed once and shared by all threads.
  *
  * This code is not part of an API.
  * It is implementation that is subject to change.
@@ -30,12 +35,42 @@ public class DirectoryManager {
      */
     public static final String URL_FILE_SEPERATOR = "/";
 
+    /**
+     * The paths of the packages, keyed by package name.
+     */
+    private static final ConcurrentMap packagePaths = new ConcurrentHashMap();
+
     /**
      * Never instaniated.
      */
     private DirectoryManager() {
     }
 
+    /**
+     * Forget the paths of the packages, so that a later run does not keep
+     * those of the packages of an earlier one.
+     */
+    public static void resetPackagePaths() {
+        packagePaths.clear();
+    }
+
+    /**
+     * Return the paths of the package with the given name, which must not
+     * be empty.
+     */
+    private static PackagePaths getPackagePaths(String packageName) {
+        PackagePaths paths = (PackagePaths) packagePaths.get(packageName);
+        if (paths == null) {
+            paths = new PackagePaths(packageName);
+            PackagePaths previous =
+                (PackagePaths) packagePaths.putIfAbsent(packageName, paths);
+            if (previous != null) {
+                paths = previous;
+            }
+        }
+        return paths;
+    }
+
     /**
      * Given a PackageDoc, return its URL path string.
      *
@@ -101,6 +136,10 @@ public class DirectoryManager {
         if (packageName == null || packageName.length() == 0) {
             return "";
         }
+        return getPackagePaths(packageName).directoryPath;
+    }
+
+    private static String computeDirectoryPath(String packageName) {
         StringBuffer pathstr = new StringBuffer();
         for (int i = 0; i < packageName.length(); i++) {
             char ch = packageName.charAt(i);
@@ -133,6 +172,10 @@ public class DirectoryManager {
         if (name == null || name.length() == 0) {
             return "";
         }
+        return getPackagePaths(name).path;
+    }
+
+    private static String computePath(String name) {
         StringBuffer pathstr = new StringBuffer();
         for (int i = 0; i < name.length(); i++) {
             char ch = name.charAt(i);
@@ -163,6 +206,20 @@ public class DirectoryManager {
      * @see          #getPath(String)
      */
     public static String getRelativePath(String from, String to) {
+        if (from == null || from.length() == 0) {
+            return computeRelativePath(from, to);
+        }
+        ConcurrentMap relativePaths = getPackagePaths(from).relativePaths;
+        String key = to == null ? "" : to;
+        String path = (String) relativePaths.get(key);
+        if (path == null) {
+            path = computeRelativePath(from, to);
+            relativePaths.put(key, path);
+        }
+        return path;
+    }
+
+    private static String computeRelativePath(String from, String to) {
         StringBuffer pathstr = new StringBuffer();
         pathstr.append(getRelativePath(from));
         pathstr.append(getPath(to));
@@ -204,6 +261,10 @@ public class DirectoryManager {
         if (from == null || from.length() == 0) {
             return "";
         }
+        return getPackagePaths(from).relativePath;
+    }
+
+    private static String computeRelativePath(String from) {
         StringBuffer pathstr = new StringBuffer();
         for (int i = 0; i < from.length(); i++) {
             char ch = from.charAt(i);
@@ -255,7 +316,8 @@ public class DirectoryManager {
         if (dir.exists()) {
             return;
         } else {
-            if (dir.mkdirs()) {
+            if (dir.mkdirs() || dir.isDirectory()) {
+                // Another thread may have created it in the meantime.
                 return;
             } else {
                 configuration.message.error(
@@ -275,14 +337,11 @@ public class DirectoryManager {
      * @param filename   File name to be appended to the path of the package.
      */
     public static String getPathToPackage(PackageDoc pd, String filename) {
-        StringBuffer buf = new StringBuffer();
-        String pathstr = createPathString(pd);
-        if (pathstr.length() > 0) {
-            buf.append(pathstr);
-            buf.append(URL_FILE_SEPERATOR);
+        String name = pd == null ? "" : pd.name();
+        if (name.length() == 0) {
+            return filename;
         }
-        buf.append(filename);
-        return buf.toString();
+        return getPackagePaths(name).pathPrefix + filename;
     }
 
     /**
@@ -296,4 +355,43 @@ public class DirectoryManager {
         return getPathToPackage(cd.containingPackage(), cd.name() + ".html");
     }
 
+    /**
+     * The paths of a package.
+     */
+    private static class PackagePaths {
+
+        /**
+         * The directory of the package, see {@link #getDirectoryPath(String)}.
+         */
+        final String directoryPath;
+
+        /**
+         * The URL path of the package, see {@link #getPath(String)}.
+         */
+        final String path;
+
+        /**
+         * The URL path followed by a separator, the prefix of the files of
+         * the package.
+         */
+        final String pathPrefix;
+
+        /**
+         * The path to the root, see {@link #getRelativePath(String)}.
+         */
+        final String relativePath;
+
+        /**
+         * The paths to other packages, keyed by package name, see
+         * {@link #getRelativePath(String, String)}.
+         */
+        final ConcurrentMap relativePaths = new ConcurrentHashMap();
+
+        PackagePaths(String packageName) {
+            directoryPath = computeDirectoryPath(packageName);
+            path = computePath(packageName);
+            pathPrefix = path.length() > 0 ? path + URL_FILE_SEPERATOR : "";
+            relativePath = computeRelativePath(packageName);
+        }
+    }
 }
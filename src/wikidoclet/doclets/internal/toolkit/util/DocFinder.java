@@ -8,6 +8,7 @@
 package wikidoclet.doclets.internal.toolkit.util;
 
 import com.sun.javadoc.*;
+import wikidoclet.doclets.internal.toolkit.*;
 import wikidoclet.doclets.internal.toolkit.taglets.*;
 import java.util.*;
 
@@ -160,6 +161,46 @@ public class DocFinder {
      * @return an Output object representing the documentation that was found.
      */
     public static Output search(Input input) {
+        return search(null, input);
+    }
+
+    /**
+     * Search for the requested comments in the given method, as
+     * {@link #search(Input)} does.  The results and the implemented methods
+     * found along the way are kept in the {@link InheritanceCache} of the
+     * configuration, so that the next search for the same method, or for
+     * a method that inherits from it, does not walk the methods again.
+     * The comments inherited may be those of docs that are not documented,
+     * so they are read under {@link Util#COMMENT_LOCK}.
+     *
+     * @param configuration the configuration holding the cache, or null to
+     *        search without one.
+     * @param input the input object used to perform the search.
+     *
+     * @return an Output object representing the documentation that was found.
+     */
+    public static Output search(Configuration configuration, Input input) {
+        synchronized (Util.COMMENT_LOCK) {
+            InheritanceCache cache = configuration == null ?
+                null : configuration.inheritanceCache;
+            String key = cache == null ?
+                null : InheritanceCache.getSearchKey(input);
+            if (key != null) {
+                Output output = cache.getSearch(key);
+                if (output != null) {
+                    return output;
+                }
+            }
+            Output output = search(configuration, cache, input);
+            if (key != null) {
+                cache.putSearch(key, output);
+            }
+            return output;
+        }
+    }
+
+    private static Output search(Configuration configuration,
+            InheritanceCache cache, Input input) {
         Output output = new Output();
         if (input.isInheritDocTag) {
             //Do nothing because "method" does not have any documentation.
@@ -182,7 +223,7 @@ public class DocFinder {
         inheritedSearchInput.isInheritDocTag = false;
         if (input.method.overriddenMethod() != null) {
             inheritedSearchInput.method = input.method.overriddenMethod();
-            output = search(inheritedSearchInput);
+            output = search(configuration, inheritedSearchInput);
             output.isValidInheritDocTag = true;
             if (output != null && output.inlineTags.length > 0) {
                 return output;
@@ -191,11 +232,12 @@ public class DocFinder {
         //NOTE:  When we fix the bug where ClassDoc.interfaceTypes() does
         //       not pass all implemented interfaces, we will use the
         //       appropriate method here.
-        MethodDoc[] implementedMethods =
-            (new ImplementedMethods(input.method, null)).build(false);
+        MethodDoc[] implementedMethods = cache == null ?
+            (new ImplementedMethods(input.method, null)).build(false) :
+            cache.getImplementedMethods(input.method, false);
         for (int i = 0; i < implementedMethods.length; i++) {
             inheritedSearchInput.method = implementedMethods[i];
-            output = search(inheritedSearchInput);
+            output = search(configuration, inheritedSearchInput);
             output.isValidInheritDocTag = true;
             if (output != null && output.inlineTags.length > 0) {
                 return output;
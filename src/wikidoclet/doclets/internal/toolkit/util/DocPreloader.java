@@ -0,0 +1,284 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import com.sun.javadoc.*;
+import java.util.*;
+
+/**
+ * Make javadoc create the program structure that the pages use before
+ * they are generated on several threads.  Javadoc creates its docs, types
+ * and sort keys the first time they are asked for, and neither that nor the
+ * collator and sentence breaker it shares between docs is thread safe.
+ * Once they exist, asking for them again only reads them.
+ * <p>
+ * The documented classes and all their supertypes are loaded with their
+ * members and the types of their signatures.  A class that is only
+ * referred to is loaded without its members, together with its
+ * supertypes.  Every doc gets the key it is sorted by.  Comments are not
+ * read here: those of the docs the pages print, and their first
+ * sentences, are read by the check of their tags, and the others only
+ * when a page inherits from them, under {@link Util#COMMENT_LOCK}.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+public class DocPreloader {
+
+    /**
+     * The docs and types that were loaded.
+     */
+    private final Set loaded = new HashSet();
+
+    /**
+     * The classes whose members were loaded.
+     */
+    private final Set members = new HashSet();
+
+    /**
+     * The classes whose members are still to be loaded.
+     */
+    private final LinkedList queue = new LinkedList();
+
+    private DocPreloader() {
+    }
+
+    /**
+     * Load the program structure of the given root.
+     *
+     * @param root the root of the run.
+     */
+    public static void load(RootDoc root) {
+        new DocPreloader().loadRoot(root);
+    }
+
+    private void loadRoot(RootDoc root) {
+        PackageDoc[] packages = root.specifiedPackages();
+        for (int i = 0; i < packages.length; i++) {
+            loadPackage(packages[i], true);
+        }
+        ClassDoc[] classes = root.classes();
+        for (int i = 0; i < classes.length; i++) {
+            loadPackage(classes[i].containingPackage(), true);
+            queue.add(classes[i]);
+        }
+        while (! queue.isEmpty()) {
+            loadMembers((ClassDoc) queue.removeFirst());
+        }
+    }
+
+    /**
+     * Load a package, and its classes if it is documented.
+     */
+    private void loadPackage(PackageDoc pkg, boolean included) {
+        if (pkg == null || ! loaded.add(pkg)) {
+            return;
+        }
+        loadDoc(pkg);
+        loadAnnotations(pkg.annotations());
+        if (included) {
+            loadClasses(pkg.allClasses());
+            loadClasses(pkg.allClasses(false));
+            loadClasses(pkg.ordinaryClasses());
+            loadClasses(pkg.exceptions());
+            loadClasses(pkg.errors());
+            loadClasses(pkg.enums());
+            loadClasses(pkg.interfaces());
+            loadClasses(pkg.annotationTypes());
+        }
+    }
+
+    /**
+     * Load a class without its members, together with its supertypes.
+     */
+    private void loadClass(ClassDoc cd) {
+        if (cd == null || ! loaded.add(cd)) {
+            return;
+        }
+        loadProgramElement(cd);
+        loadPackage(cd.containingPackage(), cd.containingPackage().isIncluded());
+        loadClass(cd.superclass());
+        loadType(cd.superclassType());
+        loadClasses(cd.interfaces());
+        loadTypes(cd.interfaceTypes());
+        loadTypes(cd.typeParameters());
+        if (cd.isIncluded()) {
+            queue.add(cd);
+        }
+    }
+
+    private void loadClasses(ClassDoc[] classes) {
+        for (int i = 0; i < classes.length; i++) {
+            loadClass(classes[i]);
+        }
+    }
+
+    /**
+     * Load the members of a class, and those of all its supertypes.
+     */
+    private void loadMembers(ClassDoc cd) {
+        if (cd == null || ! members.add(cd)) {
+            return;
+        }
+        loadClass(cd);
+        loadClasses(cd.innerClasses());
+        loadClasses(cd.innerClasses(false));
+        loadMembers(cd.fields());
+        loadMembers(cd.fields(false));
+        loadMembers(cd.enumConstants());
+        loadMembers(cd.constructors());
+        loadMembers(cd.constructors(false));
+        loadMembers(cd.methods());
+        loadMembers(cd.methods(false));
+        if (cd instanceof AnnotationTypeDoc) {
+            loadMembers(((AnnotationTypeDoc) cd).elements());
+        }
+        if (cd.isSerializable()) {
+            loadMembers(cd.serializableFields());
+            loadMembers(cd.serializationMethods());
+            cd.definesSerializableFields();
+        }
+        loadMembers(cd.superclass());
+        ClassDoc[] interfaces = cd.interfaces();
+        for (int i = 0; i < interfaces.length; i++) {
+            loadMembers(interfaces[i]);
+        }
+    }
+
+    private void loadMembers(MemberDoc[] members) {
+        for (int i = 0; i < members.length; i++) {
+            loadMember(members[i]);
+        }
+    }
+
+    private void loadMember(MemberDoc member) {
+        if (member == null || ! loaded.add(member)) {
+            return;
+        }
+        loadProgramElement(member);
+        if (member instanceof ExecutableMemberDoc) {
+            ExecutableMemberDoc emd = (ExecutableMemberDoc) member;
+            Parameter[] params = emd.parameters();
+            for (int i = 0; i < params.length; i++) {
+                loadType(params[i].type());
+                loadAnnotations(params[i].annotations());
+            }
+            loadClasses(emd.thrownExceptions());
+            loadTypes(emd.thrownExceptionTypes());
+            loadTypes(emd.typeParameters());
+        }
+        if (member instanceof MethodDoc) {
+            MethodDoc method = (MethodDoc) member;
+            loadType(method.returnType());
+            loadMember(method.overriddenMethod());
+            loadClass(method.overriddenClass());
+            loadType(method.overriddenType());
+        }
+        if (member instanceof AnnotationTypeElementDoc) {
+            loadAnnotationValue(
+                ((AnnotationTypeElementDoc) member).defaultValue());
+        }
+        if (member instanceof FieldDoc) {
+            FieldDoc field = (FieldDoc) member;
+            loadType(field.type());
+            field.constantValue();
+        }
+    }
+
+    private void loadProgramElement(ProgramElementDoc doc) {
+        loadDoc(doc);
+        doc.modifierSpecifier();
+        loadAnnotations(doc.annotations());
+        loadClass(doc.containingClass());
+    }
+
+    /**
+     * Load the key a doc is sorted by.
+     */
+    private void loadDoc(Doc doc) {
+        doc.compareTo(doc);
+    }
+
+    private void loadAnnotations(AnnotationDesc[] annotations) {
+        for (int i = 0; i < annotations.length; i++) {
+            loadClass(annotations[i].annotationType());
+            AnnotationDesc.ElementValuePair[] pairs =
+                annotations[i].elementValues();
+            for (int j = 0; j < pairs.length; j++) {
+                pairs[j].element();
+                loadAnnotationValue(pairs[j].value());
+            }
+        }
+    }
+
+    private void loadAnnotationValue(AnnotationValue value) {
+        if (value == null) {
+            return;
+        }
+        Object obj = value.value();
+        if (obj instanceof AnnotationValue[]) {
+            AnnotationValue[] values = (AnnotationValue[]) obj;
+            for (int i = 0; i < values.length; i++) {
+                loadAnnotationValue(values[i]);
+            }
+        } else if (obj instanceof Type) {
+            loadType((Type) obj);
+        }
+    }
+
+    /**
+     * Load a type.  Javadoc makes a new type every time one is asked for,
+     * so a type variable is followed into its bounds only once, or the
+     * bounds of <code>E extends Enum&lt;E&gt;</code> would be followed
+     * forever.
+     */
+    private void loadType(Type type) {
+        if (type == null) {
+            return;
+        } else if (type instanceof ClassDoc) {
+            loadClass((ClassDoc) type);
+            return;
+        } else if (! loaded.add(type)) {
+            return;
+        }
+        loadClass(type.asClassDoc());
+        ParameterizedType pt = type.asParameterizedType();
+        if (pt != null) {
+            loadTypes(pt.typeArguments());
+        }
+        TypeVariable tv = type.asTypeVariable();
+        if (tv != null) {
+            if (loaded.add(Arrays.asList(
+                    new Object[] {tv.owner(), tv.typeName()}))) {
+                loadTypes(tv.bounds());
+            }
+        }
+        WildcardType wt = type.asWildcardType();
+        if (wt != null) {
+            loadTypes(wt.extendsBounds());
+            loadTypes(wt.superBounds());
+        }
+    }
+
+    private void loadTypes(Type[] types) {
+        for (int i = 0; i < types.length; i++) {
+            loadType(types[i]);
+        }
+    }
+}
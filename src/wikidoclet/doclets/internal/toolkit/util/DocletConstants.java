@@ -64,4 +64,10 @@ public class DocletConstants {
      * The line seperator for the current operating system.
      */
     public static final String NL = System.getProperty("line.separator");
+
+    /**
+     * The version of the doclet, as in the name of the jar built by
+     * build.xml.
+     */
+    public static final String DOCLET_VERSION = "1.0.4";
 }
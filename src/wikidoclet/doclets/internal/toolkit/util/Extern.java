@@ -10,8 +10,8 @@ package wikidoclet.doclets.internal.toolkit.util;
 import wikidoclet.doclets.internal.toolkit.*;
 
 import com.sun.javadoc.*;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 import java.net.*;
 
@@ -38,14 +38,27 @@ public class Extern {
     private Map packageToItemMap;
 
     /**
-     * The global configuration information for this run.
+     * The names of the packages in {@link #packageToItemMap}, as a tree of
+     * their dot-separated segments.
      */
-    private final Configuration configuration;
+    private final PackageNode packageTree = new PackageNode();
 
     /**
-     * True if we are using -linkoffline and false if -link is used instead.
+     * The results of {@link #findExternalPackage}, keyed by qualified name.
+     * Cleared whenever a package is added.
      */
-    private boolean linkoffline = false;
+    private final ConcurrentMap externalPackages = new ConcurrentHashMap();
+
+    /**
+     * The value in {@link #externalPackages} of a name that is not in an
+     * external package.
+     */
+    private static final Object NO_PACKAGE = new Object();
+
+    /**
+     * The global configuration information for this run.
+     */
+    private final Configuration configuration;
 
     /**
      * Stores the info for one external doc set
@@ -87,6 +100,8 @@ public class Extern {
             }
             if (!packageToItemMap.containsKey(packageName)) { // save the previous
                 packageToItemMap.put(packageName, this);        // mapped location
+                packageTree.add(packageName);
+                externalPackages.clear();
             }
         }
 
@@ -114,6 +129,28 @@ public class Extern {
         return packageToItemMap.get(doc.containingPackage().name()) != null;
     }
 
+    /**
+     * Return the longest externally documented package whose name is a
+     * prefix of the given qualified name, followed by a dot.  For example,
+     * given "java.util.Map.Entry", return "java.util" if that package is
+     * documented externally.
+     *
+     * @param qualifiedName the qualified name of a class or member.
+     * @return the name of the package, or null if there is none.
+     */
+    public String findExternalPackage(String qualifiedName) {
+        if (qualifiedName == null || packageToItemMap == null) {
+            return null;
+        }
+        Object found = externalPackages.get(qualifiedName);
+        if (found == null) {
+            found = packageTree.findLongestPrefix(qualifiedName);
+            externalPackages.put(qualifiedName,
+                found == null ? NO_PACKAGE : found);
+        }
+        return found == NO_PACKAGE ? null : (String) found;
+    }
+
     /**
      * Convert a link to be an external link if appropriate.
      *
@@ -148,14 +185,58 @@ public class Extern {
      */
     public boolean url(String url, String pkglisturl,
                               DocErrorReporter reporter, boolean linkoffline) {
-        this.linkoffline = linkoffline;
-        String errMsg = composeExternPackageList(url, pkglisturl);
-        if (errMsg != null) {
-            reporter.printWarning(errMsg);
-            return false;
-        } else {
-            return true;
+        String[] option = linkoffline ?
+            new String[] {"-linkoffline", url, pkglisturl} :
+            new String[] {"-link", url};
+        return urls(Collections.singletonList(option), reporter);
+    }
+
+    /**
+     * Build the extern package list from the "package-list" files of the
+     * given "-link" and "-linkoffline" options.  The files are read in
+     * parallel, through the {@link PackageListCache} configured by the
+     * "-linkcache" options, but the packages are added in the order of the
+     * options, and a file that can not be read is reported in that order.
+     *
+     * @param links    the options, each as given on the command line.
+     * @param reporter the <code>DocErrorReporter</code> used to report errors.
+     * @return true if all the files were read.
+     */
+    public boolean urls(List links, DocErrorReporter reporter) {
+        final PackageListCache cache = new PackageListCache(
+            configuration.linkcachedir == null ?
+                null : new File(configuration.linkcachedir),
+            configuration.linkcachettl * 1000, configuration.linkcacheonly);
+        List tasks = new ArrayList(links.size());
+        for (int i = 0; i < links.size(); i++) {
+            final String[] option = (String[]) links.get(i);
+            tasks.add(new Callable() {
+                public Object call() {
+                    boolean linkoffline = option[0].equalsIgnoreCase("-linkoffline");
+                    return composeExternPackageList(option[1],
+                        linkoffline ? option[2] : option[1], linkoffline, cache);
+                }
+            });
         }
+        // Reading the files waits for the network, not the processor, so
+        // all of them are read at once.
+        List results = Util.invokeAll(tasks, tasks.size());
+        boolean success = true;
+        for (int i = 0; i < results.size(); i++) {
+            PackageList list = (PackageList) results.get(i);
+            if (list.errMsg != null) {
+                reporter.printWarning(list.errMsg);
+                success = false;
+                continue;
+            }
+            for (int j = 0; j < list.packages.size(); j++) {
+                String packname = (String) list.packages.get(j);
+                String packpath = list.path +
+                    packname.replace('.', '/') + '/';
+                new Item(packname, packpath, list.relative);
+            }
+        }
+        return success;
     }
 
     /**
@@ -178,13 +259,19 @@ public class Extern {
      * @param urlOrDirPath        URL or the directory path.
      * @param pkgListUrlOrDirPath URL or directory path for the "package-list" file or the "package-list"
      * file itself.
+     * @param linkoffline         True if -linkoffline is used and false if -link is used.
+     * @param cache               the cache of the files fetched over HTTP.
      */
-    private String composeExternPackageList(String urlOrDirPath, String pkgListUrlOrDirPath) {
+    private PackageList composeExternPackageList(String urlOrDirPath,
+            String pkgListUrlOrDirPath, boolean linkoffline,
+            PackageListCache cache) {
         urlOrDirPath = adjustEndFileSeparator(urlOrDirPath);
         pkgListUrlOrDirPath = adjustEndFileSeparator(pkgListUrlOrDirPath);
         return isUrl(pkgListUrlOrDirPath) ?
-            fetchURLComposeExternPackageList(urlOrDirPath, pkgListUrlOrDirPath) :
-            readFileComposeExternPackageList(urlOrDirPath, pkgListUrlOrDirPath);
+            fetchURLComposeExternPackageList(urlOrDirPath, pkgListUrlOrDirPath,
+                cache) :
+            readFileComposeExternPackageList(urlOrDirPath, pkgListUrlOrDirPath,
+                linkoffline);
     }
 
     /**
@@ -203,18 +290,21 @@ public class Extern {
      *
      * @param urlpath        Path to the packages.
      * @param pkglisturlpath URL or the path to the "package-list" file.
+     * @param cache          the cache of the files fetched over HTTP.
      */
-    private String fetchURLComposeExternPackageList(String urlpath,
-                                                   String pkglisturlpath) {
+    private PackageList fetchURLComposeExternPackageList(String urlpath,
+            String pkglisturlpath, PackageListCache cache) {
         String link = pkglisturlpath + "package-list";
         try {
-            readPackageList((new URL(link)).openStream(), urlpath, false);
+            return new PackageList(urlpath, false,
+                cache.read(new URL(link)));
         } catch (MalformedURLException exc) {
-            return configuration.getText("doclet.MalformedURL", link);
+            return new PackageList(
+                configuration.getText("doclet.MalformedURL", link));
         } catch (IOException exc) {
-            return configuration.getText("doclet.URL_error", link);
+            return new PackageList(
+                configuration.getText("doclet.URL_error", link));
         }
-        return null;
     }
 
     /**
@@ -222,9 +312,10 @@ public class Extern {
      *
      * @param path URL or directory path to the packages.
      * @param pkgListPath Path to the local "package-list" file.
+     * @param linkoffline True if -linkoffline is used and false if -link is used.
      */
-    private String readFileComposeExternPackageList(String path,
-                                                   String pkgListPath) {
+    private PackageList readFileComposeExternPackageList(String path,
+            String pkgListPath, boolean linkoffline) {
 
         String link = pkgListPath + "package-list";
         if (! ((new File(pkgListPath)).isAbsolute() || linkoffline)){
@@ -233,50 +324,60 @@ public class Extern {
         try {
             File file = new File(link);
             if (file.exists() && file.canRead()) {
-                readPackageList(new FileInputStream(file), path,
-                    ! ((new File(path)).isAbsolute() || isUrl(path)));
+                return new PackageList(path,
+                    ! ((new File(path)).isAbsolute() || isUrl(path)),
+                    PackageListCache.readPackageList(new FileInputStream(file)));
             } else {
-                return configuration.getText("doclet.File_error", link);
+                return new PackageList(
+                    configuration.getText("doclet.File_error", link));
             }
         } catch (FileNotFoundException exc) {
-            return configuration.getText("doclet.File_error", link);
+            return new PackageList(
+                configuration.getText("doclet.File_error", link));
         } catch (IOException exc) {
-            return configuration.getText("doclet.File_error", link);
+            return new PackageList(
+                configuration.getText("doclet.File_error", link));
         }
-        return null;
     }
 
     /**
-     * Read the file "package-list" and for each package name found, create
-     * Extern object and associate it with the package name in the map.
-     *
-     * @param input    InputStream from the "package-list" file.
-     * @param path     URL or the directory path to the packages.
-     * @param relative Is path relative?
+     * The packages read from one "package-list" file, or the message of
+     * the error that occurred while reading it.
      */
-    private void readPackageList(InputStream input, String path,
-                                boolean relative)
-                         throws IOException {
-        BufferedReader in = new BufferedReader(new InputStreamReader(input));
-        StringBuffer strbuf = new StringBuffer();
-        try {
-            int c;
-            while ((c = in.read()) >= 0) {
-                char ch = (char)c;
-                if (ch == '\n' || ch == '\r') {
-                    if (strbuf.length() > 0) {
-                        String packname = strbuf.toString();
-                        String packpath = path +
-                                      packname.replace('.', '/') + '/';
-                        new Item(packname, packpath, relative);
-                        strbuf.setLength(0);
-                    }
-                } else {
-                    strbuf.append(ch);
-                }
-            }
-        } finally {
-            input.close();
+    private static class PackageList {
+
+        /**
+         * URL or the directory path to the packages.
+         */
+        final String path;
+
+        /**
+         * Is path relative?
+         */
+        final boolean relative;
+
+        /**
+         * The names of the packages, in the order of the file.
+         */
+        final List packages;
+
+        /**
+         * The error message, or null.
+         */
+        final String errMsg;
+
+        PackageList(String path, boolean relative, List packages) {
+            this.path = path;
+            this.relative = relative;
+            this.packages = packages;
+            this.errMsg = null;
+        }
+
+        PackageList(String errMsg) {
+            this.path = null;
+            this.relative = false;
+            this.packages = null;
+            this.errMsg = errMsg;
         }
     }
 
@@ -290,4 +391,134 @@ public class Extern {
             return false;
         }
     }
+
+    /**
+     * A node of the tree of package names.  Each child is keyed by the next
+     * segment of the name, and the children are kept in an open hash table,
+     * so that a segment can be looked up in place, without cutting it out
+     * of the name.
+     */
+    private static class PackageNode {
+
+        /**
+         * The name of the package that ends at this node, or null.
+         */
+        private String packageName;
+
+        /**
+         * The segments of the children, or null if there are none.
+         */
+        private String[] segments;
+
+        /**
+         * The children, at the same positions as their segments.
+         */
+        private PackageNode[] children;
+
+        /**
+         * The number of children.
+         */
+        private int size;
+
+        /**
+         * Add the package with the given name below this node.
+         */
+        void add(String name) {
+            PackageNode node = this;
+            int start = 0;
+            while (true) {
+                int end = name.indexOf('.', start);
+                if (end == -1) {
+                    end = name.length();
+                }
+                PackageNode child = node.getChild(name, start, end);
+                if (child == null) {
+                    child = node.addChild(name.substring(start, end));
+                }
+                node = child;
+                if (end == name.length()) {
+                    break;
+                }
+                start = end + 1;
+            }
+            if (node.packageName == null) {
+                node.packageName = name;
+            }
+        }
+
+        /**
+         * Return the longest package below this node that is followed by a
+         * dot in the given name, or null.
+         */
+        String findLongestPrefix(String name) {
+            PackageNode node = this;
+            String found = null;
+            int start = 0;
+            int end;
+            while ((end = name.indexOf('.', start)) != -1) {
+                node = node.getChild(name, start, end);
+                if (node == null) {
+                    break;
+                }
+                if (node.packageName != null) {
+                    found = node.packageName;
+                }
+                start = end + 1;
+            }
+            return found;
+        }
+
+        private PackageNode getChild(String name, int start, int end) {
+            if (children == null) {
+                return null;
+            }
+            int length = end - start;
+            int mask = children.length - 1;
+            for (int i = hash(name, start, end) & mask; children[i] != null;
+                    i = (i + 1) & mask) {
+                if (segments[i].length() == length &&
+                        name.regionMatches(start, segments[i], 0, length)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private PackageNode addChild(String segment) {
+            if (children == null || 2 * (size + 1) > children.length) {
+                String[] oldSegments = segments;
+                PackageNode[] oldChildren = children;
+                int capacity = children == null ? 4 : 2 * children.length;
+                segments = new String[capacity];
+                children = new PackageNode[capacity];
+                for (int i = 0; oldChildren != null && i < oldChildren.length; i++) {
+                    if (oldChildren[i] != null) {
+                        put(oldSegments[i], oldChildren[i]);
+                    }
+                }
+            }
+            PackageNode child = new PackageNode();
+            put(segment, child);
+            size++;
+            return child;
+        }
+
+        private void put(String segment, PackageNode child) {
+            int mask = children.length - 1;
+            int i = hash(segment, 0, segment.length()) & mask;
+            while (children[i] != null) {
+                i = (i + 1) & mask;
+            }
+            segments[i] = segment;
+            children[i] = child;
+        }
+
+        private static int hash(String name, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + name.charAt(i);
+            }
+            return h ^ (h >>> 16);
+        }
+    }
 }
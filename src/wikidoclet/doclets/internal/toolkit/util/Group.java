@@ -82,7 +82,7 @@ public class Group {
         this.configuration = configuration;
     }
 
-    public static Group getInstance(Configuration configuration) {
+    public static synchronized Group getInstance(Configuration configuration) {
         if (instance == null) {
             instance = new Group(configuration);
         }
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import java.lang.management.*;
+
+/**
+ * The use of the heap during a run of the doclet.  The heap is sampled at
+ * the end of each phase of the run, before the data of the phase is
+ * released.  Every sample collects the garbage first, so the peak is the
+ * largest amount of data the run kept alive at the end of a phase, and
+ * does not depend on how much garbage the collector left behind.
+ * Collecting the garbage is slow, so the heap is only sampled when the
+ * statistics of the run are reported.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+public class HeapUsage {
+
+    /**
+     * The largest number of bytes found in use by {@link #sample()}.
+     */
+    private static long peak = 0;
+
+    private HeapUsage() {
+    }
+
+    /**
+     * Forget the samples taken so far.
+     */
+    public static synchronized void resetPeak() {
+        peak = 0;
+    }
+
+    /**
+     * Collect the garbage and record the number of bytes of the heap still
+     * in use.
+     */
+    public static synchronized void sample() {
+        System.gc();
+        peak = Math.max(peak, getUsed());
+    }
+
+    /**
+     * Return the largest number of bytes of the heap in use at a sample
+     * since the last call of {@link #resetPeak()}.
+     */
+    public static synchronized long getPeak() {
+        return peak;
+    }
+
+    /**
+     * Return the number of bytes of the heap in use now.
+     */
+    public static long getUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+            .getUsed();
+    }
+}
@@ -26,12 +26,29 @@ public class ImplementedMethods {
     private Map interfaces = new HashMap();
     private List methlist = new ArrayList();
     private Configuration configuration;
+    private final InheritanceCache cache;
     private final ClassDoc classdoc;
     private final MethodDoc method;
 
     public ImplementedMethods(MethodDoc method, Configuration configuration) {
+        this(method, configuration, configuration == null ?
+            null : configuration.inheritanceCache);
+    }
+
+    /**
+     * Construct a new ImplementedMethods that takes the interfaces of the
+     * class, and the methods of the interfaces, from the given cache.
+     *
+     * @param method the method to find the implemented methods of.
+     * @param configuration the configuration whose linkable interfaces are
+     *        searched, or null to search all of them.
+     * @param cache the cache of interfaces and methods, or null.
+     */
+    ImplementedMethods(MethodDoc method, Configuration configuration,
+            InheritanceCache cache) {
         this.method = method;
         this.configuration = configuration;
+        this.cache = cache;
         classdoc = method.containingClass();
     }
 
@@ -68,10 +85,14 @@ public class ImplementedMethods {
      * from the array passed.
      */
     private void buildImplementedMethodList(boolean sort) {
-        List intfacs = Util.getAllInterfaces(classdoc, configuration, sort);
+        List intfacs = cache == null ?
+            Util.getAllInterfaces(classdoc, configuration, sort) :
+            cache.getAllInterfaces(classdoc, configuration, sort);
         for (Iterator iter = intfacs.iterator(); iter.hasNext(); ) {
             Type interfaceType = (Type) iter.next();
-            MethodDoc found = Util.findMethod(interfaceType.asClassDoc(), method);
+            MethodDoc found = cache == null ?
+                Util.findMethod(interfaceType.asClassDoc(), method) :
+                cache.findMethod(interfaceType.asClassDoc(), method);
             if (found != null) {
                 removeOverriddenMethod(found);
                 if (!overridingMethodFound(found)) {
@@ -10,6 +10,7 @@ package wikidoclet.doclets.internal.toolkit.util;
 import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Build the mapping of each Unicode character with it's member lists
@@ -27,12 +28,28 @@ import java.util.*;
  */
 public class IndexBuilder {
 
+    /**
+     * The number of characters whose member lists are kept in
+     * {@link #asciiIndex} rather than in {@link #otherIndex}.
+     */
+    private static final int ASCII = 128;
+
     /**
      * Mapping of each Unicode Character with the member list containing
      * members with names starting with it.
      */
     private Map indexmap = new HashMap();
 
+    /**
+     * The member lists of the ASCII characters, indexed by character.
+     */
+    private final List[] asciiIndex = new List[ASCII];
+
+    /**
+     * The member lists of all the other characters, keyed by Character.
+     */
+    private final Map otherIndex = new HashMap();
+
     /**
      * Don't generate deprecated information if true.
      */
@@ -43,28 +60,64 @@ public class IndexBuilder {
      */
     private boolean classesOnly;
 
+    /**
+     * The number of threads used to sort the member lists.
+     */
+    private final int threads;
+
+    /**
+     * The index of the classes only, derived from this index the first time
+     * it is asked for.
+     */
+    private IndexBuilder classesIndex;
+
     // make ProgramElementDoc[] when new toArray is available
     protected final Object[] elements;
 
     /**
-     * A comparator used to sort classes and members.
-     * Note:  Maybe this compare code belongs in the tool?
+     * A doc with the keys it is sorted by.  The names are folded the way
+     * {@link String#compareToIgnoreCase} folds them, so that comparing the
+     * keys with {@link String#compareTo} gives the same order.
      */
-    private class DocComparator implements Comparator {
-        public int compare(Object d1, Object d2) {
-            String doc1 = (((Doc) d1).name());
-            String doc2 = (((Doc) d2).name());
+    private static class IndexEntry implements Comparable {
+        final Doc doc;
+        final String nameKey;
+        final String qualifiedNameKey;
+
+        IndexEntry(Doc doc) {
+            this.doc = doc;
+            nameKey = fold(doc.name());
+            qualifiedNameKey = doc instanceof ProgramElementDoc ?
+                fold(((ProgramElementDoc) doc).qualifiedName()) : null;
+        }
+
+        public int compareTo(Object o) {
+            IndexEntry entry = (IndexEntry) o;
             int compareResult;
-            if ((compareResult = doc1.compareToIgnoreCase(doc2)) != 0) {
+            if ((compareResult = nameKey.compareTo(entry.nameKey)) != 0) {
                 return compareResult;
-            } else if (d1 instanceof ProgramElementDoc && d2 instanceof ProgramElementDoc) {
-                 doc1 = (((ProgramElementDoc) d1).qualifiedName());
-                 doc2 = (((ProgramElementDoc) d2).qualifiedName());
-                 return doc1.compareToIgnoreCase(doc2);
+            } else if (qualifiedNameKey != null &&
+                    entry.qualifiedNameKey != null) {
+                return qualifiedNameKey.compareTo(entry.qualifiedNameKey);
             } else {
                 return 0;
             }
         }
+
+        private static String fold(String s) {
+            char[] chars = null;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                char folded = Character.toLowerCase(Character.toUpperCase(c));
+                if (folded != c) {
+                    if (chars == null) {
+                        chars = s.toCharArray();
+                    }
+                    chars[i] = folded;
+                }
+            }
+            return chars == null ? s : new String(chars);
+        }
     }
 
     /**
@@ -95,20 +148,119 @@ public class IndexBuilder {
         }
         this.noDeprecated = noDeprecated;
         this.classesOnly = classesOnly;
+        threads = configuration.threads;
         buildIndexMap(configuration.root);
-        Set set = indexmap.keySet();
-        elements =  set.toArray();
-        Arrays.sort(elements);
+        elements = buildElements();
+    }
+
+    /**
+     * Construct the index of the classes of the given index.  The member
+     * lists of the index are already sorted, so the classes are only picked
+     * out of them.
+     *
+     * @param index the index of all the members.
+     */
+    private IndexBuilder(IndexBuilder index) {
+        noDeprecated = index.noDeprecated;
+        classesOnly = true;
+        threads = index.threads;
+        for (Iterator it = index.indexmap.entrySet().iterator();
+                it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            List list = (List) entry.getValue();
+            List classes = new ArrayList();
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) instanceof ClassDoc) {
+                    classes.add(list.get(i));
+                }
+            }
+            if (classes.size() > 0) {
+                putMemberList(((Character) entry.getKey()).charValue(),
+                    classes);
+            }
+        }
+        elements = buildElements();
+    }
+
+    /**
+     * Return the index of the classes in this index, as built by
+     * <code>IndexBuilder(configuration, noDeprecated, true)</code>, but
+     * without walking the classes again.
+     *
+     * @param configuration the current configuration of the doclet.
+     * @return the index of the classes.
+     */
+    public synchronized IndexBuilder getClassesIndex(
+            Configuration configuration) {
+        if (classesOnly) {
+            return this;
+        }
+        if (classesIndex == null) {
+            configuration.message.notice(
+                "doclet.Building_Index_For_All_Classes");
+            classesIndex = new IndexBuilder(this);
+        }
+        return classesIndex;
+    }
+
+    /**
+     * Fill the index map from the member lists, and return the characters
+     * that have a member list in ascending order.
+     */
+    private Object[] buildElements() {
+        List result = new ArrayList();
+        for (char ch = 0; ch < ASCII; ch++) {
+            if (asciiIndex[ch] != null) {
+                Character unicode = new Character(ch);
+                indexmap.put(unicode, asciiIndex[ch]);
+                result.add(unicode);
+            }
+        }
+        List others = new ArrayList(otherIndex.keySet());
+        Collections.sort(others);
+        for (int i = 0; i < others.size(); i++) {
+            indexmap.put(others.get(i), otherIndex.get(others.get(i)));
+        }
+        result.addAll(others);
+        return result.toArray();
     }
 
     /**
      * Sort the index map. Traverse the index map for all it's elements and
-     * sort each element which is a list.
+     * sort each element which is a list.  The lists are sorted in parallel
+     * if the doclet runs with more than one thread.
      */
     protected void sortIndexMap() {
-        for (Iterator it = indexmap.values().iterator(); it.hasNext(); ) {
-            Collections.sort((List)it.next(), new DocComparator());
+        List tasks = new ArrayList();
+        for (char ch = 0; ch < ASCII; ch++) {
+            if (asciiIndex[ch] != null) {
+                tasks.add(newSortTask(asciiIndex[ch]));
+            }
+        }
+        for (Iterator it = otherIndex.values().iterator(); it.hasNext(); ) {
+            tasks.add(newSortTask((List) it.next()));
         }
+        Util.invokeAll(tasks, threads);
+    }
+
+    /**
+     * Return a task that sorts the given member list by name, and by
+     * qualified name when the names are equal, ignoring case.
+     */
+    private static Callable newSortTask(final List list) {
+        return new Callable() {
+            public Object call() {
+                IndexEntry[] entries = new IndexEntry[list.size()];
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = new IndexEntry((Doc) list.get(i));
+                }
+                Arrays.sort(entries);
+                for (int i = 0; i < entries.length; i++) {
+                    list.set(i, entries[i].doc);
+                }
+                return null;
+            }
+        };
     }
 
     /**
@@ -174,17 +326,24 @@ public class IndexBuilder {
                 char ch = (name.length()==0)?
                     '*' :
                     Character.toUpperCase(name.charAt(0));
-                Character unicode = new Character(ch);
-                List list = (List)indexmap.get(unicode);
+                List list = getMemberList(ch);
                 if (list == null) {
                     list = new ArrayList();
-                    indexmap.put(unicode, list);
+                    putMemberList(ch, list);
                 }
                 list.add(elements[i]);
             }
         }
     }
 
+    private void putMemberList(char ch, List list) {
+        if (ch < ASCII) {
+            asciiIndex[ch] = list;
+        } else {
+            otherIndex.put(new Character(ch), list);
+        }
+    }
+
     /**
      * Should this doc element be added to the index map?
      */
@@ -208,7 +367,18 @@ public class IndexBuilder {
      * @return List member list for specific Unicode character.
      */
     public List getMemberList(Character index) {
-        return (List)indexmap.get(index);
+        return getMemberList(index.charValue());
+    }
+
+    /**
+     * Return the sorted list of members, for passed character.
+     *
+     * @param ch index character.
+     * @return List member list for specific character.
+     */
+    public List getMemberList(char ch) {
+        return ch < ASCII ?
+            asciiIndex[ch] : (List) otherIndex.get(new Character(ch));
     }
 
     /**
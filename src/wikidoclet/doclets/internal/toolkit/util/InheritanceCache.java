@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import com.sun.javadoc.*;
+import wikidoclet.doclets.internal.toolkit.*;
+import java.util.*;
+
+/**
+ * Cache of what a run learns about the inheritance of documentation.  The
+ * comment, each parameter, the return value and each exception of a method
+ * may all be inherited, and each search walks the same overridden and
+ * implemented methods, which in turn need all the interfaces of the class.
+ * <p>
+ * Four things are kept: the closure of the interfaces of each class, as
+ * returned by {@link Util#getAllInterfaces}, the index of the methods of
+ * each class, used to find the method that a method overrides or
+ * implements, the methods implemented by each method, as built by
+ * {@link ImplementedMethods}, and the results of {@link DocFinder#search}.
+ * Everything is keyed by name, so the cache must not outlive the run;
+ * {@link Configuration#setOptions()} creates a new one.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+public class InheritanceCache {
+
+    /**
+     * The unmodifiable lists of interfaces, keyed by class name, filter and
+     * sort order.
+     */
+    private final Map interfaces = new HashMap();
+
+    /**
+     * The methods of each class, keyed by class name.  Each value maps the
+     * {@link Util#getSignatureKey signature key} of a method to the array of
+     * methods with that key, in the order of {@link ClassDoc#methods()}.
+     */
+    private final Map methodIndexes = new HashMap();
+
+    /**
+     * The implemented methods, keyed by method and sort order.
+     */
+    private final Map implementedMethods = new HashMap();
+
+    /**
+     * The results of the documentation searches, keyed by
+     * {@link #getSearchKey}.
+     */
+    private final Map searches = new HashMap();
+
+    /**
+     * Return all the interfaces of the given class, as
+     * {@link Util#getAllInterfaces(Type, Configuration, boolean)} does.
+     *
+     * @param cd the class.
+     * @param configuration the configuration whose linkable classes are
+     *        included, or null to include all classes.
+     * @param sort if true, sort the interfaces by name.
+     * @return the unmodifiable list of interface types.
+     */
+    public List getAllInterfaces(ClassDoc cd, Configuration configuration,
+            boolean sort) {
+        String key = cd.qualifiedName() + ' ' + (configuration != null) +
+            ' ' + sort;
+        List result;
+        synchronized (this) {
+            result = (List) interfaces.get(key);
+        }
+        if (result == null) {
+            result = Collections.unmodifiableList(
+                Util.findAllInterfaces(cd, configuration, sort, this));
+            synchronized (this) {
+                interfaces.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Search for the given method in the given class, as
+     * {@link Util#findMethod(ClassDoc, MethodDoc)} does, but only among the
+     * methods of the class that have the same name and number of
+     * parameters.
+     *
+     * @param cd the class to search into.
+     * @param method the method to be searched.
+     * @return the method found, null otherwise.
+     */
+    public MethodDoc findMethod(ClassDoc cd, MethodDoc method) {
+        MethodDoc[] methods = (MethodDoc[])
+            getMethodIndex(cd).get(Util.getSignatureKey(method));
+        if (methods != null) {
+            for (int i = 0; i < methods.length; i++) {
+                if (Util.executableMembersEqual(method, methods[i])) {
+                    return methods[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the index of the methods of the given class, building it the
+     * first time the class is searched.
+     */
+    private Map getMethodIndex(ClassDoc cd) {
+        String key = cd.qualifiedName();
+        Map index;
+        synchronized (this) {
+            index = (Map) methodIndexes.get(key);
+        }
+        if (index == null) {
+            Map lists = new HashMap();
+            MethodDoc[] methods = cd.methods();
+            for (int i = 0; i < methods.length; i++) {
+                String signature = Util.getSignatureKey(methods[i]);
+                List list = (List) lists.get(signature);
+                if (list == null) {
+                    list = new ArrayList(1);
+                    lists.put(signature, list);
+                }
+                list.add(methods[i]);
+            }
+            index = new HashMap(lists.size() * 2);
+            for (Iterator iter = lists.entrySet().iterator(); iter.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                List list = (List) entry.getValue();
+                index.put(entry.getKey(),
+                    list.toArray(new MethodDoc[list.size()]));
+            }
+            synchronized (this) {
+                methodIndexes.put(key, index);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Return the interface methods implemented by the given method, as
+     * {@link ImplementedMethods#build(boolean)} does when it is not given a
+     * configuration.
+     *
+     * @param method the method.
+     * @param sort if true, search the interfaces in order of their names.
+     * @return the implemented methods; the array must not be modified.
+     */
+    public MethodDoc[] getImplementedMethods(MethodDoc method, boolean sort) {
+        String key = getMethodKey(method) + ' ' + sort;
+        MethodDoc[] result;
+        synchronized (this) {
+            result = (MethodDoc[]) implementedMethods.get(key);
+        }
+        if (result == null) {
+            result = new ImplementedMethods(method, null, this).build(sort);
+            synchronized (this) {
+                implementedMethods.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the cached result of a search, or null.
+     *
+     * @param key the key of the search, see {@link #getSearchKey}.
+     */
+    DocFinder.Output getSearch(String key) {
+        DocFinder.Output output;
+        synchronized (this) {
+            output = (DocFinder.Output) searches.get(key);
+        }
+        return output == null ? null : copy(output);
+    }
+
+    /**
+     * Store the result of a search.
+     *
+     * @param key the key of the search, see {@link #getSearchKey}.
+     * @param output the result.
+     */
+    void putSearch(String key, DocFinder.Output output) {
+        output = copy(output);
+        synchronized (this) {
+            searches.put(key, output);
+        }
+    }
+
+    /**
+     * Return the key of the given search, or null if it can not be cached.
+     * A search on behalf of an {&#064;inheritDoc} tag, or for a tag whose
+     * id is not known yet, depends on the tag itself.
+     */
+    static String getSearchKey(DocFinder.Input input) {
+        if (input.isInheritDocTag ||
+                (input.tag != null && input.tagId == null)) {
+            return null;
+        }
+        return getMethodKey(input.method) + ' ' +
+            (input.taglet == null ? "" : input.taglet.getName()) + ' ' +
+            input.tagId + ' ' + input.isFirstSentence + ' ' +
+            input.isTypeVariableParamTag;
+    }
+
+    private static String getMethodKey(MethodDoc method) {
+        return method.containingClass().qualifiedName() + '.' +
+            method.name() + method.signature();
+    }
+
+    /**
+     * Return a copy of the output, so that neither the caller nor the
+     * search that continues with it can change the cached one.
+     */
+    private static DocFinder.Output copy(DocFinder.Output output) {
+        DocFinder.Output result = new DocFinder.Output();
+        result.holderTag = output.holderTag;
+        result.holder = output.holder;
+        result.inlineTags = output.inlineTags;
+        result.isValidInheritDocTag = output.isValidInheritDocTag;
+        result.tagList = new ArrayList(output.tagList);
+        return result;
+    }
+}
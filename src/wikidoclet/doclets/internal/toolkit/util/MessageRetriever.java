@@ -9,11 +9,13 @@ package wikidoclet.doclets.internal.toolkit.util;
 import com.sun.javadoc.*;
 import wikidoclet.doclets.internal.toolkit.Configuration;
 import java.util.*;
-import java.text.MessageFormat;
+import java.util.concurrent.*;
 
 
 /**
- * Retrieve and format messages stored in a resource.
+ * Retrieve and format messages stored in a resource.  The messages are
+ * printed through the {@link DiagnosticReporter} of the configuration, so
+ * an error or warning reported more than once is printed once.
  *
  * This code is not part of an API.
  * It is implementation that is subject to change.
@@ -39,6 +41,17 @@ public class MessageRetriever {
      */
     private ResourceBundle messageRB;
 
+    /**
+     * The compiled messages, keyed by message key.  A message is compiled
+     * the first time it is needed.
+     */
+    private final ConcurrentMap templates = new ConcurrentHashMap();
+
+    /**
+     * The number of errors and warnings printed through this retriever.
+     */
+    private int diagnosticCount = 0;
+
     /**
      * Initilize the ResourceBundle with the given resource.
      *
@@ -62,6 +75,18 @@ public class MessageRetriever {
         this.resourcelocation = resourcelocation;
     }
 
+    /**
+     * Return the number of errors and warnings printed so far through
+     * this retriever.  Notices are not counted.
+     */
+    public synchronized int getDiagnosticCount() {
+        return diagnosticCount;
+    }
+
+    private synchronized void countDiagnostic() {
+        diagnosticCount++;
+    }
+
     /**
      * get and format message string from resource
      *
@@ -111,65 +136,39 @@ public class MessageRetriever {
                                     ") for javadoc doclets is missing.");
             }
         }
-        String message = messageRB.getString(key);
-        return MessageFormat.format(message, a1, a2, a3);
-    }
-
-    /**
-     * Print error message, increment error count.
-     *
-     * @param pos the position of the source
-     * @param msg message to print
-     */
-    private void printError(SourcePosition pos, String msg) {
-        configuration.root.printError(pos, msg);
-    }
-
-    /**
-     * Print error message, increment error count.
-     *
-     * @param msg message to print
-     */
-    private void printError(String msg) {
-        configuration.root.printError(msg);
-    }
-
-    /**
-     * Print warning message, increment warning count.
-     *
-     * @param pos the position of the source
-     * @param msg message to print
-     */
-    private void printWarning(SourcePosition pos, String msg) {
-        configuration.root.printWarning(pos, msg);
-    }
-
-    /**
-     * Print warning message, increment warning count.
-     *
-     * @param msg message to print
-     */
-    private void printWarning(String msg) {
-        configuration.root.printWarning(msg);
-    }
-
-    /**
-     * Print a message.
-     *
-     * @param pos the position of the source
-     * @param msg message to print
-     */
-    private void printNotice(SourcePosition pos, String msg) {
-        configuration.root.printNotice(pos, msg);
+        MessageTemplate template = (MessageTemplate) templates.get(key);
+        if (template == null) {
+            template = MessageTemplate.compile(messageRB.getString(key));
+            templates.putIfAbsent(key, template);
+        }
+        return template.format(new String[] {a1, a2, a3});
     }
 
     /**
-     * Print a message.
+     * Report a message, unless it is an error or warning that was printed
+     * before.  The message is only formatted if it is reported.
      *
-     * @param msg message to print
+     * @param kind the kind of message, see {@link DiagnosticReporter}.
+     * @param pos the position of the source, or null.
+     * @param key selects message from resource
+     * @param a1 first argument to be replaced in the message.
+     * @param a2 second argument to be replaced in the message.
+     * @param a3 third argument to be replaced in the message.
      */
-    private void printNotice(String msg) {
-        configuration.root.printNotice(msg);
+    private void report(int kind, SourcePosition pos, String key,
+            String a1, String a2, String a3) {
+        DiagnosticReporter reporter = configuration.diagnostics;
+        String id = kind == DiagnosticReporter.NOTICE ? null :
+            DiagnosticReporter.getId(kind, pos, resourcelocation + ':' + key,
+                new String[] {a1, a2, a3});
+        if (reporter.isPrinted(id)) {
+            return;
+        }
+        String msg = getText(key, a1, a2, a3);
+        if (kind != DiagnosticReporter.NOTICE) {
+            countDiagnostic();
+        }
+        reporter.report(configuration.root, kind, pos, id, msg);
     }
 
     /**
@@ -179,7 +178,7 @@ public class MessageRetriever {
      * @param key selects message from resource
      */
     public void error(SourcePosition pos, String key) {
-        printError(pos, getText(key));
+        report(DiagnosticReporter.ERROR, pos, key, null, null, null);
     }
 
     /**
@@ -188,7 +187,7 @@ public class MessageRetriever {
      * @param key selects message from resource
      */
     public void error(String key) {
-        printError(getText(key));
+        report(DiagnosticReporter.ERROR, null, key, null, null, null);
     }
 
     /**
@@ -199,7 +198,7 @@ public class MessageRetriever {
      * @param a1 first argument to be replaced in the message.
      */
     public void error(SourcePosition pos, String key, String a1) {
-        printError(pos, getText(key, a1));
+        report(DiagnosticReporter.ERROR, pos, key, a1, null, null);
     }
 
     /**
@@ -209,7 +208,7 @@ public class MessageRetriever {
      * @param a1 first argument to be replaced in the message.
      */
     public void error(String key, String a1) {
-        printError(getText(key, a1));
+        report(DiagnosticReporter.ERROR, null, key, a1, null, null);
     }
 
     /**
@@ -221,7 +220,7 @@ public class MessageRetriever {
      * @param a2 second argument to be replaced in the message.
      */
     public void error(SourcePosition pos, String key, String a1, String a2) {
-        printError(pos, getText(key, a1, a2));
+        report(DiagnosticReporter.ERROR, pos, key, a1, a2, null);
     }
 
     /**
@@ -232,7 +231,7 @@ public class MessageRetriever {
      * @param a2 second argument to be replaced in the message.
      */
     public void error(String key, String a1, String a2) {
-        printError(getText(key, a1, a2));
+        report(DiagnosticReporter.ERROR, null, key, a1, a2, null);
     }
 
     /**
@@ -245,7 +244,7 @@ public class MessageRetriever {
      * @param a3 third argument to be replaced in the message.
      */
     public void error(SourcePosition pos, String key, String a1, String a2, String a3) {
-        printError(pos, getText(key, a1, a2, a3));
+        report(DiagnosticReporter.ERROR, pos, key, a1, a2, a3);
     }
 
     /**
@@ -257,7 +256,7 @@ public class MessageRetriever {
      * @param a3 third argument to be replaced in the message.
      */
     public void error(String key, String a1, String a2, String a3) {
-        printError(getText(key, a1, a2, a3));
+        report(DiagnosticReporter.ERROR, null, key, a1, a2, a3);
     }
 
     /**
@@ -267,7 +266,7 @@ public class MessageRetriever {
      * @param key selects message from resource
      */
     public void warning(SourcePosition pos, String key) {
-        printWarning(pos, getText(key));
+        report(DiagnosticReporter.WARNING, pos, key, null, null, null);
     }
 
     /**
@@ -276,7 +275,7 @@ public class MessageRetriever {
      * @param key selects message from resource
      */
     public void warning(String key) {
-        printWarning(getText(key));
+        report(DiagnosticReporter.WARNING, null, key, null, null, null);
     }
 
     /**
@@ -287,7 +286,7 @@ public class MessageRetriever {
      * @param a1 first argument to be replaced in the message.
      */
     public void warning(SourcePosition pos, String key, String a1) {
-        printWarning(pos, getText(key, a1));
+        report(DiagnosticReporter.WARNING, pos, key, a1, null, null);
     }
 
     /**
@@ -297,7 +296,7 @@ public class MessageRetriever {
      * @param a1 first argument to be replaced in the message.
      */
     public void warning(String key, String a1) {
-        printWarning(getText(key, a1));
+        report(DiagnosticReporter.WARNING, null, key, a1, null, null);
     }
 
     /**
@@ -309,7 +308,7 @@ public class MessageRetriever {
      * @param a2 second argument to be replaced in the message.
      */
     public void warning(SourcePosition pos, String key, String a1, String a2) {
-        printWarning(pos, getText(key, a1, a2));
+        report(DiagnosticReporter.WARNING, pos, key, a1, a2, null);
     }
 
     /**
@@ -320,7 +319,7 @@ public class MessageRetriever {
      * @param a2 second argument to be replaced in the message.
      */
     public void warning(String key, String a1, String a2) {
-        printWarning(getText(key, a1, a2));
+        report(DiagnosticReporter.WARNING, null, key, a1, a2, null);
     }
 
     /**
@@ -333,7 +332,7 @@ public class MessageRetriever {
      * @param a3 third argument to be replaced in the message.
      */
     public void warning(SourcePosition pos, String key, String a1, String a2, String a3) {
-        printWarning(pos, getText(key, a1, a2, a3));
+        report(DiagnosticReporter.WARNING, pos, key, a1, a2, a3);
     }
 
     /**
@@ -345,7 +344,7 @@ public class MessageRetriever {
      * @param a3 third argument to be replaced in the message.
      */
     public void warning(String key, String a1, String a2, String a3) {
-        printWarning(getText(key, a1, a2, a3));
+        report(DiagnosticReporter.WARNING, null, key, a1, a2, a3);
     }
 
     /**
@@ -355,7 +354,7 @@ public class MessageRetriever {
      * @param key selects message from resource
      */
     public void notice(SourcePosition pos, String key) {
-        printNotice(pos, getText(key));
+        report(DiagnosticReporter.NOTICE, pos, key, null, null, null);
     }
 
     /**
@@ -364,7 +363,7 @@ public class MessageRetriever {
      * @param key selects message from resource
      */
     public void notice(String key) {
-        printNotice(getText(key));
+        report(DiagnosticReporter.NOTICE, null, key, null, null, null);
     }
 
     /**
@@ -374,7 +373,7 @@ public class MessageRetriever {
      * @param a1 first argument to be replaced in the message.
      */
     public void notice(SourcePosition pos, String key, String a1) {
-        printNotice(pos, getText(key, a1));
+        report(DiagnosticReporter.NOTICE, pos, key, a1, null, null);
     }
 
     /**
@@ -384,7 +383,7 @@ public class MessageRetriever {
      * @param a1 first argument to be replaced in the message.
      */
     public void notice(String key, String a1) {
-        printNotice(getText(key, a1));
+        report(DiagnosticReporter.NOTICE, null, key, a1, null, null);
     }
 
     /**
@@ -396,7 +395,7 @@ public class MessageRetriever {
      * @param a2 second argument to be replaced in the message.
      */
     public void notice(SourcePosition pos, String key, String a1, String a2) {
-        printNotice(pos, getText(key, a1, a2));
+        report(DiagnosticReporter.NOTICE, pos, key, a1, a2, null);
     }
 
     /**
@@ -407,7 +406,7 @@ public class MessageRetriever {
      * @param a2 second argument to be replaced in the message.
      */
     public void notice(String key, String a1, String a2) {
-        printNotice(getText(key, a1, a2));
+        report(DiagnosticReporter.NOTICE, null, key, a1, a2, null);
     }
 
     /**
@@ -420,7 +419,7 @@ public class MessageRetriever {
      * @param a3 third argument to be replaced in the message.
      */
     public void notice(SourcePosition pos, String key, String a1, String a2, String a3) {
-        printNotice(pos, getText(key, a1, a2, a3));
+        report(DiagnosticReporter.NOTICE, pos, key, a1, a2, a3);
     }
 
     /**
@@ -432,6 +431,6 @@ public class MessageRetriever {
      * @param a3 third argument to be replaced in the message.
      */
     public void notice(String key, String a1, String a2, String a3) {
-        printNotice(getText(key, a1, a2, a3));
+        report(DiagnosticReporter.NOTICE, null, key, a1, a2, a3);
     }
 }
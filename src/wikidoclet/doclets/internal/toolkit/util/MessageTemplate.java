@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import java.text.MessageFormat;
+import java.util.*;
+
+/**
+ * A message of a resource bundle, parsed once into literal text and
+ * arguments.  Formatting a message then only appends the pieces, with the
+ * same result as {@link MessageFormat#format(Object)} for string
+ * arguments: a null argument is written as "null", and an argument beyond
+ * the ones given is written as its placeholder.
+ * <p>
+ * Only the patterns the doclet's resources use are compiled: literal text,
+ * with the quoting rules of <code>MessageFormat</code>, and plain
+ * placeholders such as <code>{0}</code>.  A pattern with a format type,
+ * such as <code>{0,number}</code>, is left to a <code>MessageFormat</code>,
+ * as is a pattern that <code>MessageFormat</code> would reject, so that it
+ * fails the same way.  Templates are immutable and may be shared by
+ * threads.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+final class MessageTemplate {
+
+    /**
+     * The literal text before each argument, followed by the text after
+     * the last argument.
+     */
+    private final String[] literals;
+
+    /**
+     * The index of each argument.
+     */
+    private final int[] arguments;
+
+    /**
+     * The format for a pattern that is not compiled, or null.
+     */
+    private final MessageFormat format;
+
+    /**
+     * The length of the literal text.
+     */
+    private final int length;
+
+    private MessageTemplate(String[] literals, int[] arguments,
+            MessageFormat format) {
+        this.literals = literals;
+        this.arguments = arguments;
+        this.format = format;
+        int length = 0;
+        for (int i = 0; literals != null && i < literals.length; i++) {
+            length += literals[i].length();
+        }
+        this.length = length;
+    }
+
+    /**
+     * Compile the given pattern.
+     *
+     * @param pattern the pattern, in the syntax of {@link MessageFormat}.
+     * @return the template.
+     * @throws IllegalArgumentException if the pattern is invalid.
+     */
+    static MessageTemplate compile(String pattern) {
+        List literals = new ArrayList();
+        List arguments = new ArrayList();
+        StringBuffer literal = new StringBuffer();
+        boolean inQuote = false;
+        int i = 0;
+        while (i < pattern.length()) {
+            char ch = pattern.charAt(i++);
+            if (ch == '\'') {
+                if (i < pattern.length() && pattern.charAt(i) == '\'') {
+                    literal.append(ch);
+                    i++;
+                } else {
+                    inQuote = ! inQuote;
+                }
+            } else if (ch == '{' && ! inQuote) {
+                int end = pattern.indexOf('}', i);
+                int index = end == -1 ? -1 : parseIndex(pattern, i, end);
+                if (index == -1) {
+                    return new MessageTemplate(null, null,
+                        new MessageFormat(pattern));
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                arguments.add(new Integer(index));
+                i = end + 1;
+            } else {
+                literal.append(ch);
+            }
+        }
+        literals.add(literal.toString());
+        int[] indexes = new int[arguments.size()];
+        for (int j = 0; j < indexes.length; j++) {
+            indexes[j] = ((Integer) arguments.get(j)).intValue();
+        }
+        return new MessageTemplate(
+            (String[]) literals.toArray(new String[literals.size()]),
+            indexes, null);
+    }
+
+    /**
+     * Return the argument index between the given positions, or -1 if the
+     * text is not just a non-negative decimal number.
+     */
+    private static int parseIndex(String pattern, int start, int end) {
+        if (start == end || end - start > 4) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = start; i < end; i++) {
+            char ch = pattern.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return -1;
+            }
+            index = index * 10 + (ch - '0');
+        }
+        return index;
+    }
+
+    /**
+     * Format the message.  The text of a template without arguments is
+     * returned as is.
+     *
+     * @param args the arguments.
+     * @return the message.
+     */
+    String format(String[] args) {
+        if (format != null) {
+            // A format may not be used by two threads at once.
+            synchronized (format) {
+                return format.format(args);
+            }
+        }
+        if (arguments.length == 0) {
+            return literals[0];
+        }
+        StringBuffer result = new StringBuffer(length + 16 * arguments.length);
+        for (int i = 0; i < arguments.length; i++) {
+            result.append(literals[i]);
+            int index = arguments[i];
+            if (index >= args.length) {
+                result.append('{').append(index).append('}');
+            } else {
+                result.append(args[index]);
+            }
+        }
+        result.append(literals[arguments.length]);
+        return result.toString();
+    }
+}
@@ -44,7 +44,7 @@ public class MetaKeywords {
      *
      * @param configuration the current configuration of the doclet.
      */
-    public static MetaKeywords getInstance(Configuration configuration) {
+    public static synchronized MetaKeywords getInstance(Configuration configuration) {
         if (instance == null) {
             instance = new MetaKeywords(configuration);
         }
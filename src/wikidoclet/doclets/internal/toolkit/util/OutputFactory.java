@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+/**
+ * Opens the files that the generated documentation is written to.
+ * {@link Util#genWriter} asks the factory of the configuration for every
+ * file, so the way output reaches the disk can be changed by installing a
+ * different factory.
+ * <p>
+ * Two strategies are provided.  {@link Buffered} puts large buffers in front
+ * of the encoder and behind it, so the many small prints of a page are
+ * encoded and written in big blocks.  {@link Paged} keeps the whole page in
+ * memory and writes it with a single channel write when the page is closed.
+ * Both count the files opened, the bytes written and the writes issued to
+ * the file system.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+public abstract class OutputFactory {
+
+    /**
+     * The default size of the output buffers, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private int files = 0;
+
+    private long writes = 0;
+
+    private long bytes = 0;
+
+    /**
+     * Return a writer for the given file.
+     *
+     * @param file        the file to write.
+     * @param docencoding the encoding of the file, or null for the platform
+     *                    default.
+     * @exception IOException if the file can not be opened.
+     * @exception UnsupportedEncodingException if the encoding is not
+     *                                         supported.
+     */
+    public abstract Writer createWriter(File file, String docencoding)
+        throws IOException, UnsupportedEncodingException;
+
+    /**
+     * Return the number of files opened.
+     */
+    public synchronized int getFiles() {
+        return files;
+    }
+
+    /**
+     * Return the number of writes issued to the file system.
+     */
+    public synchronized long getWrites() {
+        return writes;
+    }
+
+    /**
+     * Return the number of bytes written.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Record that a file was opened.
+     */
+    protected synchronized void countFile() {
+        files++;
+    }
+
+    /**
+     * Record one write of the given number of bytes.
+     */
+    protected synchronized void countWrite(int len) {
+        writes++;
+        bytes += len;
+    }
+
+    /**
+     * Return the charset for the given encoding.
+     */
+    static Charset getCharset(String docencoding)
+            throws UnsupportedEncodingException {
+        if (docencoding == null) {
+            return Charset.defaultCharset();
+        }
+        try {
+            return Charset.forName(docencoding);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(docencoding);
+        }
+    }
+
+    /**
+     * Write through large buffers, in blocks of the buffer size.
+     */
+    public static class Buffered extends OutputFactory {
+
+        private final int bufferSize;
+
+        /**
+         * Construct a new factory.
+         *
+         * @param bufferSize the size of the character and byte buffers.
+         */
+        public Buffered(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Writer createWriter(File file, String docencoding)
+                throws IOException, UnsupportedEncodingException {
+            Charset charset = getCharset(docencoding);
+            OutputStream out = new CountingOutputStream(
+                new FileOutputStream(file));
+            countFile();
+            return new BufferedWriter(new OutputStreamWriter(
+                new BufferedOutputStream(out, bufferSize), charset),
+                bufferSize);
+        }
+
+        /**
+         * Counts every write that reaches the file.
+         */
+        private class CountingOutputStream extends FilterOutputStream {
+
+            CountingOutputStream(OutputStream out) {
+                super(out);
+            }
+
+            public void write(int b) throws IOException {
+                out.write(b);
+                countWrite(1);
+            }
+
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                countWrite(len);
+            }
+        }
+    }
+
+    /**
+     * Keep each page in memory and write it in one go when it is closed.
+     */
+    public static class Paged extends OutputFactory {
+
+        /**
+         * {@inheritDoc}
+         */
+        public Writer createWriter(File file, String docencoding)
+                throws IOException, UnsupportedEncodingException {
+            Charset charset = getCharset(docencoding);
+            FileOutputStream out = new FileOutputStream(file);
+            countFile();
+            return new PageWriter(out, charset);
+        }
+
+        /**
+         * Collects the characters of a page and encodes and writes them on
+         * close.
+         */
+        private class PageWriter extends Writer {
+
+            private final FileOutputStream out;
+
+            private final Charset charset;
+
+            private StringBuilder page = new StringBuilder(8192);
+
+            PageWriter(FileOutputStream out, Charset charset) {
+                this.out = out;
+                this.charset = charset;
+            }
+
+            public void write(int c) throws IOException {
+                ensureOpen();
+                page.append((char) c);
+            }
+
+            public void write(char[] cbuf, int off, int len)
+                    throws IOException {
+                ensureOpen();
+                page.append(cbuf, off, len);
+            }
+
+            public void write(String str, int off, int len)
+                    throws IOException {
+                ensureOpen();
+                page.append(str, off, off + len);
+            }
+
+            /**
+             * The page is only written on close.
+             */
+            public void flush() throws IOException {
+                ensureOpen();
+            }
+
+            public void close() throws IOException {
+                if (page == null) {
+                    return;
+                }
+                try {
+                    ByteBuffer buffer = charset.encode(CharBuffer.wrap(page));
+                    page = null;
+                    FileChannel channel = out.getChannel();
+                    while (buffer.hasRemaining()) {
+                        countWrite(channel.write(buffer));
+                    }
+                } finally {
+                    page = null;
+                    out.close();
+                }
+            }
+
+            private void ensureOpen() throws IOException {
+                if (page == null) {
+                    throw new IOException("Stream closed");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import java.io.*;
+import java.net.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * Read the "package-list" files of external documentation, keeping a copy
+ * of each file fetched over HTTP in a cache directory, so that later runs
+ * need not fetch it again.
+ * <p>
+ * A cached copy is used as is while it is younger than the time to live.
+ * After that it is revalidated with the ETag and Last-Modified headers
+ * the server sent along, so an unchanged file is not transferred again.
+ * If the server can not be reached, a stale copy is used rather than
+ * none.  In offline mode only the cached copies are used.
+ * <p>
+ * Each copy is a file in the cache directory, named after a digest of its
+ * URL.  It is written to a new file first, so that a run never reads a
+ * partly written copy, and a copy that can not be written is simply
+ * fetched again by the next run.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+public class PackageListCache {
+
+    /**
+     * The suffix of the files in the cache directory.
+     */
+    public static final String CACHE_SUFFIX = ".package-list";
+
+    private static final int CACHE_MAGIC = 0x5744504c;
+
+    private static final int CACHE_VERSION = 1;
+
+    /**
+     * The cache directory, or null if nothing is cached.
+     */
+    private final File dir;
+
+    /**
+     * The time to live of a cached copy, in milliseconds.
+     */
+    private final long ttl;
+
+    /**
+     * True if only cached copies may be used.
+     */
+    private final boolean offline;
+
+    /**
+     * Construct a new cache.
+     *
+     * @param dir     the cache directory, or null to cache nothing.
+     * @param ttl     the time to live of a cached copy, in milliseconds.
+     * @param offline true if nothing may be fetched over HTTP.
+     */
+    public PackageListCache(File dir, long ttl, boolean offline) {
+        this.dir = dir;
+        this.ttl = ttl;
+        this.offline = offline;
+    }
+
+    /**
+     * Return the names of the packages listed by the "package-list" file
+     * at the given URL.
+     *
+     * @param url the URL of the file.
+     * @return the list of package names, in the order of the file.
+     * @throws IOException if the file can not be read, or if it is not
+     *         cached in offline mode.
+     */
+    public List read(URL url) throws IOException {
+        String protocol = url.getProtocol();
+        if (! (protocol.equals("http") || protocol.equals("https"))) {
+            return readPackageList(url.openStream());
+        }
+        File file = dir == null ? null : getFile(url);
+        Entry entry = file == null ? null : load(file, url);
+        if (offline) {
+            if (entry == null) {
+                throw new FileNotFoundException(url.toString());
+            }
+            return entry.packages;
+        }
+        long now = System.currentTimeMillis();
+        if (entry != null && now >= entry.fetched &&
+                now - entry.fetched < ttl) {
+            return entry.packages;
+        }
+        Entry fetched;
+        try {
+            fetched = fetch(url, entry, now);
+        } catch (IOException e) {
+            if (entry != null) {
+                return entry.packages;
+            }
+            throw e;
+        }
+        if (file != null) {
+            store(file, url, fetched);
+        }
+        return fetched.packages;
+    }
+
+    /**
+     * Fetch the file, or only revalidate the cached copy if there is one.
+     */
+    private static Entry fetch(URL url, Entry entry, long now)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            if (entry != null) {
+                if (entry.etag.length() > 0) {
+                    connection.setRequestProperty("If-None-Match", entry.etag);
+                }
+                if (entry.lastModified.length() > 0) {
+                    connection.setRequestProperty("If-Modified-Since",
+                        entry.lastModified);
+                }
+            }
+            String etag = connection.getHeaderField("ETag");
+            String lastModified = connection.getHeaderField("Last-Modified");
+            if (entry != null && connection.getResponseCode() ==
+                    HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return new Entry(etag == null ? entry.etag : etag,
+                    lastModified == null ? entry.lastModified : lastModified,
+                    now, entry.packages);
+            }
+            List packages = readPackageList(connection.getInputStream());
+            return new Entry(etag == null ? "" : etag,
+                lastModified == null ? "" : lastModified, now, packages);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Read the package names from a "package-list" file, one per line,
+     * skipping empty lines, and close the stream.
+     *
+     * @param input the contents of the file.
+     * @return the list of package names.
+     */
+    static List readPackageList(InputStream input) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(input));
+        List packages = new ArrayList();
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.length() > 0) {
+                    packages.add(line);
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return packages;
+    }
+
+    /**
+     * Return the file of the cached copy of the given URL.
+     */
+    private File getFile(URL url) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(
+                url.toString().getBytes("UTF-8"));
+        } catch (GeneralSecurityException e) {
+            return null;
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+        StringBuffer name = new StringBuffer(2 * digest.length +
+            CACHE_SUFFIX.length());
+        for (int i = 0; i < digest.length; i++) {
+            name.append(Character.forDigit((digest[i] >> 4) & 0xf, 16));
+            name.append(Character.forDigit(digest[i] & 0xf, 16));
+        }
+        name.append(CACHE_SUFFIX);
+        return new File(dir, name.toString());
+    }
+
+    /**
+     * Return the cached copy of the given URL, or null if there is none.
+     */
+    private static Entry load(File file, URL url) {
+        if (! file.exists()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != CACHE_MAGIC ||
+                        in.readInt() != CACHE_VERSION ||
+                        ! in.readUTF().equals(url.toString())) {
+                    return null;
+                }
+                String etag = in.readUTF();
+                String lastModified = in.readUTF();
+                long fetched = in.readLong();
+                int count = in.readInt();
+                if (count < 0) {
+                    return null;
+                }
+                List packages = new ArrayList(count);
+                for (int i = 0; i < count; i++) {
+                    packages.add(in.readUTF());
+                }
+                return new Entry(etag, lastModified, fetched, packages);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // Fetch the file again.
+            return null;
+        }
+    }
+
+    /**
+     * Write the copy of the given URL, or leave the cache alone if it can
+     * not be written.
+     */
+    private static void store(File file, URL url, Entry entry) {
+        File tmp = null;
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            parent.mkdirs();
+            tmp = File.createTempFile(file.getName(), null, parent);
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeUTF(url.toString());
+                out.writeUTF(entry.etag);
+                out.writeUTF(entry.lastModified);
+                out.writeLong(entry.fetched);
+                out.writeInt(entry.packages.size());
+                for (int i = 0; i < entry.packages.size(); i++) {
+                    out.writeUTF((String) entry.packages.get(i));
+                }
+            } finally {
+                out.close();
+            }
+            file.delete();
+            if (tmp.renameTo(file)) {
+                tmp = null;
+            }
+        } catch (IOException e) {
+            // The file is fetched again by the next run.
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * A copy of a "package-list" file.
+     */
+    private static class Entry {
+
+        /**
+         * The ETag header of the response, or "".
+         */
+        final String etag;
+
+        /**
+         * The Last-Modified header of the response, or "".
+         */
+        final String lastModified;
+
+        /**
+         * The time the file was last fetched or revalidated.
+         */
+        final long fetched;
+
+        /**
+         * The names of the packages.
+         */
+        final List packages;
+
+        Entry(String etag, String lastModified, long fetched, List packages) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.fetched = fetched;
+            this.packages = packages;
+        }
+    }
+}
@@ -11,9 +11,12 @@ import wikidoclet.doclets.internal.toolkit.*;
 import com.sun.javadoc.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
- * Converts Java Source Code to HTML.
+ * Converts Java Source Code to HTML.  The source is read with the encoding
+ * given by -encoding and the pages are written with the encoding given by
+ * -docencoding.
  *
  * This code is not part of an API.
  * It is implementation that is subject to change.
@@ -48,24 +51,38 @@ public class SourceToHTMLConverter {
     private SourceToHTMLConverter() {}
 
     /**
-     * Convert the Classes in the given RootDoc to an HTML.
+     * Convert the Classes in the given RootDoc to an HTML.  The packages
+     * are converted in parallel when more than one thread is configured.
      * @param configuration the configuration.
      * @param rd the RootDoc to convert.
      * @param outputdir the name of the directory to output to.
      */
-    public static void convertRoot(Configuration configuration, RootDoc rd, String outputdir) {
+    public static void convertRoot(final Configuration configuration, RootDoc rd,
+            final String outputdir) {
         if (rd == null || outputdir == null) {
             return;
         }
+        List tasks = new ArrayList();
         PackageDoc[] pds = rd.specifiedPackages();
         for (int i = 0; i < pds.length; i++) {
-            convertPackage(configuration, pds[i], outputdir);
+            final PackageDoc pd = pds[i];
+            tasks.add(new Callable() {
+                public Object call() {
+                    convertPackage(configuration, pd, outputdir);
+                    return null;
+                }
+            });
         }
-        ClassDoc[] cds = rd.specifiedClasses();
-        for (int i = 0; i < cds.length; i++) {
-            convertClass(configuration, cds[i],
-                getPackageOutputDir(outputdir, cds[i].containingPackage()));
+        final ClassDoc[] cds = rd.specifiedClasses();
+        if (cds.length > 0) {
+            tasks.add(new Callable() {
+                public Object call() {
+                    convertClasses(configuration, cds, outputdir);
+                    return null;
+                }
+            });
         }
+        Util.invokeAll(tasks, configuration.threads);
     }
 
     /**
@@ -78,10 +95,36 @@ public class SourceToHTMLConverter {
         if (pd == null || outputdir == null) {
             return;
         }
-        String classOutputdir = getPackageOutputDir(outputdir, pd);
-        ClassDoc[] cds = pd.allClasses();
+        convertClasses(configuration, pd.allClasses(), outputdir);
+    }
+
+    /**
+     * Convert the given classes to HTML.  Every source file is read once,
+     * and written to the pages of all the classes declared in it.
+     * @param configuration the configuration.
+     * @param cds the classes to convert.
+     * @param outputdir the name of the directory to output to.
+     */
+    private static void convertClasses(Configuration configuration,
+            ClassDoc[] cds, String outputdir) {
+        Map fileToPages = new LinkedHashMap();
         for (int i = 0; i < cds.length; i++) {
-            convertClass(configuration, cds[i], classOutputdir);
+            File file = getSourceFile(cds[i]);
+            if (file == null) {
+                continue;
+            }
+            List pages = (List) fileToPages.get(file);
+            if (pages == null) {
+                pages = new ArrayList();
+                fileToPages.put(file, pages);
+            }
+            pages.add(getPage(getPackageOutputDir(outputdir,
+                cds[i].containingPackage()), cds[i]));
+        }
+        for (Iterator it = fileToPages.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            convertFile(configuration, (File) entry.getKey(),
+                (List) entry.getValue());
         }
     }
 
@@ -105,71 +148,83 @@ public class SourceToHTMLConverter {
         if (cd == null || outputdir == null) {
             return;
         }
-        File file;
-        SourcePosition sp = cd.position();
-        if (sp == null || (file = sp.file()) == null) {
+        File file = getSourceFile(cd);
+        if (file == null) {
             return;
         }
-        try {
-            int lineno = 1;
-            String line;
-            StringBuffer output = new StringBuffer();
-            LineNumberReader reader = new LineNumberReader(new FileReader(file));
-	    try {
-		while ((line = reader.readLine()) != null) {
-		    output.append(formatLine(line, configuration.sourcetab, lineno));
-		    lineno++;
-		}
-	    } finally {
-		reader.close();
-	    }
-            output = addLineNumbers(output.toString());
-            output.insert(0, getHeader());
-            output.append(getFooter());
-            writeToFile(output.toString(), outputdir, cd.name(), configuration);
-        } catch (Exception e){
-            e.printStackTrace();
-        }
+        convertFile(configuration, file,
+            Collections.singletonList(getPage(outputdir, cd)));
     }
 
     /**
-     * Write the output to the file.
-     * @param output the string to output.
-     * @param outputDir the directory to output to.
-     * @param className the name of the class that I am converting to HTML.
-     * @param configuration the Doclet configuration to pass notices to.
+     * Return the source file of the given class, or null if it is not known.
      */
-    private static void writeToFile(String output, String outputDir, String className, Configuration configuration) throws IOException {
-        File dir = new File(outputDir);
-        dir.mkdirs();
-        File newFile = new File(dir, className + ".html");
-        configuration.message.notice("doclet.Generating_0", newFile.getPath());
-        FileOutputStream fout = new FileOutputStream(newFile);
-        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(fout));
-        bw.write(output);
-        bw.close();
-        fout.close();
+    private static File getSourceFile(ClassDoc cd) {
+        SourcePosition sp = cd.position();
+        return sp == null ? null : sp.file();
     }
 
     /**
-     * Given a <code>String</code>, add line numbers.
-     * @param s the text to add line numbers to.
-     *
-     * @return the string buffer with the line numbering for each line.
+     * Return the page of the given class in the given directory.
      */
-    private static StringBuffer addLineNumbers(String s) {
-        StringBuffer sb = new StringBuffer();
-        StringTokenizer st = new StringTokenizer(s, "\n", true);
-        int lineno = 1;
-        String current;
-        while(st.hasMoreTokens()){
-            current = st.nextToken();
-            sb.append(current.equals("\n") ?
-                    getHTMLLineNo(lineno) + current :
-                    getHTMLLineNo(lineno) + current + st.nextToken());
-            lineno++;
+    private static File getPage(String outputDir, ClassDoc cd) {
+        return new File(new File(outputDir), cd.name() + ".html");
+    }
+
+    /**
+     * Convert a source file to HTML.  The file is read with the source
+     * encoding line by line, and every line is written with its number and
+     * anchor to all the given pages.
+     * @param configuration the configuration.
+     * @param file the source file.
+     * @param pages the pages to write.
+     */
+    private static void convertFile(Configuration configuration, File file,
+            List pages) {
+        Writer[] writers = new Writer[pages.size()];
+        try {
+            InputStream in = new FileInputStream(file);
+            BufferedReader reader = new BufferedReader(
+                configuration.encoding == null ?
+                    new InputStreamReader(in) :
+                    new InputStreamReader(in, configuration.encoding));
+            try {
+                for (int i = 0; i < writers.length; i++) {
+                    File page = (File) pages.get(i);
+                    page.getParentFile().mkdirs();
+                    configuration.message.notice("doclet.Generating_0",
+                        page.getPath());
+                    writers[i] = configuration.outputFactory.createWriter(
+                        page, configuration.docencoding);
+                }
+                write(writers, getHeader());
+                StringBuffer output = new StringBuffer();
+                String line;
+                int lineno = 1;
+                while ((line = reader.readLine()) != null) {
+                    output.setLength(0);
+                    appendLine(output, line, configuration.sourcetab, lineno);
+                    write(writers, output.toString());
+                    lineno++;
+                }
+                write(writers, getFooter());
+            } finally {
+                reader.close();
+                for (int i = 0; i < writers.length; i++) {
+                    if (writers[i] != null) {
+                        writers[i].close();
+                    }
+                }
+            }
+        } catch (Exception e){
+            e.printStackTrace();
+        }
+    }
+
+    private static void write(Writer[] writers, String s) throws IOException {
+        for (int i = 0; i < writers.length; i++) {
+            writers[i].write(s);
         }
-        return sb;
     }
 
     /**
@@ -198,42 +253,53 @@ public class SourceToHTMLConverter {
     }
 
     /**
-     * Get the HTML for the lines.
-     * @param lineno The line number
-     * @return the HTML code for the line
-     */
-    protected static String getHTMLLineNo(int lineno) {
-        StringBuffer result = new StringBuffer("<FONT color=\"" + LINE_NO_COLOR
-            + "\">");
-        if (lineno < 10) {
-            result.append("00" + ((new Integer(lineno)).toString()));
-        } else if (lineno < 100) {
-            result.append("0" + ((new Integer(lineno)).toString()));
-        } else {
-            result.append((new Integer(lineno)).toString());
-        }
-        result.append("</FONT>    ");
-        return result.toString();
-    }
-
-    /**
-     * Format a given line of source. <br>
+     * Append the HTML for one line of source: the line number, the text
+     * with the HTML characters escaped and the tabs expanded, and an anchor
+     * for the line. <br>
      * Note:  In the future, we will add special colors for constructs in the
      * language.
+     * @param sb the buffer to append to.
      * @param line the string to format.
      * @param tabLength the number of spaces for each tab.
-     * @param currentLineNo the current number.
+     * @param lineno the current number.
      */
-    protected static String formatLine(String line, int tabLength, int currentLineNo) {
-        if (line == null) {
-            return null;
+    protected static void appendLine(StringBuffer sb, String line,
+            int tabLength, int lineno) {
+        sb.append("<FONT color=\"" + LINE_NO_COLOR + "\">");
+        if (lineno < 10) {
+            sb.append("00");
+        } else if (lineno < 100) {
+            sb.append('0');
+        }
+        sb.append(lineno);
+        sb.append("</FONT>    ");
+        // Tabs are expanded to the columns of the escaped text.
+        int start = sb.length();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '\t':
+                    do {
+                        sb.append(' ');
+                    } while (((sb.length() - start) % tabLength) != 0);
+                    break;
+                default:
+                    sb.append(c);
+            }
         }
-        StringBuffer lineBuffer = new StringBuffer(Util.escapeHtmlChars(line));
-        //Insert an anchor for the line
-        lineBuffer.append("<a name=\"line." + Integer.toString(currentLineNo) + "\"></a>");
-        lineBuffer.append(DocletConstants.NL);
-        Util.replaceTabs(tabLength, lineBuffer);
-        return lineBuffer.toString();
+        sb.append("<a name=\"line.");
+        sb.append(lineno);
+        sb.append("\"></a>");
+        sb.append(DocletConstants.NL);
     }
 
     /**
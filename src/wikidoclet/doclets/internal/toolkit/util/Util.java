@@ -10,6 +10,7 @@ package wikidoclet.doclets.internal.toolkit.util;
 import com.sun.javadoc.*;
 import wikidoclet.doclets.internal.toolkit.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 
 /**
@@ -31,6 +32,16 @@ public class Util {
     public static final String[][] HTML_ESCAPE_CHARS =
     {{"&", "&amp;"}, {"<", "&lt;"}, {">", "&gt;"}};
 
+    /**
+     * The lock held while the comment of a doc that may not be documented
+     * is read.  Javadoc parses a comment the first time it is asked for,
+     * which is not thread safe.  The comments of the documented docs are
+     * read before the pages are generated on several threads, the others
+     * only when a page needs them.  The lock is also held while javadoc
+     * looks up the class of a throws tag, which it does on every call.
+     */
+    public static final Object COMMENT_LOCK = new Object();
+
     /**
      * Return array of class members whose documentation is to be generated.
      * If the member is deprecated do not include such a member in the
@@ -58,9 +69,11 @@ public class Util {
     public static List excludeDeprecatedMembersAsList(
         ProgramElementDoc[] members) {
         List list = new ArrayList();
-        for (int i = 0; i < members.length; i++) {
-            if (members[i].tags("deprecated").length == 0) {
-                list.add(members[i]);
+        synchronized (COMMENT_LOCK) {
+            for (int i = 0; i < members.length; i++) {
+                if (members[i].tags("deprecated").length == 0) {
+                    list.add(members[i]);
+                }
             }
         }
         Collections.sort(list);
@@ -111,6 +124,20 @@ public class Util {
         return null;
     }
 
+    /**
+     * Return the key under which the given method is indexed.  Two methods
+     * can only be equal in the sense of {@link #executableMembersEqual}
+     * if they have the same key: the name and the number of parameters.
+     * The types of the parameters are not part of the key, because a
+     * method may override another that is declared with type variables.
+     *
+     * @param method the method.
+     * @return the key of the method.
+     */
+    public static String getSignatureKey(MethodDoc method) {
+        return method.name() + '/' + method.parameters().length;
+    }
+
     /**
      * @param member1 the first method to compare.
      * @param member2 the second method to compare.
@@ -371,10 +398,41 @@ public class Util {
      *                    super interfaces are sought.
      * @param  configuration the current configuration of the doclet.
      * @param  sort if true, return list of interfaces sorted alphabetically.
-     * @return List of all the required interfaces.
+     * @return List of all the required interfaces.  The lists of classes
+     *         are shared through the {@link InheritanceCache} of the
+     *         configuration and must not be modified.
      */
     public static List getAllInterfaces(Type type,
             Configuration configuration, boolean sort) {
+        return getAllInterfaces(type, configuration, sort,
+            configuration == null ? null : configuration.inheritanceCache);
+    }
+
+    public static List getAllInterfaces(Type type, Configuration configuration) {
+    	return getAllInterfaces(type, configuration, true);
+    }
+
+    /**
+     * Return all the interfaces of the type, from the cache if it is given
+     * and the type is a class.
+     *
+     * @see #getAllInterfaces(Type, Configuration, boolean)
+     */
+    private static List getAllInterfaces(Type type,
+            Configuration configuration, boolean sort, InheritanceCache cache) {
+        if (cache != null && type instanceof ClassDoc) {
+            return cache.getAllInterfaces((ClassDoc) type, configuration, sort);
+        }
+        return findAllInterfaces(type, configuration, sort, cache);
+    }
+
+    /**
+     * Find all the interfaces of the type.
+     *
+     * @see #getAllInterfaces(Type, Configuration, boolean)
+     */
+    static List findAllInterfaces(Type type, Configuration configuration,
+            boolean sort, InheritanceCache cache) {
         Map results = sort ? new TreeMap() : new LinkedHashMap();
         Type[] interfaceTypes = null;
         Type superType = null;
@@ -398,7 +456,8 @@ public class Util {
                 continue;
             }
             results.put(interfaceClassDoc, interfaceType);
-            List superInterfaces = getAllInterfaces(interfaceType, configuration, sort);
+            List superInterfaces = getAllInterfaces(interfaceType,
+                configuration, sort, cache);
             for (Iterator iter = superInterfaces.iterator(); iter.hasNext(); ) {
                 Type t = (Type) iter.next();
                 results.put(t.asClassDoc(), t);
@@ -412,7 +471,7 @@ public class Util {
             superType instanceof ClassDoc ?
                 ((ClassDoc) superType).interfaceTypes() :
                 ((ParameterizedType) superType).interfaceTypes(),
-            false, configuration);
+            false, configuration, cache);
         List resultsList = new ArrayList(results.values());
         if (sort) {
         	Collections.sort(resultsList, new TypeComparator());
@@ -420,12 +479,8 @@ public class Util {
         return resultsList;
     }
 
-    public static List getAllInterfaces(Type type, Configuration configuration) {
-    	return getAllInterfaces(type, configuration, true);
-    }
-
     private static void findAllInterfaceTypes(Map results, ClassDoc c, boolean raw,
-            Configuration configuration) {
+            Configuration configuration, InheritanceCache cache) {
         Type superType = c.superclassType();
         if (superType == null)
             return;
@@ -433,11 +488,11 @@ public class Util {
                 superType instanceof ClassDoc ?
                 ((ClassDoc) superType).interfaceTypes() :
                 ((ParameterizedType) superType).interfaceTypes(),
-                raw, configuration);
+                raw, configuration, cache);
     }
 
     private static void findAllInterfaceTypes(Map results, ParameterizedType p,
-            Configuration configuration) {
+            Configuration configuration, InheritanceCache cache) {
         Type superType = p.superclassType();
         if (superType == null)
             return;
@@ -445,12 +500,12 @@ public class Util {
                 superType instanceof ClassDoc ?
                 ((ClassDoc) superType).interfaceTypes() :
                 ((ParameterizedType) superType).interfaceTypes(),
-                false, configuration);
+                false, configuration, cache);
     }
 
     private static void addAllInterfaceTypes(Map results, Type type,
             Type[] interfaceTypes, boolean raw,
-            Configuration configuration) {
+            Configuration configuration, InheritanceCache cache) {
         for (int i = 0; i < interfaceTypes.length; i++) {
             Type interfaceType = interfaceTypes[i];
             ClassDoc interfaceClassDoc = interfaceType.asClassDoc();
@@ -462,18 +517,19 @@ public class Util {
             if (raw)
                 interfaceType = interfaceType.asClassDoc();
             results.put(interfaceClassDoc, interfaceType);
-            List superInterfaces = getAllInterfaces(interfaceType, configuration);
+            List superInterfaces = getAllInterfaces(interfaceType,
+                configuration, true, cache);
             for (Iterator iter = superInterfaces.iterator(); iter.hasNext(); ) {
                 Type superInterface = (Type) iter.next();
                 results.put(superInterface.asClassDoc(), superInterface);
             }
         }
         if (type instanceof ParameterizedType)
-            findAllInterfaceTypes(results, (ParameterizedType) type, configuration);
+            findAllInterfaceTypes(results, (ParameterizedType) type, configuration, cache);
         else if (((ClassDoc) type).typeParameters().length == 0)
-            findAllInterfaceTypes(results, (ClassDoc) type, raw, configuration);
+            findAllInterfaceTypes(results, (ClassDoc) type, raw, configuration, cache);
         else
-            findAllInterfaceTypes(results, (ClassDoc) type, true, configuration);
+            findAllInterfaceTypes(results, (ClassDoc) type, true, configuration, cache);
     }
 
 
@@ -553,8 +609,8 @@ public class Util {
     }
 
     /**
-     * Create the directory path for the file to be generated, construct
-     * FileOutputStream and OutputStreamWriter depending upon docencoding.
+     * Create the directory path for the file to be generated and open a
+     * writer for it with the {@link OutputFactory} of the configuration.
      *
      * @param path The directory path to be created for this file.
      * @param filename File Name to which the PrintWriter will do the Output.
@@ -564,28 +620,21 @@ public class Util {
      * @exception UnSupportedEncodingException Exception raised by the
      * OutputStreamWriter is passed on to next level.
      * @return Writer Writer for the file getting generated.
-     * @see java.io.FileOutputStream
-     * @see java.io.OutputStreamWriter
+     * @see OutputFactory
      */
     public static Writer genWriter(Configuration configuration,
             String path, String filename,
             String docencoding)
         throws IOException, UnsupportedEncodingException {
-        FileOutputStream fos;
+        File file;
         if (path != null) {
             DirectoryManager.createDirectory(configuration, path);
-            fos = new FileOutputStream(((path.length() > 0)?
-                                                  path + File.separator: "") + filename);
+            file = new File(((path.length() > 0)?
+                                     path + File.separator: "") + filename);
         } else {
-            fos = new FileOutputStream(filename);
-        }
-        if (docencoding == null) {
-            OutputStreamWriter oswriter = new OutputStreamWriter(fos);
-            docencoding = oswriter.getEncoding();
-            return oswriter;
-        } else {
-            return new OutputStreamWriter(fos, docencoding);
+            file = new File(filename);
         }
+        return configuration.outputFactory.createWriter(file, docencoding);
     }
 
     /**
@@ -773,7 +822,8 @@ public class Util {
 
     /**
      * The documentation for values() and valueOf() in Enums are set by the
-     * doclet.
+     * doclet.  A comment that is already set is left alone, so that javadoc
+     * does not parse it again.
      */
     public static void setEnumDocumentation(Configuration configuration,
             ClassDoc classDoc) {
@@ -782,20 +832,136 @@ public class Util {
             MethodDoc currentMethod = methods[j];
             if (currentMethod.name().equals("values") &&
                 currentMethod.parameters().length == 0) {
-                currentMethod.setRawCommentText(
+                setRawCommentText(currentMethod,
                     configuration.getText("doclet.enum_values_doc", classDoc.name()));
             } else if (currentMethod.name().equals("valueOf") &&
                 currentMethod.parameters().length == 1) {
                 Type paramType = currentMethod.parameters()[0].type();
                 if (paramType != null &&
                     paramType.qualifiedTypeName().equals(String.class.getName())) {
-                    currentMethod.setRawCommentText(
+                    setRawCommentText(currentMethod,
                         configuration.getText("doclet.enum_valueof_doc"));
                 }
             }
         }
     }
 
+    private static void setRawCommentText(Doc doc, String text) {
+        if (! text.equals(doc.getRawCommentText())) {
+            doc.setRawCommentText(text);
+        }
+    }
+
+    /**
+     * Run the given tasks and return their results in the order of the
+     * tasks.  With more than one thread the tasks run on a pool of that
+     * size, otherwise they run one after another in the current thread.
+     * A runtime exception thrown by a task is rethrown.  The messages
+     * reported by the tasks are printed in the order of the tasks.
+     *
+     * @param tasks   the list of {@link Callable}s to run.
+     * @param threads the number of threads to run them on.
+     * @return the list of results.
+     * @throws DocletAbortException if a task fails with a checked exception.
+     */
+    public static List invokeAll(List tasks, int threads) {
+        List results = new ArrayList(tasks.size());
+        try {
+            if (threads <= 1 || tasks.size() <= 1) {
+                for (Iterator iter = tasks.iterator(); iter.hasNext(); ) {
+                    results.add(((Callable) iter.next()).call());
+                }
+                return results;
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new DocletAbortException();
+        }
+        // Every task buffers its messages, and the buffers are flushed in
+        // the order of the tasks, as if they had run one after another.
+        final DiagnosticReporter.Buffer[] buffers =
+            new DiagnosticReporter.Buffer[tasks.size()];
+        List bufferedTasks = new ArrayList(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            final Callable task = (Callable) tasks.get(i);
+            final int index = i;
+            bufferedTasks.add(new Callable() {
+                public Object call() throws Exception {
+                    buffers[index] = DiagnosticReporter.startBuffer();
+                    try {
+                        return task.call();
+                    } finally {
+                        DiagnosticReporter.endBuffer();
+                    }
+                }
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List futures = pool.invokeAll(bufferedTasks);
+            for (int i = 0; i < buffers.length; i++) {
+                if (buffers[i] != null) {
+                    buffers[i].flush();
+                }
+            }
+            for (Iterator iter = futures.iterator(); iter.hasNext(); ) {
+                results.add(((Future) iter.next()).get());
+            }
+        } catch (InterruptedException e) {
+            throw new DocletAbortException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            e.getCause().printStackTrace();
+            throw new DocletAbortException();
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     * Return the first sentence of the comment of the given doc, which may
+     * not be documented.
+     *
+     * @param doc the doc whose first sentence is returned.
+     * @see #COMMENT_LOCK
+     */
+    public static Tag[] firstSentenceTags(Doc doc) {
+        synchronized (COMMENT_LOCK) {
+            return doc.firstSentenceTags();
+        }
+    }
+
+    /**
+     * Return the exception class of the given throws tag, or null if it
+     * can not be found.
+     *
+     * @param tag the throws tag.
+     * @see #COMMENT_LOCK
+     */
+    public static ClassDoc getException(ThrowsTag tag) {
+        synchronized (COMMENT_LOCK) {
+            return tag.exception();
+        }
+    }
+
+    /**
+     * Return the exception type of the given throws tag, or null if it
+     * can not be found.
+     *
+     * @param tag the throws tag.
+     * @see #COMMENT_LOCK
+     */
+    public static Type getExceptionType(ThrowsTag tag) {
+        synchronized (COMMENT_LOCK) {
+            return tag.exceptionType();
+        }
+    }
+
     /**
      *  Return true if the given Doc is deprecated.
      *
@@ -803,8 +969,10 @@ public class Util {
      * @return true if the given Doc is deprecated.
      */
     public static boolean isDeprecated(ProgramElementDoc doc) {
-        if (doc.tags("deprecated").length > 0) {
-            return true;
+        synchronized (COMMENT_LOCK) {
+            if (doc.tags("deprecated").length > 0) {
+                return true;
+            }
         }
         AnnotationDesc[] annotationDescList = doc.annotations();
         for (int i = 0; i < annotationDescList.length; i++) {
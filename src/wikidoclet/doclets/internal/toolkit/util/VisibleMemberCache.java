@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import com.sun.javadoc.*;
+import java.util.*;
+
+/**
+ * Cache of the {@link VisibleMemberMap}s of a run.  The member summaries,
+ * the member details, the constant values and the class pages all need the
+ * visible members of the same classes, so every map is built once per
+ * class, member kind and deprecation setting and shared afterwards.
+ * <p>
+ * The members declared by each class are cached as well.  A superclass or
+ * interface is part of the tree of every class below it, and its members
+ * are only read from the class the first time a map needs them.
+ *
+ * This code is not part of an API.
+ * It is implementation that is subject to change.
+ * Do not use it as an API
+ */
+public class VisibleMemberCache {
+
+    /**
+     * The visible member maps, keyed by class name, kind and deprecation
+     * setting.
+     */
+    private final Map maps = new HashMap();
+
+    /**
+     * The unmodifiable lists of declared members, keyed by class name,
+     * kind, deprecation setting and filter.
+     */
+    private final Map declaredMembers = new HashMap();
+
+    /**
+     * Return the shared map of the visible members of the given kind for
+     * the given class.
+     *
+     * @param cd the class whose members are being mapped.
+     * @param kind the kind of member, one of the constants of
+     *             {@link VisibleMemberMap}.
+     * @param nodepr if true, exclude the deprecated members from the map.
+     */
+    public VisibleMemberMap getVisibleMemberMap(ClassDoc cd, int kind,
+            boolean nodepr) {
+        String key = cd.qualifiedName() + ' ' + kind + ' ' + nodepr;
+        VisibleMemberMap map;
+        synchronized (this) {
+            map = (VisibleMemberMap) maps.get(key);
+        }
+        if (map == null) {
+            map = new VisibleMemberMap(cd, kind, nodepr, this);
+            synchronized (this) {
+                VisibleMemberMap other = (VisibleMemberMap) maps.get(key);
+                if (other != null) {
+                    map = other;
+                } else {
+                    maps.put(key, map);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Return the members of the given kind declared by the given class.
+     */
+    List getDeclaredMembers(ClassDoc cd, int kind, boolean nodepr,
+            boolean filter) {
+        String key = cd.qualifiedName() + ' ' + kind + ' ' + nodepr + ' ' +
+            filter;
+        List members;
+        synchronized (this) {
+            members = (List) declaredMembers.get(key);
+        }
+        if (members == null) {
+            members = Collections.unmodifiableList(
+                VisibleMemberMap.getDeclaredMembers(cd, kind, nodepr, filter));
+            synchronized (this) {
+                declaredMembers.put(key, members);
+            }
+        }
+        return members;
+    }
+}
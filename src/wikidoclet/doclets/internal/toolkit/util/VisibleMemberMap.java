@@ -17,6 +17,10 @@ import java.util.*;
  * the type of member you are interested in (nested class, field, constructor
  * or method) and the leaf of the class tree.  The data structure will map
  * all visible members in the leaf and classes above the leaf in the tree.
+ * <p>
+ * A map does not change once it is built and the lists it returns are
+ * copies, so one map can be shared by all the builders and writers of a
+ * class.  Use {@link VisibleMemberCache} to get the shared map.
  *
  * This code is not part of an API.
  * It is implementation that is subject to change.
@@ -52,9 +56,18 @@ public class VisibleMemberMap {
     /**
      * Map for each member name on to a map which contains members with same
      * name-signature. The mapped map will contain mapping for each MemberDoc
-     * onto it's respecive level string.
+     * onto it's respecive level string.  Kept in insertion order so that
+     * {@link #getClassMember} finds the same member on every run.
      */
-    private final Map memberNameMap = new HashMap();
+    private final Map memberNameMap = new LinkedHashMap();
+
+    /**
+     * The method keys of {@link #memberNameMap}, grouped by the
+     * {@link Util#getSignatureKey signature key} of their members.  Each
+     * list is in the order of the keys in the member name map, and holds
+     * the only keys that {@link #getClassMember} can match.
+     */
+    private final Map classMembers = new HashMap();
 
     /**
      * Map of class and it's ClassMembers object.
@@ -77,6 +90,12 @@ public class VisibleMemberMap {
      */
     private final boolean nodepr;
 
+    /**
+     * The cache of the members declared by the classes of the tree, or
+     * null to read them from the classes.
+     */
+    private final VisibleMemberCache cache;
+
     /**
      * Construct a VisibleMemberMap of the given type for the given
      * class.  If nodepr is true, exclude the deprecated members from
@@ -87,10 +106,27 @@ public class VisibleMemberMap {
      * @param nodepr if true, exclude the deprecated members from the map.
      */
     public VisibleMemberMap(ClassDoc classdoc, int kind, boolean nodepr) {
+        this(classdoc, kind, nodepr, null);
+    }
+
+    /**
+     * Construct a VisibleMemberMap of the given type for the given
+     * class, taking the members declared by the classes of the tree from
+     * the given cache.
+     *
+     * @param classdoc the class whose members are being mapped.
+     * @param kind the kind of member that is being mapped.
+     * @param nodepr if true, exclude the deprecated members from the map.
+     * @param cache the cache of declared members, or null.
+     */
+    VisibleMemberMap(ClassDoc classdoc, int kind, boolean nodepr,
+            VisibleMemberCache cache) {
         this.classdoc = classdoc;
         this.nodepr = nodepr;
         this.kind = kind;
+        this.cache = cache;
         new ClassMembers(classdoc, STARTLEVEL).build();
+        sort(visibleClasses);
     }
 
     /**
@@ -99,8 +135,7 @@ public class VisibleMemberMap {
      * @return the list of visible classes in this map.
      */
     public List getVisibleClassesList() {
-        sort(visibleClasses);
-        return visibleClasses;
+        return new ArrayList(visibleClasses);
     }
 
     /**
@@ -150,7 +185,7 @@ public class VisibleMemberMap {
         if (clmembers == null) {
             return new ArrayList();
         }
-        return clmembers.getMembers();
+        return new ArrayList(clmembers.getMembers());
     }
 
     /**
@@ -180,6 +215,9 @@ public class VisibleMemberMap {
             if (memberLevelMap == null) {
                 memberLevelMap = new HashMap();
                 memberNameMap.put(key, memberLevelMap);
+                if (key instanceof ClassMember) {
+                    addClassMember((ClassMember) key);
+                }
             }
             memberLevelMap.put(list.get(i), level);
         }
@@ -202,20 +240,25 @@ public class VisibleMemberMap {
     private class ClassMember {
         private Set members;
 
-        public ClassMember(ProgramElementDoc programElementDoc) {
+        /**
+         * The signature key shared by all the members.
+         */
+        private final String signatureKey;
+
+        public ClassMember(MethodDoc methodDoc) {
             members = new HashSet();
-            members.add(programElementDoc);
+            members.add(methodDoc);
+            signatureKey = Util.getSignatureKey(methodDoc);
         }
 
         public void addMember(ProgramElementDoc programElementDoc) {
             members.add(programElementDoc);
         }
 
-        public boolean isEqual(MethodDoc member) {
+        public boolean matches(MethodDoc member) {
             for (Iterator iter = members.iterator(); iter.hasNext(); ) {
                 MethodDoc member2 = (MethodDoc) iter.next();
                 if (Util.executableMembersEqual(member, member2)) {
-                    members.add(member);
                 	return true;
                 }
             }
@@ -352,76 +395,6 @@ public class VisibleMemberMap {
             }
         }
 
-        /**
-         * Return all available class members.
-         */
-        private List getClassMembers(ClassDoc cd, boolean filter) {
-            if (cd.isEnum() && kind == CONSTRUCTORS) {
-                //If any of these rules are hit, return empty array because
-                //we don't document these members ever.
-                return Arrays.asList(new ProgramElementDoc[] {});
-            }
-            ProgramElementDoc[] members = null;
-            switch (kind) {
-                case ANNOTATION_TYPE_MEMBER_OPTIONAL:
-                    members = cd.isAnnotationType() ?
-                        filter((AnnotationTypeDoc) cd, false) :
-                        new AnnotationTypeElementDoc[] {};
-                    break;
-                case ANNOTATION_TYPE_MEMBER_REQUIRED:
-                    members = cd.isAnnotationType() ?
-                        filter((AnnotationTypeDoc) cd, true) :
-                        new AnnotationTypeElementDoc[] {};
-                    break;
-                case INNERCLASSES:
-                    members = cd.innerClasses(filter);
-                    break;
-                case ENUM_CONSTANTS:
-                    members = cd.enumConstants();
-                    break;
-                case FIELDS:
-                    members = cd.fields(filter);
-                    break;
-                case CONSTRUCTORS:
-                    members = cd.constructors();
-                    break;
-                case METHODS:
-                    members = cd.methods(filter);
-                    break;
-                default:
-                    members = new ProgramElementDoc[0];
-            }
-            if (nodepr) {
-                return Util.excludeDeprecatedMembersAsList(members);
-            }
-            return Arrays.asList(members);
-        }
-
-        /**
-         * Filter the annotation type members and return either the required
-         * members or the optional members, depending on the value of the
-         * required parameter.
-         *
-         * @param doc The annotation type to process.
-         * @param required
-         * @return the annotation type members and return either the required
-         * members or the optional members, depending on the value of the
-         * required parameter.
-         */
-        private AnnotationTypeElementDoc[] filter(AnnotationTypeDoc doc,
-            boolean required) {
-            AnnotationTypeElementDoc[] members = ((AnnotationTypeDoc) doc).elements();
-            List targetMembers = new ArrayList();
-            for (int i = 0; i < members.length; i++) {
-                if ((required && members[i].defaultValue() == null) ||
-                     ((!required) && members[i].defaultValue() != null)){
-                    targetMembers.add(members[i]);
-                }
-            }
-            return (AnnotationTypeElementDoc[])
-                targetMembers.toArray(new AnnotationTypeElementDoc[]{});
-        }
-
         private boolean found(List list, ProgramElementDoc elem) {
             for (int i = 0; i < list.size(); i++) {
                 ProgramElementDoc pgmelem = (ProgramElementDoc)list.get(i);
@@ -439,7 +412,28 @@ public class VisibleMemberMap {
          * level "111".
          */
         private boolean isOverridden(ProgramElementDoc pgmdoc, String level) {
-            Map memberLevelMap = (Map) memberNameMap.get(getMemberKey(pgmdoc));
+            Object key = getMemberKey(pgmdoc);
+            if (key instanceof ClassMember) {
+                // A method can match the keys of several methods that do not
+                // match each other, such as Object.equals those of
+                // Comparator.equals and Enum.equals.  It is overridden if
+                // any of them overrides it.
+                List list = (List) classMembers.get(
+                    ((ClassMember) key).signatureKey);
+                for (int i = 0; list != null && i < list.size(); i++) {
+                    ClassMember classMember = (ClassMember) list.get(i);
+                    if (classMember.matches((MethodDoc) pgmdoc) &&
+                            isOverridden((Map) memberNameMap.get(classMember),
+                                level)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return isOverridden((Map) memberNameMap.get(key), level);
+        }
+
+        private boolean isOverridden(Map memberLevelMap, String level) {
             if (memberLevelMap == null)
                 return false;
             String mappedlevel = null;
@@ -456,6 +450,96 @@ public class VisibleMemberMap {
         }
     }
 
+    /**
+     * Return the members of the mapped kind declared by the given class,
+     * from the cache if there is one.
+     *
+     * @param cd the class declaring the members.
+     * @param filter true if only the included members are returned.
+     */
+    private List getClassMembers(ClassDoc cd, boolean filter) {
+        if (cache == null) {
+            return getDeclaredMembers(cd, kind, nodepr, filter);
+        }
+        return cache.getDeclaredMembers(cd, kind, nodepr, filter);
+    }
+
+    /**
+     * Return all available class members.
+     *
+     * @param cd the class declaring the members.
+     * @param kind the kind of member.
+     * @param nodepr if true, exclude the deprecated members.
+     * @param filter true if only the included members are returned.
+     */
+    static List getDeclaredMembers(ClassDoc cd, int kind, boolean nodepr,
+            boolean filter) {
+        if (cd.isEnum() && kind == CONSTRUCTORS) {
+            //If any of these rules are hit, return empty array because
+            //we don't document these members ever.
+            return Arrays.asList(new ProgramElementDoc[] {});
+        }
+        ProgramElementDoc[] members = null;
+        switch (kind) {
+            case ANNOTATION_TYPE_MEMBER_OPTIONAL:
+                members = cd.isAnnotationType() ?
+                    filter((AnnotationTypeDoc) cd, false) :
+                    new AnnotationTypeElementDoc[] {};
+                break;
+            case ANNOTATION_TYPE_MEMBER_REQUIRED:
+                members = cd.isAnnotationType() ?
+                    filter((AnnotationTypeDoc) cd, true) :
+                    new AnnotationTypeElementDoc[] {};
+                break;
+            case INNERCLASSES:
+                members = cd.innerClasses(filter);
+                break;
+            case ENUM_CONSTANTS:
+                members = cd.enumConstants();
+                break;
+            case FIELDS:
+                members = cd.fields(filter);
+                break;
+            case CONSTRUCTORS:
+                members = cd.constructors();
+                break;
+            case METHODS:
+                members = cd.methods(filter);
+                break;
+            default:
+                members = new ProgramElementDoc[0];
+        }
+        if (nodepr) {
+            return Util.excludeDeprecatedMembersAsList(members);
+        }
+        return Arrays.asList(members);
+    }
+
+    /**
+     * Filter the annotation type members and return either the required
+     * members or the optional members, depending on the value of the
+     * required parameter.
+     *
+     * @param doc The annotation type to process.
+     * @param required
+     * @return the annotation type members and return either the required
+     * members or the optional members, depending on the value of the
+     * required parameter.
+     */
+    private static AnnotationTypeElementDoc[] filter(AnnotationTypeDoc doc,
+        boolean required) {
+        AnnotationTypeElementDoc[] members = ((AnnotationTypeDoc) doc).elements();
+        List targetMembers = new ArrayList();
+        for (int i = 0; i < members.length; i++) {
+            if ((required && members[i].defaultValue() == null) ||
+                 ((!required) && members[i].defaultValue() != null)){
+                targetMembers.add(members[i]);
+            }
+        }
+        return (AnnotationTypeElementDoc[])
+            targetMembers.toArray(new AnnotationTypeElementDoc[]{});
+    }
+
     /**
      * Return true if this map has no visible members.
      *
@@ -465,16 +549,40 @@ public class VisibleMemberMap {
         return noVisibleMembers;
     }
 
+    /**
+     * Return the first method key that matches the given method, in the
+     * order the keys were added, or a new key if none does.
+     */
     private ClassMember getClassMember(MethodDoc member) {
-        for (Iterator iter = memberNameMap.keySet().iterator(); iter.hasNext();) {
-            Object key = iter.next();
-            if (key instanceof String) {
-                continue;
-            } else if (((ClassMember) key).isEqual(member)) {
-                return (ClassMember) key;
+        ClassMember found = null;
+        List list = (List) classMembers.get(Util.getSignatureKey(member));
+        if (list != null) {
+            for (int i = 0; i < list.size(); i++) {
+                ClassMember classMember = (ClassMember) list.get(i);
+                if (classMember.matches(member)) {
+                    found = classMember;
+                    break;
+                }
             }
         }
-        return new ClassMember(member);
+        if (found == null) {
+            return new ClassMember(member);
+        }
+        found.addMember(member);
+        return found;
+    }
+
+    /**
+     * Add a new method key of the member name map to the list of keys with
+     * the same signature key.
+     */
+    private void addClassMember(ClassMember classMember) {
+        List list = (List) classMembers.get(classMember.signatureKey);
+        if (list == null) {
+            list = new ArrayList(1);
+            classMembers.put(classMember.signatureKey, list);
+        }
+        list.add(classMember);
     }
 
     /**
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Checks {@link WikiFormatter} against the golden corpus. Every
+ * <code>golden/NAME.txt</code> holds a comment, and <code>golden/NAME.html</code>
+ * the HTML the original regex formatter made of it, byte for byte. The
+ * formatter has to reproduce that HTML exactly, quirks included.
+ *
+ * Run it with <code>ant test</code>, or directly with the directory of the
+ * corpus as the only argument. It exits with status 1 if a comment is
+ * formatted differently, and prints the first difference of each.
+ *
+ * @author  Jason Horman (jason@jhorman.org)
+ */
+
+public class WikiFormatterTest {
+
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "test/wikidoclet/golden");
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new FileNotFoundException(dir.getPath());
+        }
+        Arrays.sort(files);
+
+        int checked = 0;
+        int failed = 0;
+        for (int i = 0; i < files.length; i++) {
+            String name = files[i].getName();
+            if (!name.endsWith(".txt")) {
+                continue;
+            }
+            File expectedFile = new File(dir, name.substring(0, name.length() - 4) + ".html");
+            String comment = read(files[i]);
+            String expected = read(expectedFile);
+            String actual = WikiFormatter.format(comment);
+            checked++;
+            if (!expected.equals(actual)) {
+                failed++;
+                int at = 0;
+                while (at < expected.length() && at < actual.length()
+                        && expected.charAt(at) == actual.charAt(at)) {
+                    at++;
+                }
+                System.out.println("FAILED " + name + ": differs at offset " + at);
+                System.out.println("  expected: " + escape(expected, at));
+                System.out.println("  actual:   " + escape(actual, at));
+            }
+        }
+        System.out.println(checked + " comments checked, " + failed + " failed");
+        if (checked == 0 || failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns up to 40 characters of the string from the given offset, with
+     * the line terminators and tabs made visible.
+     */
+    private static String escape(String str, int from) {
+        StringBuffer buf = new StringBuffer();
+        int end = Math.min(str.length(), from + 40);
+        for (int i = from; i < end; i++) {
+            char c = str.charAt(i);
+            if (c == '\n') {
+                buf.append("\\n");
+            } else if (c == '\r') {
+                buf.append("\\r");
+            } else if (c == '\t') {
+                buf.append("\\t");
+            } else {
+                buf.append(c);
+            }
+        }
+        return buf.toString();
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import java.io.*;
+import java.text.MessageFormat;
+import java.util.*;
+
+/**
+ * Checks {@link MessageTemplate} against {@link MessageFormat}. Every key
+ * of the doclet's resource bundles, in every language, is formatted both
+ * ways: without arguments, with the three arguments {@link MessageRetriever}
+ * passes, and with fewer arguments than the message has. The results have
+ * to be the same, and so do the exceptions.
+ *
+ * Run it with <code>ant test</code>. It exits with status 1 if a message
+ * is formatted differently, and prints each difference.
+ *
+ * @author  Jason Horman (jason@jhorman.org)
+ */
+
+public class MessageTemplateTest {
+
+    private static final String[] BUNDLES = {
+        "wikidoclet/doclets/internal/toolkit/resources/doclets",
+        "wikidoclet/doclets/formats/html/resources/standard"
+    };
+
+    private static final String[] LANGUAGES = {"", "_ja", "_zh_CN"};
+
+    private static final String[][] ARGUMENTS = {
+        {null, null, null},
+        {"A", "<B>b</B>", "'{0}' c"},
+        {"A"},
+        {}
+    };
+
+    private static int checked;
+
+    private static int failed;
+
+    public static void main(String[] args) throws IOException {
+        for (int i = 0; i < BUNDLES.length; i++) {
+            for (int j = 0; j < LANGUAGES.length; j++) {
+                check(BUNDLES[i] + LANGUAGES[j] + ".properties");
+            }
+        }
+        System.out.println(checked + " messages, " + failed + " failed");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Format every key of the given properties file both ways.
+     */
+    private static void check(String name) throws IOException {
+        InputStream in =
+            MessageTemplateTest.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new FileNotFoundException(name);
+        }
+        Properties properties = new Properties();
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        List keys = new ArrayList(properties.keySet());
+        Collections.sort(keys);
+        for (Iterator iter = keys.iterator(); iter.hasNext(); ) {
+            String key = (String) iter.next();
+            String pattern = properties.getProperty(key);
+            for (int i = 0; i < ARGUMENTS.length; i++) {
+                checked++;
+                String expected = formatWithMessageFormat(pattern, ARGUMENTS[i]);
+                String actual = formatWithTemplate(pattern, ARGUMENTS[i]);
+                if (! expected.equals(actual)) {
+                    failed++;
+                    System.out.println("FAILED " + name + " " + key + " " +
+                        Arrays.asList(ARGUMENTS[i]) + ": expected " + expected +
+                        ", was " + actual);
+                }
+            }
+        }
+    }
+
+    private static String formatWithMessageFormat(String pattern, String[] args) {
+        try {
+            return MessageFormat.format(pattern, (Object[]) args);
+        } catch (IllegalArgumentException e) {
+            return e.toString();
+        }
+    }
+
+    private static String formatWithTemplate(String pattern, String[] args) {
+        try {
+            return MessageTemplate.compile(pattern).format(args);
+        } catch (IllegalArgumentException e) {
+            return e.toString();
+        }
+    }
+}
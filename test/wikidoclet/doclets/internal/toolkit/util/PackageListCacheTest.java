@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2003  Jason Horman (jason@jhorman.org)
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ */
+
+package wikidoclet.doclets.internal.toolkit.util;
+
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+/**
+ * Checks {@link PackageListCache} against a local HTTP server that serves
+ * a "package-list" file with an ETag. A first read fetches the file and
+ * writes the cached copy, a read of a stale copy revalidates it and gets
+ * 304 Not Modified, a read of a fresh copy makes no request, and once the
+ * server is gone the cached copy is used, also in offline mode.
+ *
+ * Run it with <code>ant test</code>. It exits with status 1 if a check
+ * fails, and prints each failure.
+ *
+ * @author  Jason Horman (jason@jhorman.org)
+ */
+
+public class PackageListCacheTest {
+
+    private static final String ETAG = "\"1\"";
+
+    private static final List PACKAGES =
+        Arrays.asList(new String[] {"java.lang", "java.util"});
+
+    private static int checked;
+
+    private static int failed;
+
+    /**
+     * The status codes the server replied with, in order.
+     */
+    private static final List statuses =
+        Collections.synchronizedList(new ArrayList());
+
+    public static void main(String[] args) throws IOException {
+        File dir = createTempDir();
+        HttpServer server = HttpServer.create(
+            new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+        server.createContext("/api/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        server.start();
+        URL url = new URL("http://127.0.0.1:" +
+            server.getAddress().getPort() + "/api/package-list");
+        try {
+            PackageListCache stale = new PackageListCache(dir, 0, false);
+            PackageListCache fresh =
+                new PackageListCache(dir, 24 * 60 * 60 * 1000L, false);
+
+            check("200 packages", PACKAGES, stale.read(url));
+            check("200 status", Arrays.asList(new Object[] {new Integer(200)}),
+                statuses);
+            check("200 cache file", new Integer(1),
+                new Integer(cacheFiles(dir).length));
+
+            File file = cacheFiles(dir)[0];
+            file.setLastModified(0);
+            check("304 packages", PACKAGES, stale.read(url));
+            check("304 status", Arrays.asList(new Object[] {new Integer(200),
+                new Integer(304)}), statuses);
+            check("304 cache file rewritten", Boolean.TRUE,
+                Boolean.valueOf(file.lastModified() > 0));
+
+            statuses.clear();
+            check("fresh packages", PACKAGES, fresh.read(url));
+            check("fresh status", Collections.EMPTY_LIST, statuses);
+        } finally {
+            server.stop(0);
+        }
+
+        check("unreachable packages", PACKAGES,
+            new PackageListCache(dir, 0, false).read(url));
+        check("offline packages", PACKAGES,
+            new PackageListCache(dir, 0, true).read(url));
+        File empty = createTempDir();
+        try {
+            new PackageListCache(empty, 0, true).read(url);
+            check("offline without copy", "FileNotFoundException", "no exception");
+        } catch (FileNotFoundException e) {
+            check("offline without copy", "", "");
+        }
+        delete(dir);
+        delete(empty);
+
+        System.out.println(checked + " checks, " + failed + " failed");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reply with the file, or with 304 if the request carries its ETag.
+     */
+    private static void serve(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            statuses.add(new Integer(304));
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            byte[] body = "java.lang\njava.util\n".getBytes("UTF-8");
+            statuses.add(new Integer(200));
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+        exchange.close();
+    }
+
+    private static File[] cacheFiles(File dir) {
+        return dir.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.endsWith(PackageListCache.CACHE_SUFFIX);
+            }
+        });
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("package-list", "");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+
+    private static void delete(File dir) {
+        File[] files = dir.listFiles();
+        for (int i = 0; i < files.length; i++) {
+            files[i].delete();
+        }
+        dir.delete();
+    }
+
+    private static void check(String name, Object expected, Object actual) {
+        checked++;
+        if (! expected.equals(actual)) {
+            failed++;
+            System.out.println("FAILED " + name + ": expected " + expected +
+                ", was " + actual);
+        }
+    }
+}